@@ -16,6 +16,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Optional;
 
 /**
  * JWT Authentication Filter
@@ -46,8 +47,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                if (jwtService.isTokenValid(token)) {
-                    String email = jwtService.extractEmail(token);
+                Optional<String> authenticatedEmail = jwtService.authenticate(token);
+                if (authenticatedEmail.isPresent()) {
+                    String email = authenticatedEmail.get();
 
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             email,
@@ -1,17 +1,15 @@
 package org.ozonLabel.auth.config;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.security.JwtTokenVerifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Optional;
 
 /**
  * JWT Service for secure token generation and validation
@@ -21,6 +19,7 @@ import java.util.Date;
  * - Separate access and refresh token expiration
  * - Token type claim to prevent token confusion attacks
  * - Proper exception handling
+ * - Single-parse verification with a cache of verified tokens (see JwtTokenVerifier)
  */
 @Service
 @Slf4j
@@ -39,13 +38,18 @@ public class JwtService {
     @Value("${jwt.refresh-expiration:1209600000}") // 14 days default
     private long refreshTokenExpiration;
 
+    @Value("${jwt.verified-cache-size:10000}")
+    private long verifiedCacheSize;
+
+    private JwtTokenVerifier tokenVerifier;
+
     /**
-     * Get the signing key from secret
+     * Signing key and parser are built once
      * SECURITY: Key is derived from secret using UTF-8 encoding
      */
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    @PostConstruct
+    void init() {
+        tokenVerifier = new JwtTokenVerifier(secret, verifiedCacheSize);
     }
 
     /**
@@ -57,7 +61,7 @@ public class JwtService {
                 .claim(TOKEN_TYPE_CLAIM, ACCESS_TOKEN_TYPE)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + accessTokenExpiration))
-                .signWith(getSigningKey())
+                .signWith(tokenVerifier.getSigningKey())
                 .compact();
     }
 
@@ -71,66 +75,38 @@ public class JwtService {
                 .claim(TOKEN_TYPE_CLAIM, REFRESH_TOKEN_TYPE)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + refreshTokenExpiration))
-                .signWith(getSigningKey())
+                .signWith(tokenVerifier.getSigningKey())
                 .compact();
     }
 
+    /**
+     * Verify token and extract email (subject) in a single parse
+     */
+    public Optional<String> authenticate(String token) {
+        return tokenVerifier.verify(token).map(JwtTokenVerifier.VerifiedToken::subject);
+    }
+
     /**
      * Extract email (subject) from token
      */
     public String extractEmail(String token) {
-        return extractAllClaims(token).getSubject();
+        return authenticate(token).orElseThrow(() -> new JwtException("Invalid JWT token"));
     }
 
     /**
      * Validate token and check it's not expired
      */
     public boolean isTokenValid(String token) {
-        try {
-            Claims claims = extractAllClaims(token);
-            return !isTokenExpired(claims);
-        } catch (ExpiredJwtException e) {
-            log.debug("Token expired: {}", e.getMessage());
-            return false;
-        } catch (JwtException e) {
-            log.warn("Invalid JWT token: {}", e.getMessage());
-            return false;
-        } catch (Exception e) {
-            log.error("Error validating token", e);
-            return false;
-        }
+        return tokenVerifier.verify(token).isPresent();
     }
 
     /**
      * Validate that token is a refresh token
      */
     public boolean isValidRefreshToken(String token) {
-        try {
-            Claims claims = extractAllClaims(token);
-            String tokenType = claims.get(TOKEN_TYPE_CLAIM, String.class);
-            return REFRESH_TOKEN_TYPE.equals(tokenType) && !isTokenExpired(claims);
-        } catch (Exception e) {
-            log.warn("Invalid refresh token: {}", e.getMessage());
-            return false;
-        }
-    }
-
-    /**
-     * Extract all claims from token
-     */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    /**
-     * Check if token is expired
-     */
-    private boolean isTokenExpired(Claims claims) {
-        return claims.getExpiration().before(new Date());
+        return tokenVerifier.verify(token)
+                .map(verified -> REFRESH_TOKEN_TYPE.equals(verified.type()))
+                .orElse(false);
     }
 
     /**
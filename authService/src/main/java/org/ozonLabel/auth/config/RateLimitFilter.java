@@ -0,0 +1,91 @@
+package org.ozonLabel.auth.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.auth.service.RateLimitPolicy;
+import org.ozonLabel.auth.service.RateLimitService;
+import org.ozonLabel.auth.service.SlidingWindowRateLimiter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Rate Limit Filter
+ * Per-endpoint, per-IP limits for public auth endpoints (flood protection in front of
+ * the per-email limits in AuthService)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitService rateLimitService;
+
+    private static final Map<String, RateLimitPolicy> ENDPOINT_POLICIES = Map.of(
+            "/api/auth/login", RateLimitPolicy.of("ip:login", 20, Duration.ofMinutes(1)),
+            "/api/auth/request-code", RateLimitPolicy.of("ip:request_code", 10, Duration.ofMinutes(60)),
+            "/api/auth/create-account", RateLimitPolicy.of("ip:create_account", 20, Duration.ofMinutes(60)),
+            "/api/auth/refresh-token", RateLimitPolicy.of("ip:refresh_token", 60, Duration.ofMinutes(1))
+    );
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        RateLimitPolicy policy = "POST".equals(request.getMethod())
+                ? ENDPOINT_POLICIES.get(request.getRequestURI())
+                : null;
+
+        if (policy != null) {
+            String clientIp = getClientIp(request);
+            SlidingWindowRateLimiter.Decision decision = rateLimitService.tryAcquire(policy, clientIp);
+            if (!decision.allowed()) {
+                log.warn("Rate limit {} exceeded for IP {}", policy.name(), clientIp);
+                sendRateLimitError(response, decision.retryAfterMillis());
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Client IP. The service listens on localhost behind a reverse proxy,
+     * so X-Forwarded-For is trusted only when the request comes from loopback.
+     */
+    private String getClientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        boolean fromProxy = "127.0.0.1".equals(remoteAddr) || "0:0:0:0:0:0:0:1".equals(remoteAddr)
+                || "::1".equals(remoteAddr);
+
+        if (fromProxy) {
+            String xForwardedFor = request.getHeader("X-Forwarded-For");
+            if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+                return xForwardedFor.split(",")[0].trim();
+            }
+            String xRealIp = request.getHeader("X-Real-IP");
+            if (xRealIp != null && !xRealIp.isEmpty()) {
+                return xRealIp.trim();
+            }
+        }
+
+        return remoteAddr;
+    }
+
+    private void sendRateLimitError(HttpServletResponse response, long retryAfterMillis) throws IOException {
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, (retryAfterMillis + 999) / 1000)));
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write(
+                "{\"success\":false,\"message\":\"Слишком много запросов. Пожалуйста, попробуйте позже.\","
+                        + "\"error\":\"RATE_LIMIT_EXCEEDED\"}");
+    }
+}
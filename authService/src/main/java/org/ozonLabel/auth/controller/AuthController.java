@@ -80,6 +80,10 @@ public class AuthController {
             log.warn("Account creation attempt with existing email");
             return ResponseEntity.status(HttpStatus.CONFLICT)
                     .body(ApiResponse.error(e.getMessage()));
+        } catch (RateLimitExceededException e) {
+            log.warn("Account creation rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             log.error("Error creating account", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -18,7 +18,6 @@ import org.ozonLabel.common.exception.auth.RateLimitExceededException;
 import org.ozonLabel.common.exception.auth.UserAlreadyExistsException;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,7 +32,7 @@ public class AuthService {
     private final UserRepository userRepository;
     private final VerificationCodeService verificationCodeService;
     private final EmailService emailService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final ObjectMapper objectMapper;
     private final JwtService jwtService;
     private final RateLimitService rateLimitService;
@@ -87,7 +86,7 @@ public class AuthService {
      * Create account after code verification
      */
     @Transactional
-    @CacheEvict(value = {"userProfiles", "userCompanyAccess"}, allEntries = true)
+    @CacheEvict(value = "userProfiles", allEntries = true)
     public User createAccount(CreateAccountDto dto) {
         // Get stored data from Redis
         String storedData = verificationCodeService.getStoredData(dto.getEmail());
@@ -118,7 +117,7 @@ public class AuthService {
             User user = User.builder()
                     .name(name)
                     .email(dto.getEmail().toLowerCase().trim()) // Normalize email
-                    .passwordHash(passwordEncoder.encode(password))
+                    .passwordHash(passwordHashingService.encode(password))
                     .companyName(dto.getCompanyName())
                     .inn(dto.getInn())
                     .phone(dto.getPhone())
@@ -139,7 +138,7 @@ public class AuthService {
             log.info("Account created for user: {}", maskEmail(dto.getEmail()));
             return savedUser;
 
-        } catch (InvalidVerificationCodeException | UserAlreadyExistsException e) {
+        } catch (InvalidVerificationCodeException | UserAlreadyExistsException | RateLimitExceededException e) {
             throw e;
         } catch (Exception e) {
             log.error("Error creating account", e);
@@ -160,8 +159,11 @@ public class AuthService {
                     "Слишком много попыток входа. Пожалуйста, попробуйте позже.");
         }
 
-        User user = userRepository.findByEmail(normalizedEmail)
-                .orElseThrow(InvalidCredentialsException::new);
+        User user = userRepository.findByEmail(normalizedEmail).orElse(null);
+        if (user == null) {
+            rateLimitService.recordFailedLogin(normalizedEmail);
+            throw new InvalidCredentialsException();
+        }
 
         // Check if account is locked
         if (user.isAccountLocked()) {
@@ -171,7 +173,8 @@ public class AuthService {
         }
 
         // Verify password
-        if (!passwordEncoder.matches(password, user.getPasswordHash())) {
+        if (!passwordHashingService.matches(password, user.getPasswordHash())) {
+            rateLimitService.recordFailedLogin(normalizedEmail);
             handleFailedLogin(user);
             throw new InvalidCredentialsException();
         }
@@ -182,6 +185,10 @@ public class AuthService {
             user.setAccountLockedUntil(null);
         }
 
+        // Re-hash with the current BCrypt cost if the stored hash is weaker
+        passwordHashingService.upgradeIfNeeded(password, user.getPasswordHash())
+                .ifPresent(user::setPasswordHash);
+
         // Generate tokens
         String accessToken = jwtService.generateToken(user.getEmail());
         String refreshToken = jwtService.generateRefreshToken(user.getEmail());
@@ -0,0 +1,31 @@
+package org.ozonLabel.auth.service;
+
+import java.time.Duration;
+
+/**
+ * Rate limit policy: at most {@code limit} requests per sliding {@code window}.
+ * The subject (email, IP, ...) is chosen by the caller, so the same engine serves
+ * per-email, per-IP and per-endpoint limits.
+ *
+ * @param name   policy name, part of the Redis key (e.g. "login_failures", "ip:login")
+ * @param limit  max requests per window
+ * @param window window length
+ */
+public record RateLimitPolicy(String name, int limit, Duration window) {
+
+    private static final String KEY_PREFIX = "rate_limit:";
+
+    public RateLimitPolicy {
+        if (limit <= 0 || window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("Invalid rate limit policy: " + name);
+        }
+    }
+
+    public static RateLimitPolicy of(String name, int limit, Duration window) {
+        return new RateLimitPolicy(name, limit, window);
+    }
+
+    String key(String subject) {
+        return KEY_PREFIX + name + ":" + subject;
+    }
+}
@@ -1,105 +1,64 @@
 package org.ozonLabel.auth.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
 
 /**
  * Rate limiting service for authentication operations
+ * Each check is a single atomic Redis call (see SlidingWindowRateLimiter)
  */
 @Service
 @RequiredArgsConstructor
 public class RateLimitService {
 
-    private final StringRedisTemplate redisTemplate;
+    private final SlidingWindowRateLimiter rateLimiter;
 
-    private static final String LOGIN_ATTEMPTS_PREFIX = "login_attempts:";
-    private static final String CODE_REQUESTS_PREFIX = "code_requests:";
-
-    private static final int MAX_LOGIN_ATTEMPTS = 5;
-    private static final int MAX_CODE_REQUESTS = 3;
-
-    private static final long LOGIN_WINDOW_MINUTES = 15;
-    private static final long CODE_WINDOW_MINUTES = 60;
+    static final RateLimitPolicy LOGIN_FAILURES_PER_EMAIL =
+            RateLimitPolicy.of("login_failures", 5, Duration.ofMinutes(15));
+    static final RateLimitPolicy CODE_REQUESTS_PER_EMAIL =
+            RateLimitPolicy.of("code_requests", 3, Duration.ofMinutes(60));
 
     /**
      * Check if login attempt is allowed
      */
     public boolean allowLoginAttempt(String email) {
-        String key = LOGIN_ATTEMPTS_PREFIX + email;
-        String value = redisTemplate.opsForValue().get(key);
-
-        if (value == null) {
-            return true;
-        }
-
-        int attempts = Integer.parseInt(value);
-        return attempts < MAX_LOGIN_ATTEMPTS;
+        return rateLimiter.check(LOGIN_FAILURES_PER_EMAIL, email).allowed();
     }
 
     /**
      * Record failed login attempt
      */
     public void recordFailedLogin(String email) {
-        String key = LOGIN_ATTEMPTS_PREFIX + email;
-
-        Long attempts = redisTemplate.opsForValue().increment(key);
-
-        if (attempts != null && attempts == 1) {
-            redisTemplate.expire(key, LOGIN_WINDOW_MINUTES, TimeUnit.MINUTES);
-        }
+        rateLimiter.tryAcquire(LOGIN_FAILURES_PER_EMAIL, email);
     }
 
     /**
      * Clear login attempts after successful login
      */
     public void clearLoginAttempts(String email) {
-        String key = LOGIN_ATTEMPTS_PREFIX + email;
-        redisTemplate.delete(key);
+        rateLimiter.reset(LOGIN_FAILURES_PER_EMAIL, email);
     }
 
     /**
-     * Check if code request is allowed
+     * Check if code request is allowed (and count it)
      */
     public boolean allowCodeRequest(String email) {
-        String key = CODE_REQUESTS_PREFIX + email;
-        String value = redisTemplate.opsForValue().get(key);
-
-        if (value == null) {
-            recordCodeRequest(email);
-            return true;
-        }
-
-        int requests = Integer.parseInt(value);
-
-        if (requests >= MAX_CODE_REQUESTS) {
-            return false;
-        }
-
-        recordCodeRequest(email);
-        return true;
+        return rateLimiter.tryAcquire(CODE_REQUESTS_PER_EMAIL, email).allowed();
     }
 
     /**
-     * Record code request
+     * Clear code requests after successful registration
      */
-    private void recordCodeRequest(String email) {
-        String key = CODE_REQUESTS_PREFIX + email;
-
-        Long requests = redisTemplate.opsForValue().increment(key);
-
-        if (requests != null && requests == 1) {
-            redisTemplate.expire(key, CODE_WINDOW_MINUTES, TimeUnit.MINUTES);
-        }
+    public void clearCodeRequests(String email) {
+        rateLimiter.reset(CODE_REQUESTS_PER_EMAIL, email);
     }
 
     /**
-     * Clear code requests after successful registration
+     * Check and count a request for an arbitrary policy (per IP, per endpoint, ...)
      */
-    public void clearCodeRequests(String email) {
-        String key = CODE_REQUESTS_PREFIX + email;
-        redisTemplate.delete(key);
+    public SlidingWindowRateLimiter.Decision tryAcquire(RateLimitPolicy policy, String subject) {
+        return rateLimiter.tryAcquire(policy, subject);
     }
 }
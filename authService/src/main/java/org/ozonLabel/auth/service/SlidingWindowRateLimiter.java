@@ -0,0 +1,141 @@
+package org.ozonLabel.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiting engine: sliding window in Redis checked by a single atomic Lua script
+ * plus a local Bucket4j near-cache.
+ *
+ * The local bucket has the same capacity and window as the policy, so when it is empty
+ * this instance alone has already exhausted the limit and the request is rejected
+ * without a Redis round trip. If Redis is unavailable the local bucket still limits
+ * requests hitting this instance (fail-open to the local limit instead of HTTP 500).
+ */
+@Component
+@Slf4j
+public class SlidingWindowRateLimiter {
+
+    private static final String SCRIPT_PATH = "scripts/sliding_window_rate_limit.lua";
+    private static final long LOCAL_CACHE_SIZE = 100_000;
+    private static final Duration LOCAL_IDLE_EXPIRATION = Duration.ofHours(1);
+
+    private final StringRedisTemplate redisTemplate;
+    private final DefaultRedisScript<List> script;
+    private final Cache<String, Bucket> localBuckets;
+
+    public SlidingWindowRateLimiter(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.script = new DefaultRedisScript<>();
+        this.script.setScriptSource(new ResourceScriptSource(new ClassPathResource(SCRIPT_PATH)));
+        this.script.setResultType(List.class);
+        this.localBuckets = Caffeine.newBuilder()
+                .maximumSize(LOCAL_CACHE_SIZE)
+                .expireAfterAccess(LOCAL_IDLE_EXPIRATION)
+                .build();
+    }
+
+    /**
+     * Consume one slot if the limit allows it
+     */
+    public Decision tryAcquire(RateLimitPolicy policy, String subject) {
+        String key = policy.key(subject);
+
+        ConsumptionProbe probe = localBucket(key, policy).tryConsumeAndReturnRemaining(1);
+        if (!probe.isConsumed()) {
+            return Decision.reject(TimeUnit.NANOSECONDS.toMillis(probe.getNanosToWaitForRefill()));
+        }
+
+        return evaluate(policy, key, 1);
+    }
+
+    /**
+     * Check the limit without consuming a slot
+     */
+    public Decision check(RateLimitPolicy policy, String subject) {
+        String key = policy.key(subject);
+
+        Bucket bucket = localBucket(key, policy);
+        if (bucket.getAvailableTokens() <= 0) {
+            return Decision.reject(TimeUnit.NANOSECONDS.toMillis(
+                    bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill()));
+        }
+
+        return evaluate(policy, key, 0);
+    }
+
+    /**
+     * Forget all requests of the subject (e.g. after successful login)
+     */
+    public void reset(RateLimitPolicy policy, String subject) {
+        String key = policy.key(subject);
+        localBuckets.invalidate(key);
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("Failed to reset rate limit {}: {}", policy.name(), e.getMessage());
+        }
+    }
+
+    private Decision evaluate(RateLimitPolicy policy, String key, int cost) {
+        try {
+            List<?> result = redisTemplate.execute(script, List.of(key),
+                    String.valueOf(policy.limit()),
+                    String.valueOf(policy.window().toMillis()),
+                    String.valueOf(cost),
+                    UUID.randomUUID().toString());
+
+            if (result == null || result.size() < 3) {
+                log.warn("Unexpected rate limit script result for {}: {}", policy.name(), result);
+                return Decision.allow();
+            }
+
+            boolean allowed = ((Number) result.get(0)).longValue() == 1;
+            return allowed ? Decision.allow() : Decision.reject(((Number) result.get(2)).longValue());
+        } catch (Exception e) {
+            // Local bucket has already limited this instance
+            log.warn("Redis rate limit check failed for {}, using local limit: {}", policy.name(), e.getMessage());
+            return Decision.allow();
+        }
+    }
+
+    private Bucket localBucket(String key, RateLimitPolicy policy) {
+        return localBuckets.get(key, k -> Bucket.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(policy.limit())
+                        .refillGreedy(policy.limit(), policy.window())
+                        .build())
+                .build());
+    }
+
+    /**
+     * Rate limit decision
+     *
+     * @param allowed          whether the request may proceed
+     * @param retryAfterMillis when rejected, time until a slot frees up
+     */
+    public record Decision(boolean allowed, long retryAfterMillis) {
+
+        static Decision allow() {
+            return new Decision(true, 0);
+        }
+
+        static Decision reject(long retryAfterMillis) {
+            return new Decision(false, Math.max(0, retryAfterMillis));
+        }
+    }
+}
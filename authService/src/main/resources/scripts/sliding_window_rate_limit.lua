@@ -0,0 +1,40 @@
+-- Sliding window rate limit (sliding log on a sorted set).
+-- The whole check runs atomically in Redis: one round trip, no race between read and increment.
+--
+-- KEYS[1] - rate limit key
+-- ARGV[1] - max requests per window
+-- ARGV[2] - window length, ms
+-- ARGV[3] - cost: 1 = consume a slot, 0 = check only
+-- ARGV[4] - unique request id (sorted set member)
+--
+-- Returns {allowed (1/0), requests in window, ms until a slot frees up}
+
+redis.replicate_commands()
+
+local key = KEYS[1]
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local cost = tonumber(ARGV[3])
+
+-- Redis server time: the same clock for every auth service instance
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window)
+local count = redis.call('ZCARD', key)
+
+if count + math.max(cost, 1) > limit then
+    local retryAfter = window
+    local oldest = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')
+    if oldest[2] then
+        retryAfter = tonumber(oldest[2]) + window - now
+    end
+    return {0, count, retryAfter}
+end
+
+if cost > 0 then
+    redis.call('ZADD', key, now, ARGV[4])
+    redis.call('PEXPIRE', key, window)
+end
+
+return {1, count + cost, 0}
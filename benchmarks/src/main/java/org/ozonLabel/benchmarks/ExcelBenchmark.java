@@ -0,0 +1,147 @@
+package org.ozonLabel.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ozonLabel.benchmarks.support.Fixtures;
+import org.ozonLabel.benchmarks.support.InMemoryMultipartFile;
+import org.ozonLabel.benchmarks.support.Stubs;
+import org.ozonLabel.common.dto.label.ExportRequest;
+import org.ozonLabel.common.dto.ozon.ExcelImportResult;
+import org.ozonLabel.common.dto.user.UserResponseDto;
+import org.ozonLabel.common.service.label.LabelService;
+import org.ozonLabel.common.service.label.PrintService;
+import org.ozonLabel.common.service.ozon.FolderService;
+import org.ozonLabel.common.service.ozon.OzonService;
+import org.ozonLabel.common.service.user.CompanyService;
+import org.ozonLabel.common.service.user.UserService;
+import org.ozonLabel.ozonApi.entity.Label;
+import org.ozonLabel.ozonApi.entity.OzonProduct;
+import org.ozonLabel.ozonApi.entity.ProductFolder;
+import org.ozonLabel.ozonApi.repository.LabelRepository;
+import org.ozonLabel.ozonApi.repository.OzonProductRepository;
+import org.ozonLabel.ozonApi.repository.ProductFolderRepository;
+import org.ozonLabel.ozonApi.service.ExportFolderHelper;
+import org.ozonLabel.ozonApi.service.ExportServiceImpl;
+import org.ozonLabel.ozonApi.service.ProductCreationServiceIml;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Импорт товаров из Excel и Excel экспорт (этикетки и «база данных») на 1k/10k/50k строк.
+ * Репозитории — заглушки в памяти: меряется разбор/формирование книги и логика сервиса, без БД.
+ * Каждая итерация — один полный импорт/экспорт, как один запрос пользователя.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ExcelBenchmark {
+
+    private static final String EXPORT_TEMPLATE = "standard";
+
+    @Param({"1000", "10000", "50000"})
+    public int rows;
+
+    private ProductCreationServiceIml productCreationService;
+    private ExportServiceImpl exportService;
+    private MultipartFile importFile;
+    private List<Long> productIds;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Fixtures.objectMapper();
+        List<OzonProduct> products = Fixtures.products(objectMapper, rows);
+        List<Label> labels = Fixtures.labelEntities(objectMapper, products,
+                Fixtures.seededTemplateConfig(EXPORT_TEMPLATE));
+        productIds = products.stream().map(OzonProduct::getProductId).toList();
+
+        Map<Long, OzonProduct> productsById = new HashMap<>();
+        for (OzonProduct product : products) {
+            productsById.put(product.getProductId(), product);
+        }
+
+        ProductFolder folder = ProductFolder.builder()
+                .id(Fixtures.FOLDER_ID)
+                .userId(Fixtures.COMPANY_ID)
+                .name("Импорт")
+                .build();
+
+        OzonProductRepository productRepository = Stubs.of(OzonProductRepository.class, Map.of(
+                "save", args -> args[0],
+                "findAllById", args -> products,
+                "findByUserIdAndProductId", args -> Optional.ofNullable(productsById.get((Long) args[1]))));
+        ProductFolderRepository folderRepository = Stubs.of(ProductFolderRepository.class, Map.of(
+                "save", args -> args[0],
+                "findById", args -> Optional.of(folder)));
+        LabelRepository labelRepository = Stubs.of(LabelRepository.class, Map.of(
+                "findByCompanyIdAndProductIdIn", args -> labels));
+
+        productCreationService = new ProductCreationServiceIml(
+                Stubs.of(OzonService.class),
+                Stubs.of(UserService.class, Map.of(
+                        "findByEmail", args -> Optional.of(UserResponseDto.builder()
+                                .id(Fixtures.COMPANY_ID)
+                                .email(Fixtures.USER_EMAIL)
+                                .build()))),
+                Stubs.of(FolderService.class, Map.of("existsByUserIdAndId", args -> true)),
+                objectMapper,
+                Stubs.of(LabelService.class),
+                productRepository,
+                folderRepository);
+
+        exportService = new ExportServiceImpl(
+                Stubs.of(LabelService.class),
+                Stubs.of(PrintService.class),
+                Stubs.of(CompanyService.class),
+                objectMapper,
+                new ExportFolderHelper(productRepository, folderRepository, objectMapper),
+                productRepository,
+                labelRepository,
+                null);
+
+        importFile = new InMemoryMultipartFile("products.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                Fixtures.importWorkbook(rows));
+    }
+
+    @Benchmark
+    public ExcelImportResult importFromExcel() {
+        return productCreationService.importFromExcel(Fixtures.USER_EMAIL, Fixtures.COMPANY_ID,
+                importFile, Fixtures.FOLDER_ID);
+    }
+
+    @Benchmark
+    public byte[] exportLabels() {
+        return exportService.exportLabels(Fixtures.USER_EMAIL, Fixtures.COMPANY_ID, ExportRequest.builder()
+                .productIds(productIds)
+                .format("EXCEL")
+                .exportType("labels")
+                .build());
+    }
+
+    @Benchmark
+    public byte[] exportDatabase() {
+        return exportService.exportLabels(Fixtures.USER_EMAIL, Fixtures.COMPANY_ID, ExportRequest.builder()
+                .productIds(productIds)
+                .format("EXCEL")
+                .exportType("database")
+                .build());
+    }
+}
@@ -0,0 +1,70 @@
+package org.ozonLabel.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ozonLabel.benchmarks.support.Fixtures;
+import org.ozonLabel.benchmarks.support.Stubs;
+import org.ozonLabel.common.service.user.CompanyService;
+import org.ozonLabel.ozonApi.repository.DataMatrixCodeRepository;
+import org.ozonLabel.ozonApi.repository.DataMatrixFileRepository;
+import org.ozonLabel.ozonApi.service.DataMatrixServiceImpl;
+import org.ozonLabel.ozonApi.util.Gs1ElementParser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность разбора кодов маркировки GS1 DataMatrix (загрузка файлов Честного знака)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class Gs1ParseBenchmark {
+
+    private static final int CODES = 4096;
+
+    private DataMatrixServiceImpl dataMatrixService;
+    private String[] codes;
+    private final Gs1ElementParser.Elements elements = new Gs1ElementParser.Elements();
+
+    @Setup
+    public void setUp() {
+        dataMatrixService = new DataMatrixServiceImpl(
+                Stubs.of(DataMatrixCodeRepository.class),
+                Stubs.of(CompanyService.class),
+                Stubs.of(DataMatrixFileRepository.class),
+                null);
+        codes = Fixtures.gs1Codes(CODES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CODES)
+    public void parseGS1Code(Blackhole blackhole) {
+        for (String code : codes) {
+            blackhole.consume(dataMatrixService.parseGS1Code(code));
+        }
+    }
+
+    /**
+     * Путь загрузки файла: один переиспользуемый результат, без строк
+     */
+    @Benchmark
+    @OperationsPerInvocation(CODES)
+    public void parseElements(Blackhole blackhole) {
+        for (String code : codes) {
+            blackhole.consume(Gs1ElementParser.parse(code, elements));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.ozonLabel.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ozonLabel.benchmarks.support.Fixtures;
+import org.ozonLabel.common.dto.label.LabelConfigDto;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор и сериализация JSON конфигурации этикетки (колонка jsonb labels.config / label_templates.config)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class LabelConfigJsonBenchmark {
+
+    @Param({"standard", "price", "postal", "warehouse"})
+    public String template;
+
+    private ObjectMapper objectMapper;
+    private String json;
+    private LabelConfigDto config;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Fixtures.objectMapper();
+        json = Fixtures.seededTemplateConfig(template);
+        config = Fixtures.readConfig(objectMapper, json);
+    }
+
+    @Benchmark
+    public LabelConfigDto parseConfig() throws JsonProcessingException {
+        return objectMapper.readValue(json, LabelConfigDto.class);
+    }
+
+    @Benchmark
+    public String writeConfig() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(config);
+    }
+}
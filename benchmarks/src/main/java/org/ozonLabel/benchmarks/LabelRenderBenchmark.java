@@ -0,0 +1,84 @@
+package org.ozonLabel.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ozonLabel.benchmarks.support.Fixtures;
+import org.ozonLabel.benchmarks.support.Stubs;
+import org.ozonLabel.common.dto.label.LabelResponseDto;
+import org.ozonLabel.common.dto.label.PrintRequest;
+import org.ozonLabel.common.dto.label.PrintResponse;
+import org.ozonLabel.common.service.datamatrix.DataMatrixService;
+import org.ozonLabel.common.service.label.LabelService;
+import org.ozonLabel.common.service.user.CompanyService;
+import org.ozonLabel.ozonApi.service.LabelPageCache;
+import org.ozonLabel.ozonApi.service.PrintServiceImpl;
+import org.ozonLabel.ozonApi.service.ThermalPrintRenderer;
+import org.ozonLabel.ozonApi.util.BarcodeSymbolRenderer;
+import org.ozonLabel.ozonApi.util.DateCalculator;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рендеринг PDF этикеток по системным шаблонам: одна этикетка и задание на 1000 этикеток.
+ * Этикетки уже загружены (как после batch-запроса в generateLabelsPdf) — меряется только рендеринг.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class LabelRenderBenchmark {
+
+    @Param({"standard", "price", "postal", "warehouse"})
+    public String template;
+
+    @Param({"1", "1000"})
+    public int labels;
+
+    private PrintServiceImpl printService;
+    private PrintRequest request;
+    private Map<Long, LabelResponseDto> labelsByProductId;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Fixtures.objectMapper();
+        String templateConfig = Fixtures.seededTemplateConfig(template);
+
+        printService = new PrintServiceImpl(
+                Stubs.of(LabelService.class),
+                Stubs.of(CompanyService.class),
+                Stubs.of(DataMatrixService.class),
+                new DateCalculator(),
+                new LabelPageCache(objectMapper, 64L * 1024 * 1024),
+                new BarcodeSymbolRenderer(),
+                new ThermalPrintRenderer(new DateCalculator(), new BarcodeSymbolRenderer(), "0", "0"),
+                // Задания печати, предпросмотр и лист подбора в бенчмарке не участвуют — он рендерит напрямую
+                null,
+                null,
+                null);
+
+        labelsByProductId = Fixtures.labelsForTemplate(objectMapper, templateConfig, labels);
+        request = PrintRequest.builder()
+                .productIds(new ArrayList<>(labelsByProductId.keySet()))
+                .separatorType("NONE")
+                .build();
+    }
+
+    @Benchmark
+    public PrintResponse renderPdf() {
+        return printService.renderLabelsPdf(Fixtures.USER_EMAIL, Fixtures.COMPANY_ID, request, labelsByProductId);
+    }
+}
@@ -0,0 +1,283 @@
+package org.ozonLabel.benchmarks.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.ozonLabel.common.dto.label.ElementDto;
+import org.ozonLabel.common.dto.label.LabelConfigDto;
+import org.ozonLabel.common.dto.label.LabelResponseDto;
+import org.ozonLabel.common.dto.label.LayerDto;
+import org.ozonLabel.ozonApi.entity.Label;
+import org.ozonLabel.ozonApi.entity.OzonProduct;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Детерминированные данные для бенчмарков.
+ * Шаблоны этикеток берутся из seed-миграции label_templates (та же SQL, что и в БД),
+ * остальные данные генерируются с фиксированным seed — результаты сравнимы между релизами.
+ */
+public final class Fixtures {
+
+    public static final long SEED = 42L;
+    public static final Long COMPANY_ID = 1L;
+    public static final Long FOLDER_ID = 1L;
+    public static final String USER_EMAIL = "bench@example.com";
+
+    private static final String TEMPLATES_MIGRATION = "db/migration/V3__create_label_templates_table.sql";
+    private static final Pattern TEMPLATE_ROW = Pattern.compile(
+            "\\('([^']+)',\\s*true,\\s*\\d+,\\s*[\\d.]+,\\s*[\\d.]+,\\s*'(\\{.*?})'\\);", Pattern.DOTALL);
+
+    /**
+     * Латинские имена системных шаблонов для параметров JMH (кириллица в -p зависит от локали консоли)
+     */
+    private static final Map<String, String> TEMPLATE_NAMES = Map.of(
+            "standard", "Стандартная",
+            "price", "Ценник",
+            "postal", "Почтовая",
+            "warehouse", "Складская"
+    );
+
+    private static final char GS = (char) 29;
+
+    private Fixtures() {
+    }
+
+    /**
+     * ObjectMapper с настройками Spring Boot по умолчанию (как в приложении)
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /**
+     * JSON конфигурации системных шаблонов: название → config
+     */
+    public static Map<String, String> seededTemplateConfigs() {
+        String sql;
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(TEMPLATES_MIGRATION)) {
+            if (in == null) {
+                throw new IllegalStateException("Миграция не найдена в classpath: " + TEMPLATES_MIGRATION);
+            }
+            sql = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<String, String> configs = new LinkedHashMap<>();
+        Matcher matcher = TEMPLATE_ROW.matcher(sql);
+        while (matcher.find()) {
+            configs.put(matcher.group(1), matcher.group(2));
+        }
+        if (configs.isEmpty()) {
+            throw new IllegalStateException("В миграции " + TEMPLATES_MIGRATION + " не найдено шаблонов");
+        }
+        return configs;
+    }
+
+    /**
+     * JSON конфигурации системного шаблона по латинскому имени (standard, price, postal, warehouse)
+     */
+    public static String seededTemplateConfig(String alias) {
+        String name = TEMPLATE_NAMES.get(alias);
+        String config = name != null ? seededTemplateConfigs().get(name) : null;
+        if (config == null) {
+            throw new IllegalArgumentException("Шаблон не найден: " + alias);
+        }
+        return config;
+    }
+
+    /**
+     * Этикетки для count товаров по одному шаблону.
+     * Содержимое элементов на динамических слоях уникально для каждого товара, как после импорта.
+     */
+    public static Map<Long, LabelResponseDto> labelsForTemplate(ObjectMapper objectMapper, String templateConfig,
+                                                                int count) {
+        Random random = new Random(SEED);
+        Map<Long, LabelResponseDto> labels = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            long productId = productId(i);
+            LabelConfigDto config = readConfig(objectMapper, templateConfig);
+            Set<Integer> dynamicLayers = config.getLayers().stream()
+                    .filter(layer -> "dynamic".equals(layer.getLayerType()))
+                    .map(LayerDto::getId)
+                    .collect(Collectors.toSet());
+            for (ElementDto element : config.getElements()) {
+                if (dynamicLayers.contains(element.getLayerId())) {
+                    element.setContent("barcode".equals(element.getType())
+                            ? digits(random, 13)
+                            : element.getContent() + " " + i);
+                }
+            }
+            labels.put(productId, LabelResponseDto.builder()
+                    .id(productId)
+                    .userId(COMPANY_ID)
+                    .companyId(COMPANY_ID)
+                    .productId(productId)
+                    .name("Товар " + i)
+                    .width(config.getWidth())
+                    .height(config.getHeight())
+                    .unit(config.getUnit())
+                    .config(config)
+                    .build());
+        }
+        return labels;
+    }
+
+    /**
+     * Товары, как после импорта из Excel
+     */
+    public static List<OzonProduct> products(ObjectMapper objectMapper, int count) {
+        Random random = new Random(SEED);
+        List<OzonProduct> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String barcode = digits(random, 13);
+            Map<String, String> excelData = new LinkedHashMap<>();
+            excelData.put("Штрихкод", barcode);
+            excelData.put("Наименование", "Товар " + i);
+            excelData.put("Артикул", "ART-" + i);
+            excelData.put("Цена", String.valueOf(100 + random.nextInt(9900)));
+            try {
+                products.add(OzonProduct.builder()
+                        .id((long) i + 1)
+                        .userId(COMPANY_ID)
+                        .productId(productId(i))
+                        .name("Товар " + i)
+                        .offerId("ART-" + i)
+                        .barcodes(objectMapper.writeValueAsString(List.of(barcode)))
+                        .folderId(FOLDER_ID)
+                        .excelData(objectMapper.writeValueAsString(excelData))
+                        .createdAt(LocalDateTime.now())
+                        .updatedAt(LocalDateTime.now())
+                        .build());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Сохранённые этикетки (config в JSON, как в колонке jsonb) для товаров
+     */
+    public static List<Label> labelEntities(ObjectMapper objectMapper, List<OzonProduct> products,
+                                            String templateConfig) {
+        Map<Long, LabelResponseDto> dtos = labelsForTemplate(objectMapper, templateConfig, products.size());
+        List<Label> labels = new ArrayList<>(products.size());
+        for (OzonProduct product : products) {
+            LabelResponseDto dto = dtos.get(product.getProductId());
+            try {
+                labels.add(Label.builder()
+                        .id(dto.getId())
+                        .userId(COMPANY_ID)
+                        .companyId(COMPANY_ID)
+                        .productId(product.getProductId())
+                        .name(product.getName())
+                        .width(dto.getWidth())
+                        .height(dto.getHeight())
+                        .config(objectMapper.writeValueAsString(dto.getConfig()))
+                        .build());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * XLSX файл импорта: заголовок + rows строк товаров
+     */
+    public static byte[] importWorkbook(int rows) {
+        Random random = new Random(SEED);
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Товары");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Штрихкод");
+            header.createCell(1).setCellValue("Наименование");
+            header.createCell(2).setCellValue("Артикул");
+            header.createCell(3).setCellValue("Цена");
+            for (int i = 1; i <= rows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(digits(random, 13));
+                row.createCell(1).setCellValue("Товар " + i);
+                row.createCell(2).setCellValue("ART-" + i);
+                row.createCell(3).setCellValue(100 + random.nextInt(9900));
+            }
+            workbook.write(baos);
+            workbook.dispose();
+            return baos.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Коды маркировки Честного знака в формате GS1 DataMatrix:
+     * 01 + GTIN(14) + 21 + серийный номер(13) + GS + 93 + ключ проверки(4)
+     */
+    public static String[] gs1Codes(int count) {
+        Random random = new Random(SEED);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!\"%&'*+-./_,:;=<>?";
+        String[] codes = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder code = new StringBuilder(40);
+            code.append("01").append(gtin(random));
+            code.append("21");
+            for (int j = 0; j < 13; j++) {
+                code.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            code.append(GS).append("93");
+            for (int j = 0; j < 4; j++) {
+                code.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            codes[i] = code.toString();
+        }
+        return codes;
+    }
+
+    public static long productId(int index) {
+        return 900_000_000L + index;
+    }
+
+    public static LabelConfigDto readConfig(ObjectMapper objectMapper, String json) {
+        try {
+            return objectMapper.readValue(json, LabelConfigDto.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String gtin(Random random) {
+        String digits = digits(random, 13);
+        int sum = 0;
+        for (int i = 0; i < 13; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 3 : 1);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    private static String digits(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(chars);
+    }
+}
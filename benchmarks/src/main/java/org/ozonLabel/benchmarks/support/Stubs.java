@@ -0,0 +1,68 @@
+package org.ozonLabel.benchmarks.support;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Заглушки интерфейсов сервисов и репозиториев на основе динамических прокси.
+ * Переопределяются только методы, нужные бенчмарку, остальные возвращают «пустое» значение
+ * (null, Optional.empty(), пустую коллекцию, false, 0) — как пустая БД.
+ */
+public final class Stubs {
+
+    private Stubs() {
+    }
+
+    public static <T> T of(Class<T> type) {
+        return of(type, Map.of());
+    }
+
+    /**
+     * @param handlers реализации методов по имени; аргументы передаются массивом
+     */
+    public static <T> T of(Class<T> type, Map<String, Function<Object[], Object>> handlers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            Function<Object[], Object> handler = handlers.get(method.getName());
+            if (handler != null) {
+                return handler.apply(args != null ? args : new Object[0]);
+            }
+            return switch (method.getName()) {
+                case "toString" -> "Stub<" + type.getSimpleName() + ">";
+                case "hashCode" -> System.identityHashCode(self);
+                case "equals" -> self == args[0];
+                default -> emptyValue(method.getReturnType());
+            };
+        });
+        return type.cast(proxy);
+    }
+
+    private static Object emptyValue(Class<?> returnType) {
+        if (returnType == Optional.class) {
+            return Optional.empty();
+        }
+        if (returnType == List.class || returnType == Iterable.class) {
+            return Collections.emptyList();
+        }
+        if (returnType == Set.class) {
+            return Collections.emptySet();
+        }
+        if (returnType == Map.class) {
+            return Collections.emptyMap();
+        }
+        if (returnType == boolean.class) {
+            return false;
+        }
+        if (returnType == int.class) {
+            return 0;
+        }
+        if (returnType == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
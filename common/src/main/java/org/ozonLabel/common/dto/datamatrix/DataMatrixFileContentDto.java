@@ -0,0 +1,35 @@
+package org.ozonLabel.common.dto.datamatrix;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+
+/**
+ * Оригинал загруженного файла с кодами DataMatrix на диске
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DataMatrixFileContentDto {
+
+    /**
+     * Путь к сжатому (gzip) файлу
+     */
+    private Path path;
+
+    private String fileName;
+
+    /**
+     * Размер несжатого содержимого в байтах
+     */
+    private Long size;
+
+    /**
+     * SHA-256 несжатого содержимого
+     */
+    private String sha256;
+}
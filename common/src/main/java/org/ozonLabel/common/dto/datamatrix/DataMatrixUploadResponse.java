@@ -30,6 +30,11 @@ public class DataMatrixUploadResponse {
      * Количество дубликатов
      */
     private Integer duplicates;
+
+    /**
+     * Количество отклонённых кодов (не строка GS1, неверная контрольная цифра GTIN, нет серийного номера)
+     */
+    private Integer invalid;
     
     /**
      * Список загруженных кодов
@@ -0,0 +1,54 @@
+package org.ozonLabel.common.dto.label;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Состояние фонового задания экспорта
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobDto {
+
+    private Long id;
+
+    /**
+     * Формат экспорта: EXCEL, PDF или ZIP
+     */
+    private String format;
+
+    /**
+     * QUEUED, RUNNING, DONE или FAILED
+     */
+    private String status;
+
+    /**
+     * Имя файла для скачивания
+     */
+    private String fileName;
+
+    /**
+     * Размер готового файла в байтах
+     */
+    private Long fileSize;
+
+    /**
+     * Причина ошибки для статуса FAILED
+     */
+    private String error;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime finishedAt;
+
+    /**
+     * До какого момента файл доступен для скачивания
+     */
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,27 @@
+package org.ozonLabel.common.dto.label;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+
+/**
+ * Готовый файл задания экспорта
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobFileDto {
+
+    /**
+     * Путь к файлу на диске
+     */
+    private Path path;
+
+    private String contentType;
+
+    private String fileName;
+}
@@ -22,6 +22,7 @@ public class LabelResponseDto {
     private BigDecimal height;
     private String unit;
     private LabelConfigDto config;
+    private String previewUrl;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
@@ -20,4 +20,15 @@ public class PickListRequest {
      * Список ID продуктов для печати
      */
     private List<Long> productIds;
+
+    /**
+     * Сортировка строк: folder — по папке, затем по артикулу; offerId — по артикулу.
+     * Не задана — в порядке productIds
+     */
+    private String sortBy;
+
+    /**
+     * Показывать фото товаров (по умолчанию да)
+     */
+    private Boolean includePhotos;
 }
@@ -0,0 +1,32 @@
+package org.ozonLabel.common.dto.label;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+
+/**
+ * Файл сохранённого задания печати
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrintJobFileDto {
+
+    /**
+     * Путь к файлу на диске
+     */
+    private Path path;
+
+    /**
+     * Формат: PDF, ZPL или TSPL
+     */
+    private String outputFormat;
+
+    private String contentType;
+
+    private String fileName;
+}
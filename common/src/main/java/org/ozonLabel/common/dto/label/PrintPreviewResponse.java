@@ -0,0 +1,43 @@
+package org.ozonLabel.common.dto.label;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Предпросмотр печати: первые этикетки задания с образцами DataMatrix кодов
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrintPreviewResponse {
+
+    /**
+     * Формат предпросмотра: PNG или PDF
+     */
+    private String format;
+
+    /**
+     * Изображения PNG — по одному на страницу (в режиме листа — на лист)
+     */
+    private List<byte[]> images;
+
+    /**
+     * PDF предпросмотра, если запрошен PDF
+     */
+    private byte[] pdfData;
+
+    /**
+     * Сколько этикеток вошло в предпросмотр
+     */
+    private Integer previewLabels;
+
+    /**
+     * Сколько этикеток во всём задании
+     */
+    private Integer totalLabels;
+}
@@ -37,4 +37,20 @@ public class PrintRequest {
      * URL кастомного изображения разделителя (Pro тариф)
      */
     private String customSeparatorImageUrl;
+
+    /**
+     * Формат результата: PDF (по умолчанию), ZPL (Zebra) или TSPL (TSC и совместимые)
+     */
+    private String outputFormat;
+
+    /**
+     * Разрешение термопринтера для ZPL/TSPL: 203 (по умолчанию), 300 или 600 dpi
+     */
+    private Integer printerDpi;
+
+    /**
+     * Раскладка на листе: если задана, PDF печатается листами по rows×columns этикеток
+     * вместо отдельной страницы на каждую этикетку. Разделители SKU в этом режиме не печатаются
+     */
+    private SheetLayoutDto sheetLayout;
 }
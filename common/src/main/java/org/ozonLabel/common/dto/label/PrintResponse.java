@@ -21,6 +21,21 @@ public class PrintResponse {
      */
     private byte[] pdfData;
 
+    /**
+     * Команды принтера (ZPL или TSPL), если запрошен не PDF
+     */
+    private byte[] printerData;
+
+    /**
+     * Формат результата: PDF, ZPL или TSPL
+     */
+    private String outputFormat;
+
+    /**
+     * ID сохранённого задания печати — для повторного скачивания без списания новых кодов
+     */
+    private Long printJobId;
+
     /**
      * Всего страниц (этикеток) в PDF
      */
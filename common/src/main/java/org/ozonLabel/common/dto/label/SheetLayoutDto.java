@@ -0,0 +1,36 @@
+package org.ozonLabel.common.dto.label;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Раскладка этикеток на листе (печать на листах с наклейками, например A4).
+ * Все размеры — в мм. Этикетки размещаются по строкам слева направо, сверху вниз,
+ * каждая в своём размере от левого верхнего угла ячейки.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SheetLayoutDto {
+
+    // Размер листа (по умолчанию A4: 210×297)
+    private BigDecimal pageWidth;
+    private BigDecimal pageHeight;
+
+    // Сетка
+    private Integer rows;
+    private Integer columns;
+
+    // Поля листа
+    private BigDecimal marginTop;
+    private BigDecimal marginLeft;
+
+    // Промежутки между этикетками
+    private BigDecimal horizontalGutter;
+    private BigDecimal verticalGutter;
+}
@@ -0,0 +1,150 @@
+package org.ozonLabel.common.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Проверка JWT, общая для всех сервисов.
+ *
+ * Ключ и парсер создаются один раз (JwtParser потокобезопасен), токен разбирается
+ * и проверяется одним вызовом. Успешно проверенные токены кэшируются по SHA-256
+ * до момента истечения (exp), поэтому повторные запросы с тем же токеном
+ * не выполняют HMAC-проверку и разбор JSON. Сами токены в кэше не хранятся.
+ */
+@Slf4j
+public class JwtTokenVerifier {
+
+    private static final String TOKEN_TYPE_CLAIM = "type";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    });
+
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final Cache<ByteBuffer, VerifiedToken> verifiedTokens;
+
+    /**
+     * @param secret          секрет HMAC (UTF-8)
+     * @param maxCachedTokens максимальное число проверенных токенов в кэше (0 — без кэша)
+     */
+    public JwtTokenVerifier(String secret, long maxCachedTokens) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxCachedTokens)
+                .expireAfter(new Expiry<ByteBuffer, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer key, VerifiedToken token, long currentTime) {
+                        return token.nanosUntilExpiration();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer key, VerifiedToken token,
+                                                  long currentTime, long currentDuration) {
+                        return token.nanosUntilExpiration();
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer key, VerifiedToken token,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Ключ подписи (для выпуска токенов тем же секретом)
+     */
+    public SecretKey getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * Проверить подпись и срок действия токена
+     *
+     * @return данные токена или пустой Optional, если токен недействителен или истёк
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+
+        ByteBuffer digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            // Кэш истекает по exp с точностью таймера Caffeine — перепроверяем явно
+            return cached.isExpired() ? Optional.empty() : Optional.of(cached);
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (ExpiredJwtException e) {
+            log.debug("Token expired: {}", e.getMessage());
+            return Optional.empty();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Invalid JWT token: {}", e.getMessage());
+            return Optional.empty();
+        }
+
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                claims.get(TOKEN_TYPE_CLAIM, String.class),
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+
+        // Токены без exp не кэшируем: их нельзя вытеснить по сроку действия
+        if (verified.expiresAt() != null) {
+            verifiedTokens.put(digest, verified);
+        }
+        return Optional.of(verified);
+    }
+
+    private ByteBuffer digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        sha256.reset();
+        return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Проверенный токен
+     *
+     * @param subject   email пользователя
+     * @param type      тип токена (access/refresh), если указан
+     * @param expiresAt момент истечения, если указан
+     */
+    public record VerifiedToken(String subject, String type, Instant expiresAt) {
+
+        boolean isExpired() {
+            return expiresAt != null && !expiresAt.isAfter(Instant.now());
+        }
+
+        long nanosUntilExpiration() {
+            long millis = expiresAt.toEpochMilli() - System.currentTimeMillis();
+            return Math.max(0, millis) * 1_000_000L;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.ozonLabel.common.service.datamatrix;
 
 import org.ozonLabel.common.dto.datamatrix.DataMatrixCodeDto;
+import org.ozonLabel.common.dto.datamatrix.DataMatrixFileContentDto;
 import org.ozonLabel.common.dto.datamatrix.DataMatrixFileDto;
 import org.ozonLabel.common.dto.datamatrix.DataMatrixStatsDto;
 import org.ozonLabel.common.dto.datamatrix.DataMatrixUploadResponse;
@@ -80,6 +81,20 @@ public interface DataMatrixService {
         Long fileId
     );
 
+    /**
+     * Зарезервировать следующий неиспользованный код: из файла, если он задан, иначе из пула продукта.
+     * В отличие от {@link #reserveNextCodeForProduct} и {@link #reserveNextCodeFromFile} возвращает
+     * код целиком (с ID) — задание печати записывает, какие коды оно списало
+     * @param fileId ID файла с кодами или null
+     * @return код или пустой Optional если кодов нет
+     */
+    Optional<DataMatrixCodeDto> reserveNextCode(
+        String userEmail,
+        Long companyOwnerId,
+        Long productId,
+        Long fileId
+    );
+
     /**
      * Получить статистику по кодам для конкретного файла
      * @param userEmail email пользователя
@@ -96,7 +111,8 @@ public interface DataMatrixService {
     /**
      * Распарсить GS1 DataMatrix код
      * @param rawCode сырой код
-     * @return распарсенные данные {gtin, serial, verificationKey}
+     * @return распарсенные данные {gtin, serial, verificationKey}, отсутствующие элементы — null
+     * @throws org.ozonLabel.common.exception.user.ValidationException если код не является корректной строкой GS1
      */
     GS1DataMatrixResult parseGS1Code(String rawCode);
 
@@ -114,13 +130,13 @@ public interface DataMatrixService {
     );
 
     /**
-     * Скачать оригинальный CSV файл
+     * Оригинальный CSV файл для скачивания
      * @param userEmail email пользователя
      * @param companyOwnerId ID компании
      * @param fileId ID файла
-     * @return содержимое файла как byte[]
+     * @return сжатый файл на диске с размером и контрольной суммой содержимого
      */
-    byte[] downloadFileAsCSV(
+    DataMatrixFileContentDto getFileContent(
         String userEmail,
         Long companyOwnerId,
         Long fileId
@@ -2,6 +2,8 @@ package org.ozonLabel.common.service.label;
 
 import org.ozonLabel.common.dto.label.ExportRequest;
 
+import java.io.OutputStream;
+
 /**
  * Сервис для экспорта этикеток
  */
@@ -15,4 +17,24 @@ public interface ExportService {
      * @return файл в виде массива байтов
      */
     byte[] exportLabels(String userEmail, Long companyOwnerId, ExportRequest request);
+
+    /**
+     * Записать экспорт в выходной поток в формате запроса
+     * @param request запрос, подготовленный через {@link #resolveExportRequest}
+     * @param out поток для файла экспорта (не закрывается)
+     */
+    void writeExport(String userEmail, Long companyOwnerId, ExportRequest request, OutputStream out);
+
+    /**
+     * Проверить доступ и параметры экспорта, развернуть папки в список товаров
+     * @return запрос с заполненным productIds
+     */
+    ExportRequest resolveExportRequest(String userEmail, Long companyOwnerId, ExportRequest request);
+
+    /**
+     * Потоково записать ZIP архив с PDF этикетками в выходной поток
+     * @param request запрос, подготовленный через {@link #resolveExportRequest}
+     * @param out поток ответа (не закрывается)
+     */
+    void writeZipExport(String userEmail, Long companyOwnerId, ExportRequest request, OutputStream out);
 }
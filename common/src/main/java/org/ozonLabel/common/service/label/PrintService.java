@@ -1,9 +1,15 @@
 package org.ozonLabel.common.service.label;
 
+import org.ozonLabel.common.dto.label.LabelResponseDto;
 import org.ozonLabel.common.dto.label.PickListRequest;
+import org.ozonLabel.common.dto.label.PrintJobFileDto;
+import org.ozonLabel.common.dto.label.PrintPreviewResponse;
 import org.ozonLabel.common.dto.label.PrintRequest;
 import org.ozonLabel.common.dto.label.PrintResponse;
 
+import java.io.OutputStream;
+import java.util.Map;
+
 /**
  * Сервис для генерации PDF для печати
  */
@@ -17,6 +23,36 @@ public interface PrintService {
      * @return ответ с PDF и метриками
      */
     PrintResponse generateLabelsPdf(String userEmail, Long companyOwnerId, PrintRequest request);
+
+    /**
+     * Файл сохранённого задания печати для повторной печати.
+     * Если файл уже удалён по сроку хранения, задание собирается заново из записанных
+     * DataMatrix кодов — новые коды не резервируются.
+     * @param printJobId ID задания из {@link PrintResponse#getPrintJobId()}
+     * @return путь к файлу и его тип
+     */
+    PrintJobFileDto getPrintJobFile(String userEmail, Long companyOwnerId, Long printJobId);
+
+    /**
+     * Предпросмотр первых этикеток задания. Рендеринг тот же, что при печати, но вместо
+     * DataMatrix кодов рисуется образец — коды не резервируются
+     * @param format PNG (по умолчанию) или PDF
+     * @param limit сколько этикеток показать
+     * @param dpi разрешение изображений PNG
+     * @return изображения или PDF предпросмотра
+     */
+    PrintPreviewResponse generatePreview(String userEmail, Long companyOwnerId, PrintRequest request,
+                                         String format, Integer limit, Integer dpi);
+
+    /**
+     * Сгенерировать PDF по уже загруженным этикеткам.
+     * Доступ не проверяется и этикетки повторно не запрашиваются — вызывающий код
+     * (пакетный экспорт) делает это сам один раз на всё задание.
+     * @param labelsByProductId этикетки по ID продукта
+     * @return ответ с PDF и метриками
+     */
+    PrintResponse renderLabelsPdf(String userEmail, Long companyOwnerId, PrintRequest request,
+                                  Map<Long, LabelResponseDto> labelsByProductId);
     
     /**
      * Сгенерировать PDF листа подбора
@@ -26,4 +62,16 @@ public interface PrintService {
      * @return PDF файл в виде массива байтов
      */
     byte[] generatePickListPdf(String userEmail, Long companyOwnerId, PickListRequest request);
+
+    /**
+     * Проверить доступ и параметры листа подбора — до начала потоковой записи ответа
+     */
+    void checkPickListRequest(String userEmail, Long companyOwnerId, PickListRequest request);
+
+    /**
+     * Потоково записать лист подбора в выходной поток
+     * @param request запрос, проверенный через {@link #checkPickListRequest}
+     * @param out поток ответа (не закрывается)
+     */
+    void writePickListPdf(String userEmail, Long companyOwnerId, PickListRequest request, OutputStream out);
 }
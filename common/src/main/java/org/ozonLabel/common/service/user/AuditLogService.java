@@ -4,6 +4,8 @@ import org.ozonLabel.common.dto.user.AuditLogEntryDto;
 import org.ozonLabel.common.dto.user.AuditLogResponseDto;
 import org.ozonLabel.common.model.AuditAction;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -55,4 +57,11 @@ public interface AuditLogService {
     // Получить историю действий по конкретной сущности
     List<AuditLogEntryDto> getEntityHistory(Long companyOwnerId, String entityType, Long entityId);
 
+    /**
+     * Выгрузка журнала компании за период (CSV или XLSX) потоком в out.
+     * Границы периода необязательны: [from, to)
+     */
+    void exportCompanyAuditLog(Long companyOwnerId, LocalDateTime from, LocalDateTime to,
+                               String format, OutputStream out) throws IOException;
+
 }
@@ -8,6 +8,8 @@ import org.ozonLabel.common.model.MemberRole;
 import org.ozonLabel.common.model.NotificationPriority;
 import org.ozonLabel.common.model.NotificationType;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -119,4 +121,6 @@ public interface NotificationService {
 
     List<NotificationResponseDto> findByUserIdAndPriorityOrderByCreatedAtDesc(Long userId, NotificationPriority priority);
 
+    void exportUserNotifications(String userEmail, String format, OutputStream out) throws IOException;
+
 }
@@ -4,13 +4,16 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class AppConfig {
@@ -33,4 +36,88 @@ public class AppConfig {
         mapper.enable(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT);
         return mapper;
     }
+
+    /**
+     * Пул асинхронной обработки MVC (StreamingResponseBody и т.п.).
+     * Любой собственный Executor отключает автоконфигурацию applicationTaskExecutor, и без этого бина
+     * Spring MVC пишет потоковые ответы через неограниченный SimpleAsyncTaskExecutor.
+     * Таймаут запроса задаётся spring.mvc.async.request-timeout.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor applicationTaskExecutor(
+            @Value("${app.mvc.async.max-threads:16}") int maxThreads,
+            @Value("${app.mvc.async.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxThreads);
+        executor.setMaxPoolSize(maxThreads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Пул для параллельного рендеринга PDF при пакетном экспорте.
+     * Очередь ограничена: при переполнении задача выполняется в вызывающем потоке.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor exportRenderExecutor() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 4);
+        executor.setThreadNamePrefix("export-render-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Пул загрузки фото для листа подбора. Потоки в основном ждут сеть, поэтому пул отдельный
+     * от рендеринга: медленный хост с фото не занимает потоки экспорта.
+     * При переполнении очереди загрузка выполняется в вызывающем потоке.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor pickListPhotoExecutor(
+            @Value("${app.print.pick-list.photo-threads:8}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 16);
+        executor.setThreadNamePrefix("pick-list-photo-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Пул фоновых заданий экспорта. Очередь не ограничена: в пул попадают только задания,
+     * прошедшие лимит компании, остальные ждут в очереди компании в ExportJobService.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor exportJobExecutor(@Value("${app.export.jobs.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setThreadNamePrefix("export-job-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Пул для фонового рендеринга миниатюр шаблонов и этикеток.
+     * При переполнении очереди задача отклоняется: миниатюра будет запрошена снова при следующем чтении.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor thumbnailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.initialize();
+        return executor;
+    }
 }
\ No newline at end of file
@@ -1,22 +1,32 @@
 package org.ozonLabel.ozonApi.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.ozonLabel.common.dto.datamatrix.DataMatrixCodeDto;
+import org.ozonLabel.common.dto.datamatrix.DataMatrixFileContentDto;
 import org.ozonLabel.common.dto.datamatrix.DataMatrixFileDto;
 import org.ozonLabel.common.dto.datamatrix.DataMatrixStatsDto;
 import org.ozonLabel.common.dto.datamatrix.DataMatrixUploadResponse;
 import org.ozonLabel.common.dto.datamatrix.DeleteFileResponse;
 import org.ozonLabel.common.service.datamatrix.DataMatrixService;
+import org.ozonLabel.ozonApi.util.ConditionalRequests;
+import org.ozonLabel.ozonApi.util.FileBodyWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api/datamatrix")
@@ -139,32 +149,52 @@ public class DataMatrixController {
     }
 
     /**
-     * Скачать оригинальный CSV файл
+     * Скачать оригинальный CSV файл.
+     * Клиенту, принимающему gzip, сжатый файл отдаётся с диска как есть (sendfile/transferTo),
+     * остальным — распаковывается потоком. Совпавший If-None-Match получает 304 без тела.
      */
     @GetMapping("/files/{fileId}/download")
-    public ResponseEntity<byte[]> downloadFileAsCSV(
+    public void downloadFileAsCSV(
             @PathVariable Long fileId,
             @RequestParam Long companyOwnerId,
-            Authentication auth) {
+            Authentication auth,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
 
         String userEmail = auth.getName();
         log.info("Скачивание файла {} компании {} пользователем {}",
                 fileId, companyOwnerId, userEmail);
 
-        byte[] content = dataMatrixService.downloadFileAsCSV(userEmail, companyOwnerId, fileId);
-
-        DataMatrixFileDto fileInfo = dataMatrixService.getFileHistory(userEmail, companyOwnerId, null)
-                .stream()
-                .filter(f -> f.getId().equals(fileId))
-                .findFirst()
-                .orElse(null);
-
-        String fileName = fileInfo != null ? fileInfo.getFileName() : "codes.csv";
-
-        return ResponseEntity.ok()
-                .header("Content-Type", "text/csv; charset=UTF-8")
-                .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
-                .body(content);
+        DataMatrixFileContentDto content = dataMatrixService.getFileContent(userEmail, companyOwnerId, fileId);
+        String fileName = content.getFileName() != null ? content.getFileName() : "codes.csv";
+        boolean gzipped = ConditionalRequests.acceptsGzip(request);
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (content.getSha256() != null) {
+            String etag = "\"" + content.getSha256() + (gzipped ? "-gz" : "") + "\"";
+            response.setHeader(HttpHeaders.ETAG, etag);
+            if (ConditionalRequests.etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        response.setContentType("text/csv; charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+
+        if (gzipped) {
+            long length = Files.size(content.getPath());
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setContentLengthLong(length);
+            FileBodyWriter.write(content.getPath(), 0, length, request, response);
+            return;
+        }
+
+        if (content.getSize() != null) {
+            response.setContentLengthLong(content.getSize());
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(content.getPath()), 64 * 1024)) {
+            in.transferTo(response.getOutputStream());
+        }
     }
 
     /**
@@ -6,16 +6,20 @@ import lombok.extern.slf4j.Slf4j;
 import org.ozonLabel.common.dto.ApiResponse;
 import org.ozonLabel.common.dto.label.*;
 import org.ozonLabel.common.dto.label.ResizeLabelDto;
+import org.ozonLabel.ozonApi.service.ExportJobService;
 import org.ozonLabel.ozonApi.util.LabelSizes;
 import org.ozonLabel.common.service.label.ExportService;
 import org.ozonLabel.common.service.label.LabelService;
 import org.ozonLabel.common.service.label.PrintService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -28,6 +32,7 @@ public class LabelController {
     private final LabelService labelService;
     private final PrintService printService;
     private final ExportService exportService;
+    private final ExportJobService exportJobService;
 
     /**
      * Получить список доступных размеров этикеток.
@@ -198,31 +203,77 @@ public class LabelController {
     }
 
     /**
-     * Печать листа подбора
+     * Предпросмотр печати: первые этикетки задания в PNG или PDF.
+     * DataMatrix коды не резервируются — вместо них рисуется образец кода
+     */
+    @PostMapping("/print/preview")
+    public ResponseEntity<PrintPreviewResponse> previewLabels(
+            @RequestParam Long companyOwnerId,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer dpi,
+            @RequestBody PrintRequest dto,
+            Authentication auth) {
+
+        String userEmail = auth.getName();
+        log.debug("Предпросмотр печати для {} продуктов компании {} пользователем {}",
+                dto.getProductIds().size(), companyOwnerId, userEmail);
+
+        return ResponseEntity.ok(printService.generatePreview(userEmail, companyOwnerId, dto, format, limit, dpi));
+    }
+
+    /**
+     * Повторная печать сохранённого задания: тот же файл и те же DataMatrix коды.
+     * Поддерживаются Range-запросы — прерванное скачивание можно докачать
+     */
+    @GetMapping("/print/{printJobId}")
+    public ResponseEntity<Resource> reprintLabels(
+            @PathVariable Long printJobId,
+            @RequestParam Long companyOwnerId,
+            Authentication auth) {
+
+        String userEmail = auth.getName();
+        log.info("Повторная печать задания {} компании {} пользователем {}", printJobId, companyOwnerId, userEmail);
+
+        PrintJobFileDto file = printService.getPrintJobFile(userEmail, companyOwnerId, printJobId);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(file.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .body(new FileSystemResource(file.getPath()));
+    }
+
+    /**
+     * Печать листа подбора.
+     * PDF пишется в ответ постранично; доступ и параметры проверяются до начала ответа,
+     * поэтому ошибки проверки возвращаются обычным JSON
      */
     @PostMapping("/pick-list")
-    public ResponseEntity<byte[]> printPickList(
+    public ResponseEntity<StreamingResponseBody> printPickList(
             @RequestParam Long companyOwnerId,
             @RequestBody PickListRequest dto,
             Authentication auth) {
 
         String userEmail = auth.getName();
         log.info("Печать листа подбора для {} продуктов компании {} пользователем {}",
-                dto.getProductIds().size(), companyOwnerId, userEmail);
+                dto.getProductIds() != null ? dto.getProductIds().size() : 0, companyOwnerId, userEmail);
 
-        byte[] pdf = printService.generatePickListPdf(userEmail, companyOwnerId, dto);
+        // Валидация и проверка доступа — до начала ответа, чтобы ошибки вернулись обычным JSON
+        printService.checkPickListRequest(userEmail, companyOwnerId, dto);
+        StreamingResponseBody body = out -> printService.writePickListPdf(userEmail, companyOwnerId, dto, out);
 
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_PDF)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"pick-list.pdf\"")
-                .body(pdf);
+                .body(body);
     }
 
     /**
-     * Экспорт этикеток (Excel, PDF или ZIP)
+     * Экспорт этикеток (Excel, PDF или ZIP).
+     * ZIP пишется в ответ потоково, по мере рендеринга этикеток.
      */
     @PostMapping("/export")
-    public ResponseEntity<byte[]> exportLabels(
+    public ResponseEntity<StreamingResponseBody> exportLabels(
             @RequestParam Long companyOwnerId,
             @RequestBody ExportRequest dto,
             Authentication auth) {
@@ -232,8 +283,6 @@ public class LabelController {
                 dto.getProductIds() != null ? dto.getProductIds().size() : 0,
                 companyOwnerId, userEmail, dto.getFormat());
 
-        byte[] file = exportService.exportLabels(userEmail, companyOwnerId, dto);
-
         String format = dto.getFormat() != null ? dto.getFormat().toUpperCase() : "EXCEL";
         String filename = switch (format) {
             case "PDF" -> "labels.pdf";
@@ -247,9 +296,64 @@ public class LabelController {
             default -> "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
         };
 
+        StreamingResponseBody body;
+        if ("ZIP".equals(format)) {
+            // Валидация и проверка доступа — до начала ответа, чтобы ошибки вернулись обычным JSON
+            ExportRequest resolved = exportService.resolveExportRequest(userEmail, companyOwnerId, dto);
+            body = out -> exportService.writeZipExport(userEmail, companyOwnerId, resolved, out);
+        } else {
+            byte[] file = exportService.exportLabels(userEmail, companyOwnerId, dto);
+            body = out -> out.write(file);
+        }
+
         return ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType(contentType))
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .body(file);
+                .body(body);
+    }
+
+    /**
+     * Фоновый экспорт: задание ставится в очередь, о готовности приходит уведомление
+     */
+    @PostMapping("/export/jobs")
+    public ResponseEntity<ExportJobDto> submitExportJob(
+            @RequestParam Long companyOwnerId,
+            @RequestBody ExportRequest dto,
+            Authentication auth) {
+
+        String userEmail = auth.getName();
+        log.info("Фоновый экспорт компании {} пользователем {} в формате {}", companyOwnerId, userEmail, dto.getFormat());
+
+        ExportJobDto job = exportJobService.submit(userEmail, companyOwnerId, dto);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    /**
+     * Состояние задания экспорта
+     */
+    @GetMapping("/export/jobs/{exportJobId}")
+    public ResponseEntity<ExportJobDto> getExportJob(
+            @PathVariable Long exportJobId,
+            @RequestParam Long companyOwnerId,
+            Authentication auth) {
+
+        return ResponseEntity.ok(exportJobService.getJob(auth.getName(), companyOwnerId, exportJobId));
+    }
+
+    /**
+     * Скачивание готового экспорта. Поддерживаются Range-запросы
+     */
+    @GetMapping("/export/jobs/{exportJobId}/download")
+    public ResponseEntity<Resource> downloadExportJob(
+            @PathVariable Long exportJobId,
+            @RequestParam Long companyOwnerId,
+            Authentication auth) {
+
+        ExportJobFileDto file = exportJobService.getJobFile(auth.getName(), companyOwnerId, exportJobId);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(file.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .body(new FileSystemResource(file.getPath()));
     }
 }
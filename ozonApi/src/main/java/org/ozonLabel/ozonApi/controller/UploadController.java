@@ -0,0 +1,145 @@
+package org.ozonLabel.ozonApi.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.ozonApi.service.FileStorageService;
+import org.ozonLabel.ozonApi.util.ConditionalRequests;
+import org.ozonLabel.ozonApi.util.FileBodyWriter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Раздача загруженных изображений.
+ * Файлы с именем-хэшем кэшируются навсегда (immutable), ETag строится из хэша содержимого,
+ * поддерживаются условные запросы, Range и предсжатые .gz варианты.
+ * Тело отдаётся через sendfile Tomcat или FileChannel.transferTo — без копирования в heap.
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class UploadController {
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String DEFAULT_CACHE_CONTROL = "public, max-age=86400";
+
+    private final FileStorageService fileStorageService;
+
+    @RequestMapping(value = "/uploads/{*path}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serveUpload(@PathVariable String path,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+
+        String storagePath = path.startsWith("/") ? path.substring(1) : path;
+        Optional<Path> resolved = fileStorageService.resolve(storagePath);
+        if (resolved.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Path file = resolved.get();
+        Optional<String> contentHash = fileStorageService.getContentHash(file);
+        MediaType mediaType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+
+        // Предсжатый вариант отдаём только если он есть на диске и клиент его принимает
+        Path body = file;
+        boolean gzipped = false;
+        Path gzFile = file.resolveSibling(file.getFileName() + ".gz");
+        if (ConditionalRequests.acceptsGzip(request) && Files.isRegularFile(gzFile)) {
+            body = gzFile;
+            gzipped = true;
+        }
+
+        long length = Files.size(body);
+        String etag = buildEtag(file, contentHash, gzipped);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                contentHash.isPresent() ? IMMUTABLE_CACHE_CONTROL : DEFAULT_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (ConditionalRequests.etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(mediaType.toString());
+        if (gzipped) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && isRangeApplicable(request.getHeader(HttpHeaders.IF_RANGE), etag)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Мультидиапазоны не поддерживаем — RFC 9110 позволяет ответить полным телом
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        try {
+            FileBodyWriter.write(body, start, count, request, response);
+        } catch (IOException e) {
+            // Клиент закрыл соединение — для раздачи статики это штатная ситуация
+            log.debug("Передача файла {} прервана: {}", storagePath, e.getMessage());
+        }
+    }
+
+    /**
+     * Сильный ETag: SHA-256 из имени файла, иначе размер и время изменения (как у nginx).
+     * Сжатый вариант — отдельное представление, поэтому ETag у него свой.
+     */
+    private String buildEtag(Path file, Optional<String> contentHash, boolean gzipped) throws IOException {
+        String tag = contentHash.orElseGet(() -> {
+            try {
+                return Long.toHexString(Files.size(file)) + "-"
+                        + Long.toHexString(Files.getLastModifiedTime(file).toMillis());
+            } catch (IOException e) {
+                return Long.toHexString(file.hashCode());
+            }
+        });
+        return "\"" + tag + (gzipped ? "-gz" : "") + "\"";
+    }
+
+    private boolean isRangeApplicable(String ifRange, String etag) {
+        // If-Range с датой не поддерживаем: без совпадения ETag отдаём полный файл
+        return ifRange == null || etag.equals(ifRange.trim());
+    }
+}
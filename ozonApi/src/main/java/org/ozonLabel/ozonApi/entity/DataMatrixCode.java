@@ -6,6 +6,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 
 @Entity
@@ -32,10 +35,17 @@ public class DataMatrixCode {
     @Column(name = "code", nullable = false, columnDefinition = "TEXT")
     private String code;
 
-    @Column(name = "gtin", length = 14)
+    /**
+     * MD5 кода: по нему (company_id, code_hash) проверяется уникальность и ищутся дубликаты
+     */
+    @Column(name = "code_hash", nullable = false, updatable = false, columnDefinition = "BYTEA")
+    private byte[] codeHash;
+
+    @Convert(converter = GtinConverter.class)
+    @Column(name = "gtin")
     private String gtin;
 
-    @Column(name = "serial", length = 50)
+    @Column(name = "serial", length = 20)
     private String serial;
 
     @Column(name = "is_used", nullable = false)
@@ -58,5 +68,19 @@ public class DataMatrixCode {
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        if (codeHash == null) {
+            codeHash = hashOf(code);
+        }
+    }
+
+    /**
+     * Хэш кода для поиска по индексу (совпадает с decode(md5(code), 'hex') в БД)
+     */
+    public static byte[] hashOf(String code) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(code.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 недоступен", e);
+        }
     }
 }
@@ -41,8 +41,17 @@ public class DataMatrixFile {
     @Column(name = "duplicate_count")
     private Integer duplicateCount;
 
-    @Column(name = "original_content", columnDefinition = "TEXT")
-    private String originalContent;
+    /**
+     * Сжатый оригинал файла в закрытом хранилище (FileStorageService.storePrivateGzipped)
+     */
+    @Column(name = "content_path", length = 500)
+    private String contentPath;
+
+    @Column(name = "content_size")
+    private Long contentSize;
+
+    @Column(name = "content_sha256", length = 64)
+    private String contentSha256;
 
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,21 @@
+package org.ozonLabel.ozonApi.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * GTIN хранится в БД числом (BIGINT), в приложении — строкой из 14 цифр с ведущими нулями
+ */
+@Converter
+public class GtinConverter implements AttributeConverter<String, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(String gtin) {
+        return gtin == null ? null : Long.parseLong(gtin);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Long gtin) {
+        return gtin == null ? null : String.format("%014d", gtin);
+    }
+}
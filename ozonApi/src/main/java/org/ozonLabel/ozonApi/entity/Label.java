@@ -48,6 +48,9 @@ public class Label {
     @Column(columnDefinition = "jsonb", nullable = false)
     private String config;
 
+    @Column(name = "preview_url", columnDefinition = "TEXT")
+    private String previewUrl;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -63,5 +66,7 @@ public class Label {
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        // Миниатюра нарисована по прежней версии — новая появится после перерисовки
+        previewUrl = null;
     }
 }
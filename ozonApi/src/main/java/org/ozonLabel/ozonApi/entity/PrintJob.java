@@ -0,0 +1,56 @@
+package org.ozonLabel.ozonApi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "print_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrintJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "output_format", nullable = false, length = 10)
+    private String outputFormat;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "request", columnDefinition = "jsonb", nullable = false)
+    private String request;
+
+    @Column(name = "total_labels", nullable = false)
+    @Builder.Default
+    private Integer totalLabels = 0;
+
+    @Column(name = "codes_used", nullable = false)
+    @Builder.Default
+    private Integer codesUsed = 0;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
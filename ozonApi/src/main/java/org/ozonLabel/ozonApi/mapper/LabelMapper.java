@@ -39,6 +39,7 @@ public class LabelMapper {
                 .height(label.getHeight())
                 .unit(label.getUnit())
                 .config(config)
+                .previewUrl(label.getPreviewUrl())
                 .createdAt(label.getCreatedAt())
                 .updatedAt(label.getUpdatedAt())
                 .build();
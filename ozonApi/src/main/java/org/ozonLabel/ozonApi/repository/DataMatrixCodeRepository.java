@@ -26,22 +26,32 @@ public interface DataMatrixCodeRepository extends JpaRepository<DataMatrixCode,
     Page<DataMatrixCode> findByCompanyIdAndProductId(Long companyId, Long productId, Pageable pageable);
     
     /**
-     * Найти следующий неиспользованный код для продукта
-     */
-    @Query("SELECT d FROM DataMatrixCode d WHERE d.productId = :productId AND d.isUsed = false ORDER BY d.id ASC")
-    Optional<DataMatrixCode> findFirstUnusedByProductId(@Param("productId") Long productId);
-
-    /**
-     * Найти следующий неиспользованный код из конкретного файла
-     */
-    @Query("SELECT d FROM DataMatrixCode d WHERE d.fileId = :fileId AND d.isUsed = false ORDER BY d.id ASC")
-    Optional<DataMatrixCode> findFirstUnusedByFileId(@Param("fileId") Long fileId);
+     * Заблокировать следующий неиспользованный код продукта компании.
+     * Строка блокируется до конца транзакции; коды, заблокированные параллельной печатью,
+     * пропускаются — две печати не получат один и тот же код
+     */
+    @Query(value = """
+        SELECT * FROM datamatrix_codes
+        WHERE company_id = :companyId AND product_id = :productId AND is_used = false
+        ORDER BY id
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    Optional<DataMatrixCode> lockNextUnusedByProductId(@Param("companyId") Long companyId,
+                                                       @Param("productId") Long productId);
 
     /**
-     * Найти следующий неиспользованный код из конкретного файла для компании
-     */
-    @Query("SELECT d FROM DataMatrixCode d WHERE d.fileId = :fileId AND d.companyId = :companyId AND d.isUsed = false ORDER BY d.id ASC")
-    Optional<DataMatrixCode> findFirstUnusedByFileIdAndCompanyId(@Param("fileId") Long fileId, @Param("companyId") Long companyId);
+     * Заблокировать следующий неиспользованный код из файла компании (как {@link #lockNextUnusedByProductId})
+     */
+    @Query(value = """
+        SELECT * FROM datamatrix_codes
+        WHERE company_id = :companyId AND file_id = :fileId AND is_used = false
+        ORDER BY id
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    Optional<DataMatrixCode> lockNextUnusedByFileId(@Param("companyId") Long companyId,
+                                                    @Param("fileId") Long fileId);
     
     /**
      * Посчитать количество неиспользованных кодов для продукта
@@ -74,14 +84,13 @@ public interface DataMatrixCodeRepository extends JpaRepository<DataMatrixCode,
     long countByFileIdAndIsUsedTrue(Long fileId);
     
     /**
-     * Проверить существование кода для компании
-     */
-    boolean existsByCompanyIdAndCode(Long companyId, String code);
-    
-    /**
-     * Найти код по значению для компании
+     * Найти код по значению для компании: поиск по индексу (company_id, code_hash),
+     * сравнение самого кода отсекает коллизии хэша
      */
-    Optional<DataMatrixCode> findByCompanyIdAndCode(Long companyId, String code);
+    @Query("SELECT d FROM DataMatrixCode d WHERE d.companyId = :companyId AND d.codeHash = :codeHash AND d.code = :code")
+    Optional<DataMatrixCode> findByCompanyIdAndCode(@Param("companyId") Long companyId,
+                                                   @Param("codeHash") byte[] codeHash,
+                                                   @Param("code") String code);
     
     /**
      * Найти все коды для списка продуктов
@@ -109,16 +118,16 @@ public interface DataMatrixCodeRepository extends JpaRepository<DataMatrixCode,
      * Найти все дубликаты, у которых код встречается только 1 раз в пуле компании
      * (для пересчёта после удаления файла)
      */
-    @Query("SELECT d.code FROM DataMatrixCode d WHERE d.companyId = :companyId AND d.isDuplicate = true " +
-           "GROUP BY d.code HAVING COUNT(d.id) = 1")
-    List<String> findOrphanDuplicateCodes(@Param("companyId") Long companyId);
+    @Query("SELECT d.codeHash FROM DataMatrixCode d WHERE d.companyId = :companyId AND d.isDuplicate = true " +
+           "GROUP BY d.codeHash HAVING COUNT(d.id) = 1")
+    List<byte[]> findOrphanDuplicateHashes(@Param("companyId") Long companyId);
 
     /**
-     * Снять флаг дубликата с кодов
+     * Снять флаг дубликата с кодов по их хэшам
      */
     @Modifying
-    @Query("UPDATE DataMatrixCode d SET d.isDuplicate = false WHERE d.companyId = :companyId AND d.code IN :codes")
-    void clearDuplicateFlag(@Param("companyId") Long companyId, @Param("codes") List<String> codes);
+    @Query("UPDATE DataMatrixCode d SET d.isDuplicate = false WHERE d.companyId = :companyId AND d.codeHash IN :codeHashes")
+    void clearDuplicateFlag(@Param("companyId") Long companyId, @Param("codeHashes") List<byte[]> codeHashes);
     
     /**
      * Получить статистику DataMatrix кодов по productId
@@ -2,6 +2,7 @@ package org.ozonLabel.ozonApi.repository;
 
 import org.ozonLabel.ozonApi.entity.DataMatrixFile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,13 +14,46 @@ import java.util.List;
 public interface DataMatrixFileRepository extends JpaRepository<DataMatrixFile, Long> {
 
     /**
-     * Найти все файлы для компании и продукта, отсортированные по дате загрузки (убывание)
+     * История файлов для компании и продукта, по дате загрузки (убывание): только метаданные
      */
-    List<DataMatrixFile> findByCompanyIdAndProductIdOrderByUploadedAtDesc(Long companyId, Long productId);
+    @Query("SELECT f.id AS id, f.fileName AS fileName, f.uploadedAt AS uploadedAt, " +
+           "f.totalCodes AS totalCodes, f.duplicateCount AS duplicateCount " +
+           "FROM DataMatrixFile f WHERE f.companyId = :companyId AND f.productId = :productId " +
+           "ORDER BY f.uploadedAt DESC")
+    List<FileSummary> findSummaries(@Param("companyId") Long companyId, @Param("productId") Long productId);
 
     /**
      * Найти старые файлы (старше 1 года) для компании
      */
     @Query("SELECT f FROM DataMatrixFile f WHERE f.companyId = :companyId AND f.uploadedAt < :cutoff")
     List<DataMatrixFile> findOldFiles(@Param("companyId") Long companyId, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Содержимое файла, загруженного до переноса оригиналов на диск
+     */
+    @Query(value = "SELECT original_content FROM datamatrix_files WHERE id = :id", nativeQuery = true)
+    String findLegacyContent(@Param("id") Long id);
+
+    /**
+     * Записать перенесённый на диск оригинал и освободить original_content
+     */
+    @Modifying
+    @Query(value = "UPDATE datamatrix_files SET content_path = :path, content_size = :size, " +
+                   "content_sha256 = :sha256, original_content = NULL WHERE id = :id", nativeQuery = true)
+    void moveLegacyContent(@Param("id") Long id,
+                           @Param("path") String path,
+                           @Param("size") long size,
+                           @Param("sha256") String sha256);
+
+    interface FileSummary {
+        Long getId();
+
+        String getFileName();
+
+        LocalDateTime getUploadedAt();
+
+        Integer getTotalCodes();
+
+        Integer getDuplicateCount();
+    }
 }
@@ -0,0 +1,77 @@
+package org.ozonLabel.ozonApi.repository;
+
+import org.ozonLabel.ozonApi.entity.ExportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ExportJobRepository extends JpaRepository<ExportJob, Long> {
+
+    /**
+     * Найти задание экспорта компании
+     */
+    Optional<ExportJob> findByIdAndCompanyId(Long id, Long companyId);
+
+    /**
+     * Количество заданий компании в указанных статусах
+     */
+    long countByCompanyIdAndStatusIn(Long companyId, Collection<String> statuses);
+
+    /**
+     * ID просроченных завершённых заданий. Незавершённые не удаляются, пока их держит экземпляр:
+     * потерянные сначала помечаются FAILED по heartbeat и получают новый срок хранения
+     */
+    @Query("SELECT j.id FROM ExportJob j WHERE j.expiresAt < :now AND j.status IN ('DONE', 'FAILED')")
+    List<Long> findExpiredIds(@Param("now") LocalDateTime now);
+
+    /**
+     * Перевести задание в статус выполнения
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob j SET j.status = 'RUNNING', j.startedAt = :now, j.heartbeatAt = :now WHERE j.id = :id")
+    void markRunning(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Завершить задание: статус, размер файла или ошибка, новый срок хранения
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob j SET j.status = :status, j.fileSize = :fileSize, j.error = :error, " +
+            "j.finishedAt = :now, j.expiresAt = :expiresAt WHERE j.id = :id")
+    void markFinished(@Param("id") Long id,
+                      @Param("status") String status,
+                      @Param("fileSize") Long fileSize,
+                      @Param("error") String error,
+                      @Param("now") LocalDateTime now,
+                      @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Обновить heartbeat незавершённых заданий, которые держит этот экземпляр
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob j SET j.heartbeatAt = :now WHERE j.id IN :ids AND j.status IN ('QUEUED', 'RUNNING')")
+    int touch(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Незавершённые задания остановленных экземпляров: heartbeat не обновлялся с момента before
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob j SET j.status = 'FAILED', j.error = :error, j.finishedAt = :now, j.expiresAt = :expiresAt " +
+            "WHERE j.status IN ('QUEUED', 'RUNNING') AND COALESCE(j.heartbeatAt, j.createdAt) < :before")
+    int failAbandoned(@Param("before") LocalDateTime before,
+                      @Param("error") String error,
+                      @Param("now") LocalDateTime now,
+                      @Param("expiresAt") LocalDateTime expiresAt);
+}
@@ -4,10 +4,13 @@ import org.ozonLabel.ozonApi.entity.Label;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -32,4 +35,14 @@ public interface LabelRepository extends JpaRepository<Label, Long> {
      */
     @Query("SELECT l.productId FROM Label l WHERE l.companyId = :companyId AND l.productId IN :productIds")
     List<Long> findProductIdsWithLabels(@Param("companyId") Long companyId, @Param("productIds") List<Long> productIds);
+
+    /**
+     * Записать миниатюру, если этикетка не менялась с момента её рендеринга
+     * @return 1 если записано, 0 если этикетка уже изменилась или удалена
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Label l SET l.previewUrl = :previewUrl WHERE l.id = :id AND l.updatedAt = :version")
+    int updatePreviewUrl(@Param("id") Long id, @Param("version") LocalDateTime version,
+                         @Param("previewUrl") String previewUrl);
 }
@@ -2,10 +2,13 @@ package org.ozonLabel.ozonApi.repository;
 
 import org.ozonLabel.ozonApi.entity.LabelTemplate;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -37,4 +40,16 @@ public interface LabelTemplateRepository extends JpaRepository<LabelTemplate, Lo
      */
     @Query("SELECT t FROM LabelTemplate t WHERE t.id = :id AND (t.companyId = :companyId OR t.isSystem = true)")
     LabelTemplate findByIdAndCompanyIdOrSystem(@Param("id") Long id, @Param("companyId") Long companyId);
+
+    /**
+     * Записать миниатюру, если шаблон не менялся с момента её рендеринга.
+     * У системных шаблонов из миграции updated_at пустой, версией служит created_at
+     * @return 1 если записано, 0 если шаблон уже изменился или удалён
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE LabelTemplate t SET t.previewUrl = :previewUrl " +
+           "WHERE t.id = :id AND COALESCE(t.updatedAt, t.createdAt) = :version")
+    int updatePreviewUrl(@Param("id") Long id, @Param("version") LocalDateTime version,
+                         @Param("previewUrl") String previewUrl);
 }
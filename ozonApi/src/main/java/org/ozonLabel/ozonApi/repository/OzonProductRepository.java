@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +21,8 @@ public interface OzonProductRepository extends JpaRepository<OzonProduct, Long>
     Optional<OzonProduct> findByUserIdAndProductId(Long userId, Long productId);
     List<OzonProduct> findByUserId(Long userId);
 
+    List<OzonProduct> findByUserIdAndProductIdIn(Long userId, Collection<Long> productIds);
+
     @Query("SELECT p FROM OzonProduct p WHERE p.userId = :userId ORDER BY p.updatedAt DESC")
     List<OzonProduct> findByUserIdOrderByUpdatedAtDesc(@Param("userId") Long userId);
 
@@ -82,6 +85,21 @@ public interface OzonProductRepository extends JpaRepository<OzonProduct, Long>
 
     Long countByUserIdAndFolderIdIsNull(Long userId);
 
+    /**
+     * Строки листа подбора: только нужные поля товаров, первый штрихкод и фото, имя папки
+     */
+    @Query(value = """
+        SELECT p.product_id AS productId, p.name AS name, p.offer_id AS offerId,
+               CASE WHEN jsonb_typeof(p.barcodes) = 'array' THEN p.barcodes ->> 0 END AS barcode,
+               CASE WHEN jsonb_typeof(p.images) = 'array' THEN p.images ->> 0 END AS imageUrl,
+               p.print_quantity AS printQuantity, f.name AS folderName
+        FROM ozon_products p
+        LEFT JOIN product_folders f ON f.id = p.folder_id
+        WHERE p.user_id = :userId AND p.product_id IN (:productIds)
+        """, nativeQuery = true)
+    List<PickListRow> findPickListRows(@Param("userId") Long userId,
+                                       @Param("productIds") Collection<Long> productIds);
+
     // Поиск товара по штрихкоду (JSONB поиск в barcodes)
     @Query(value = """
         SELECT * FROM ozon_products p
@@ -150,4 +168,23 @@ public interface OzonProductRepository extends JpaRepository<OzonProduct, Long>
                                                   Pageable pageable);
 
     Page<OzonProduct> findByUserIdAndSize(Long userId, String size, Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Строка листа подбора
+     */
+    interface PickListRow {
+        Long getProductId();
+
+        String getName();
+
+        String getOfferId();
+
+        String getBarcode();
+
+        String getImageUrl();
+
+        Integer getPrintQuantity();
+
+        String getFolderName();
+    }
+}
@@ -0,0 +1,27 @@
+package org.ozonLabel.ozonApi.repository;
+
+import org.ozonLabel.ozonApi.entity.PrintJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface PrintJobRepository extends JpaRepository<PrintJob, Long> {
+
+    /**
+     * Найти задание печати компании
+     */
+    Optional<PrintJob> findByIdAndCompanyId(Long id, Long companyId);
+
+    /**
+     * Продлить срок хранения файла задания
+     */
+    @Modifying
+    @Query("UPDATE PrintJob j SET j.expiresAt = :expiresAt WHERE j.id = :id")
+    void updateExpiresAt(@Param("id") Long id, @Param("expiresAt") LocalDateTime expiresAt);
+}
@@ -22,4 +22,6 @@ public interface UserImageRepository extends JpaRepository<UserImage, Long> {
     long sumSizeBytesByCompanyIdAndUserId(@Param("companyId") Long companyId, @Param("userId") Long userId);
 
     long countByCompanyIdAndUserId(Long companyId, Long userId);
+
+    long countByStoragePath(String storagePath);
 }
@@ -13,10 +13,13 @@ import org.ozonLabel.ozonApi.entity.DataMatrixCode;
 import org.ozonLabel.ozonApi.entity.DataMatrixFile;
 import org.ozonLabel.ozonApi.repository.DataMatrixCodeRepository;
 import org.ozonLabel.ozonApi.repository.DataMatrixFileRepository;
+import org.ozonLabel.ozonApi.util.Gs1ElementParser;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.google.zxing.*;
@@ -27,9 +30,11 @@ import javax.imageio.ImageIO;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -40,10 +45,11 @@ public class DataMatrixServiceImpl implements DataMatrixService {
     private final DataMatrixCodeRepository dataMatrixCodeRepository;
     private final CompanyService companyService;
     private final DataMatrixFileRepository dataMatrixFileRepository;
+    private final FileStorageService fileStorageService;
 
-    // ASCII коды для GS1
-    private static final char FNC1 = (char) 232;  // FNC1 для DataMatrix
-    private static final char GS = (char) 29;     // Group Separator
+    // Буфер разбора для parseGS1Code: результат разбора переиспользуется, строки создаются только для ответа
+    private static final ThreadLocal<Gs1ElementParser.Elements> PARSE_BUFFER =
+            ThreadLocal.withInitial(Gs1ElementParser.Elements::new);
 
     @Override
     @Transactional
@@ -78,17 +84,9 @@ public class DataMatrixServiceImpl implements DataMatrixService {
         int total = allCodes.size();
         int duplicates = 0;
         int newCodesCount = 0;
+        int invalid = 0;
         List<String> uploadedCodes = new ArrayList<>();
         List<String> duplicateSourceFiles = new ArrayList<>();
-        
-        // Сохраняем originalContent - все коды из файла (до фильтрации)
-        StringBuilder originalContentBuilder = new StringBuilder();
-        for (String code : allCodes) {
-            if (!code.trim().isEmpty()) {
-                originalContentBuilder.append(code.trim()).append("\n");
-            }
-        }
-        String originalContent = originalContentBuilder.toString();
 
         // Удаляем файлы старше 1 года
         LocalDateTime oneYearAgo = LocalDateTime.now().minusYears(1);
@@ -98,6 +96,10 @@ public class DataMatrixServiceImpl implements DataMatrixService {
             for (Long oldFileId : oldFileIds) {
                 dataMatrixCodeRepository.deleteAllByFileId(oldFileId);
             }
+            oldFiles.stream()
+                    .map(DataMatrixFile::getContentPath)
+                    .filter(Objects::nonNull)
+                    .forEach(this::deleteContentAfterCommit);
             dataMatrixFileRepository.deleteAll(oldFiles);
             log.info("Удалено {} старых файлов (>1 года) для компании {}", oldFiles.size(), companyOwnerId);
         }
@@ -111,54 +113,78 @@ public class DataMatrixServiceImpl implements DataMatrixService {
                 .uploadedAt(LocalDateTime.now())
                 .totalCodes(total)
                 .duplicateCount(0) // посчитаем позже
-                .originalContent(originalContent)
                 .build();
         dataMatrixFile = dataMatrixFileRepository.save(dataMatrixFile);
         Long fileId = dataMatrixFile.getId();
 
+        // Оригинал - все коды из файла (до фильтрации) - пишется сжатым в закрытое хранилище
+        FileStorageService.StoredFile content = fileStorageService.storePrivateGzipped(
+                contentDirectory(companyOwnerId), "file-" + fileId + ".csv", out -> {
+                    for (String code : allCodes) {
+                        String trimmed = code.trim();
+                        if (!trimmed.isEmpty()) {
+                            out.write(trimmed.getBytes(StandardCharsets.UTF_8));
+                            out.write('\n');
+                        }
+                    }
+                });
+        deleteContentOnRollback(content.path());
+        dataMatrixFile.setContentPath(content.path());
+        dataMatrixFile.setContentSize(content.size());
+        dataMatrixFile.setContentSha256(content.sha256());
+
+        Gs1ElementParser.Elements parsed = new Gs1ElementParser.Elements();
         for (String code : allCodes) {
             String trimmedCode = code.trim();
             if (trimmedCode.isEmpty()) {
                 continue;
             }
 
-            // Проверка на дубликат
-            if (checkDuplicates && dataMatrixCodeRepository.existsByCompanyIdAndCode(companyOwnerId, trimmedCode)) {
+            // Некорректные коды отбрасываются до обращений к базе
+            if (!isMarkingCode(trimmedCode, parsed)) {
+                invalid++;
+                if (invalid <= 10) {
+                    log.debug("Отклонён код маркировки: {}", parsed.error() != null ? parsed.error() : "нет GTIN или серийного номера");
+                }
+                continue;
+            }
+
+            // Проверка на дубликат: один запрос по индексу хэша
+            byte[] codeHash = DataMatrixCode.hashOf(trimmedCode);
+            Optional<DataMatrixCode> existingOpt = checkDuplicates
+                    ? dataMatrixCodeRepository.findByCompanyIdAndCode(companyOwnerId, codeHash, trimmedCode)
+                    : Optional.empty();
+            if (existingOpt.isPresent()) {
                 duplicates++;
 
                 // Помечаем как дубликат и собираем имена файлов-источников
-                Optional<DataMatrixCode> existingOpt = dataMatrixCodeRepository.findByCompanyIdAndCode(companyOwnerId, trimmedCode);
-                if (existingOpt.isPresent()) {
-                    DataMatrixCode existing = existingOpt.get();
-                    if (!existing.getIsDuplicate()) {
-                        existing.setIsDuplicate(true);
-                        dataMatrixCodeRepository.save(existing);
-                    }
-                    // Находим файл-источник дубликата
-                    if (existing.getFileId() != null) {
-                        Optional<DataMatrixFile> sourceFileOpt = dataMatrixFileRepository.findById(existing.getFileId());
-                        if (sourceFileOpt.isPresent()) {
-                            String sourceFileName = sourceFileOpt.get().getFileName();
-                            if (!duplicateSourceFiles.contains(sourceFileName)) {
-                                duplicateSourceFiles.add(sourceFileName);
-                            }
+                DataMatrixCode existing = existingOpt.get();
+                if (!existing.getIsDuplicate()) {
+                    existing.setIsDuplicate(true);
+                    dataMatrixCodeRepository.save(existing);
+                }
+                // Находим файл-источник дубликата
+                if (existing.getFileId() != null) {
+                    Optional<DataMatrixFile> sourceFileOpt = dataMatrixFileRepository.findById(existing.getFileId());
+                    if (sourceFileOpt.isPresent()) {
+                        String sourceFileName = sourceFileOpt.get().getFileName();
+                        if (!duplicateSourceFiles.contains(sourceFileName)) {
+                            duplicateSourceFiles.add(sourceFileName);
                         }
                     }
                 }
                 continue;
             }
 
-            // Парсинг GS1 кода
-            GS1DataMatrixResult parsed = parseGS1Code(trimmedCode);
-
             // Сохранение нового кода с fileId
             DataMatrixCode dataMatrixCode = DataMatrixCode.builder()
                     .userId(companyOwnerId)
                     .companyId(companyOwnerId)
                     .productId(productId)
                     .code(trimmedCode)
-                    .gtin(parsed.gtin())
-                    .serial(parsed.serial())
+                    .codeHash(codeHash)
+                    .gtin(parsed.value(Gs1ElementParser.AI_GTIN))
+                    .serial(parsed.value(Gs1ElementParser.AI_SERIAL))
                     .isUsed(false)
                     .isDuplicate(false)
                     .fileId(fileId)
@@ -173,13 +199,14 @@ public class DataMatrixServiceImpl implements DataMatrixService {
         dataMatrixFile.setDuplicateCount(duplicates);
         dataMatrixFileRepository.save(dataMatrixFile);
 
-        log.info("Загружено кодов: всего={}, новых={}, дубликатов={} для productId={}, fileId={}",
-                total, newCodesCount, duplicates, productId, fileId);
+        log.info("Загружено кодов: всего={}, новых={}, дубликатов={}, некорректных={} для productId={}, fileId={}",
+                total, newCodesCount, duplicates, invalid, productId, fileId);
 
         return DataMatrixUploadResponse.builder()
                 .total(total)
                 .newCodes(newCodesCount)
                 .duplicates(duplicates)
+                .invalid(invalid)
                 .codes(uploadedCodes)
                 .duplicateSourceFiles(duplicateSourceFiles)
                 .uploadedFileId(fileId)
@@ -247,8 +274,8 @@ public class DataMatrixServiceImpl implements DataMatrixService {
             Long companyOwnerId,
             Long productId) {
 
-        // Находим следующий неиспользованный код
-        Optional<DataMatrixCode> codeOpt = dataMatrixCodeRepository.findFirstUnusedByProductId(productId);
+        // Находим и блокируем следующий неиспользованный код компании
+        Optional<DataMatrixCode> codeOpt = dataMatrixCodeRepository.lockNextUnusedByProductId(companyOwnerId, productId);
 
         if (codeOpt.isEmpty()) {
             return Optional.empty();
@@ -256,11 +283,6 @@ public class DataMatrixServiceImpl implements DataMatrixService {
 
         DataMatrixCode code = codeOpt.get();
 
-        // Проверяем принадлежность компании
-        if (!code.getCompanyId().equals(companyOwnerId)) {
-            throw new ValidationException("Код не принадлежит этой компании");
-        }
-
         // Помечаем как использованный
         code.setIsUsed(true);
         code.setUsedAt(java.time.LocalDateTime.now());
@@ -276,8 +298,8 @@ public class DataMatrixServiceImpl implements DataMatrixService {
             Long companyOwnerId,
             Long fileId) {
 
-        // Находим следующий неиспользованный код из файла
-        Optional<DataMatrixCode> codeOpt = dataMatrixCodeRepository.findFirstUnusedByFileIdAndCompanyId(fileId, companyOwnerId);
+        // Находим и блокируем следующий неиспользованный код из файла
+        Optional<DataMatrixCode> codeOpt = dataMatrixCodeRepository.lockNextUnusedByFileId(companyOwnerId, fileId);
 
         if (codeOpt.isEmpty()) {
             return Optional.empty();
@@ -295,6 +317,32 @@ public class DataMatrixServiceImpl implements DataMatrixService {
         return Optional.of(code.getCode());
     }
 
+    @Override
+    @Transactional
+    public Optional<DataMatrixCodeDto> reserveNextCode(
+            String userEmail,
+            Long companyOwnerId,
+            Long productId,
+            Long fileId) {
+
+        Optional<DataMatrixCode> codeOpt = fileId != null
+                ? dataMatrixCodeRepository.lockNextUnusedByFileId(companyOwnerId, fileId)
+                : dataMatrixCodeRepository.lockNextUnusedByProductId(companyOwnerId, productId);
+
+        if (codeOpt.isEmpty()) {
+            return Optional.empty();
+        }
+
+        DataMatrixCode code = codeOpt.get();
+
+        // Помечаем как использованный
+        code.setIsUsed(true);
+        code.setUsedAt(java.time.LocalDateTime.now());
+        dataMatrixCodeRepository.save(code);
+
+        return Optional.of(mapToDto(code));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public DataMatrixStatsDto getStatsForFile(
@@ -325,57 +373,23 @@ public class DataMatrixServiceImpl implements DataMatrixService {
 
     @Override
     public GS1DataMatrixResult parseGS1Code(String rawCode) {
-        // GS1 DataMatrix формат:
-        // FNC1 + AI(01) + GTIN(14) + AI(21) + Serial + GS + AI(93) + Verification
-        
-        String gtin = null;
-        String serial = null;
-        String verificationKey = null;
-        
-        // Удаляем FNC1 в начале если есть
-        String code = rawCode;
-        if (code.startsWith(String.valueOf(FNC1))) {
-            code = code.substring(1);
-        }
-        
-        // Парсим AI (Application Identifiers)
-        // AI(01) = 01 + 14 цифр GTIN
-        // AI(21) = 21 + серийный номер (переменная длина)
-        // GS (разделитель)
-        // AI(93) = 93 + ключ проверки
-        
-        int pos = 0;
-        while (pos < code.length()) {
-            if (pos + 2 > code.length()) break;
-            
-            String ai = code.substring(pos, pos + 2);
-            
-            if ("01".equals(ai) && pos + 16 <= code.length()) {
-                // GTIN: 14 цифр после AI(01)
-                gtin = code.substring(pos + 2, pos + 16);
-                pos += 16;
-            } else if ("21".equals(ai)) {
-                // Serial: переменная длина до GS или конца
-                pos += 2;
-                int gsIndex = code.indexOf(GS, pos);
-                if (gsIndex != -1) {
-                    serial = code.substring(pos, gsIndex);
-                    pos = gsIndex + 1;
-                } else {
-                    serial = code.substring(pos);
-                    break;
-                }
-            } else if ("93".equals(ai)) {
-                // Verification key
-                pos += 2;
-                verificationKey = code.substring(pos);
-                break;
-            } else {
-                pos++;
-            }
+        Gs1ElementParser.Elements elements = PARSE_BUFFER.get();
+        if (!Gs1ElementParser.parse(rawCode, elements)) {
+            throw new ValidationException("Некорректный код маркировки: " + elements.error());
         }
-        
-        return new GS1DataMatrixResult(gtin, serial, verificationKey);
+        return new GS1DataMatrixResult(
+                elements.value(Gs1ElementParser.AI_GTIN),
+                elements.value(Gs1ElementParser.AI_SERIAL),
+                elements.value(Gs1ElementParser.AI_VERIFICATION_KEY));
+    }
+
+    /**
+     * Код маркировки пригоден для загрузки: корректная строка GS1 с GTIN и серийным номером
+     */
+    private static boolean isMarkingCode(String code, Gs1ElementParser.Elements elements) {
+        return Gs1ElementParser.parse(code, elements)
+                && elements.has(Gs1ElementParser.AI_GTIN)
+                && elements.has(Gs1ElementParser.AI_SERIAL);
     }
 
     /**
@@ -467,16 +481,14 @@ public class DataMatrixServiceImpl implements DataMatrixService {
 
         companyService.checkAccess(userEmail, companyOwnerId);
 
-        List<DataMatrixFile> files = dataMatrixFileRepository.findByCompanyIdAndProductIdOrderByUploadedAtDesc(companyOwnerId, productId);
-
-        return files.stream()
+        return dataMatrixFileRepository.findSummaries(companyOwnerId, productId).stream()
                 .map(this::mapToFileDto)
                 .toList();
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public byte[] downloadFileAsCSV(
+    @Transactional
+    public DataMatrixFileContentDto getFileContent(
             String userEmail,
             Long companyOwnerId,
             Long fileId) {
@@ -490,11 +502,35 @@ public class DataMatrixServiceImpl implements DataMatrixService {
             throw new ValidationException("Доступ запрещён");
         }
 
-        if (file.getOriginalContent() == null) {
-            throw new ValidationException("Содержимое файла недоступно");
+        String contentPath = file.getContentPath();
+        Long size = file.getContentSize();
+        String sha256 = file.getContentSha256();
+        if (contentPath == null) {
+            // Файл загружен до переноса оригиналов на диск: переносим при первом скачивании
+            String legacyContent = dataMatrixFileRepository.findLegacyContent(fileId);
+            if (legacyContent == null) {
+                throw new ValidationException("Содержимое файла недоступно");
+            }
+            FileStorageService.StoredFile stored = fileStorageService.storePrivateGzipped(
+                    contentDirectory(companyOwnerId), "file-" + fileId + ".csv",
+                    out -> out.write(legacyContent.getBytes(StandardCharsets.UTF_8)));
+            deleteContentOnRollback(stored.path());
+            dataMatrixFileRepository.moveLegacyContent(fileId, stored.path(), stored.size(), stored.sha256());
+            log.info("Оригинал файла {} перенесён в хранилище: {}", fileId, stored.path());
+            contentPath = stored.path();
+            size = stored.size();
+            sha256 = stored.sha256();
         }
 
-        return file.getOriginalContent().getBytes(StandardCharsets.UTF_8);
+        Path path = fileStorageService.resolvePrivate(contentPath)
+                .orElseThrow(() -> new ValidationException("Содержимое файла недоступно"));
+
+        return DataMatrixFileContentDto.builder()
+                .path(path)
+                .fileName(file.getFileName())
+                .size(size)
+                .sha256(sha256)
+                .build();
     }
 
     @Override
@@ -551,15 +587,18 @@ public class DataMatrixServiceImpl implements DataMatrixService {
 
         // Пересчитываем дубликаты: находим коды, у которых isDuplicate=true,
         // но теперь в пуле осталась только 1 запись с таким значением
-        List<String> orphanDuplicateCodes = dataMatrixCodeRepository.findOrphanDuplicateCodes(companyOwnerId);
-        int resolvedDuplicates = orphanDuplicateCodes.size();
+        List<byte[]> orphanDuplicateHashes = dataMatrixCodeRepository.findOrphanDuplicateHashes(companyOwnerId);
+        int resolvedDuplicates = orphanDuplicateHashes.size();
 
-        if (!orphanDuplicateCodes.isEmpty()) {
-            dataMatrixCodeRepository.clearDuplicateFlag(companyOwnerId, orphanDuplicateCodes);
+        if (!orphanDuplicateHashes.isEmpty()) {
+            dataMatrixCodeRepository.clearDuplicateFlag(companyOwnerId, orphanDuplicateHashes);
         }
 
         // Удаляем файл
         dataMatrixFileRepository.delete(file);
+        if (file.getContentPath() != null) {
+            deleteContentAfterCommit(file.getContentPath());
+        }
 
         log.info("Удалён файл {} с {} кодами, снято {} дубликатов пользователем {}",
                 fileId, deletedCodes, resolvedDuplicates, userEmail);
@@ -571,7 +610,43 @@ public class DataMatrixServiceImpl implements DataMatrixService {
                 .build();
     }
 
-    private DataMatrixFileDto mapToFileDto(DataMatrixFile file) {
+    private static String contentDirectory(Long companyOwnerId) {
+        return "company_" + companyOwnerId + "/datamatrix";
+    }
+
+    /**
+     * Оригинал удаляется с диска только после коммита: при откате строка файла остаётся на месте
+     */
+    private void deleteContentAfterCommit(String contentPath) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fileStorageService.deletePrivate(contentPath);
+                }
+            });
+        } else {
+            fileStorageService.deletePrivate(contentPath);
+        }
+    }
+
+    /**
+     * Записанный оригинал не должен остаться на диске без строки файла
+     */
+    private void deleteContentOnRollback(String contentPath) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        fileStorageService.deletePrivate(contentPath);
+                    }
+                }
+            });
+        }
+    }
+
+    private DataMatrixFileDto mapToFileDto(DataMatrixFileRepository.FileSummary file) {
         return DataMatrixFileDto.builder()
                 .id(file.getId())
                 .fileName(file.getFileName())
@@ -0,0 +1,472 @@
+package org.ozonLabel.ozonApi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.dto.label.ExportJobDto;
+import org.ozonLabel.common.dto.label.ExportJobFileDto;
+import org.ozonLabel.common.dto.label.ExportRequest;
+import org.ozonLabel.common.dto.user.CreateNotificationDto;
+import org.ozonLabel.common.dto.user.UserResponseDto;
+import org.ozonLabel.common.exception.user.BusinessException;
+import org.ozonLabel.common.exception.user.ConflictException;
+import org.ozonLabel.common.exception.user.ResourceNotFoundException;
+import org.ozonLabel.common.exception.user.ValidationException;
+import org.ozonLabel.common.model.NotificationPriority;
+import org.ozonLabel.common.model.NotificationType;
+import org.ozonLabel.common.service.label.ExportService;
+import org.ozonLabel.common.service.user.CompanyService;
+import org.ozonLabel.common.service.user.NotificationService;
+import org.ozonLabel.common.service.user.UserService;
+import org.ozonLabel.ozonApi.entity.ExportJob;
+import org.ozonLabel.ozonApi.repository.ExportJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновые задания экспорта.
+ *
+ * Задание проверяется и сохраняется в БД сразу, а выполняется после коммита в пуле
+ * {@code exportJobExecutor}: у одной компании одновременно выполняется не больше
+ * {@code app.export.jobs.max-running-per-company} заданий, остальные ждут в очереди компании.
+ * Экспорт пишется во временный файл и переименовывается по готовности, после чего
+ * пользователь получает уведомление. Файл и строка задания удаляются через
+ * {@code app.export.jobs.ttl} после завершения.
+ *
+ * Очередь заданий живёт в памяти экземпляра, поэтому экземпляр раз в
+ * {@code app.export.jobs.heartbeat-interval} обновляет heartbeat всех своих заданий.
+ * Незавершённое задание без heartbeat дольше {@code app.export.jobs.heartbeat-timeout}
+ * принадлежало остановленному экземпляру и помечается FAILED — сколько бы оно ни выполнялось.
+ */
+@Service
+@Slf4j
+public class ExportJobService {
+
+    private static final String ARTIFACT_PREFIX = "export-";
+    private static final String PART_SUFFIX = ".part";
+    private static final List<String> ACTIVE_STATUSES = List.of(ExportJob.QUEUED, ExportJob.RUNNING);
+    private static final Set<String> FORMATS = Set.of("EXCEL", "PDF", "ZIP");
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ExportService exportService;
+    private final ExportJobRepository exportJobRepository;
+    private final CompanyService companyService;
+    private final UserService userService;
+    private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor exportJobExecutor;
+    private final Path dir;
+    private final Duration ttl;
+    private final Duration maxDuration;
+    private final Duration cleanupInterval;
+    private final Duration heartbeatInterval;
+    private final Duration heartbeatTimeout;
+    private final int maxRunningPerCompany;
+    private final int maxActivePerCompany;
+
+    // Выполняемые и ожидающие задания компаний этого экземпляра
+    private final Map<Long, CompanyQueue> companyQueues = new HashMap<>();
+
+    private ScheduledExecutorService cleaner;
+
+    public ExportJobService(ExportService exportService,
+                            ExportJobRepository exportJobRepository,
+                            CompanyService companyService,
+                            UserService userService,
+                            NotificationService notificationService,
+                            ObjectMapper objectMapper,
+                            ThreadPoolTaskExecutor exportJobExecutor,
+                            @Value("${app.export.jobs.dir:export-jobs}") String dir,
+                            @Value("${app.export.jobs.ttl:PT24H}") Duration ttl,
+                            @Value("${app.export.jobs.max-duration:PT2H}") Duration maxDuration,
+                            @Value("${app.export.jobs.cleanup-interval:PT10M}") Duration cleanupInterval,
+                            @Value("${app.export.jobs.heartbeat-interval:PT1M}") Duration heartbeatInterval,
+                            @Value("${app.export.jobs.heartbeat-timeout:PT5M}") Duration heartbeatTimeout,
+                            @Value("${app.export.jobs.max-running-per-company:1}") int maxRunningPerCompany,
+                            @Value("${app.export.jobs.max-active-per-company:10}") int maxActivePerCompany) {
+        this.exportService = exportService;
+        this.exportJobRepository = exportJobRepository;
+        this.companyService = companyService;
+        this.userService = userService;
+        this.notificationService = notificationService;
+        this.objectMapper = objectMapper;
+        this.exportJobExecutor = exportJobExecutor;
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.ttl = ttl;
+        this.maxDuration = maxDuration;
+        this.cleanupInterval = cleanupInterval;
+        this.heartbeatInterval = heartbeatInterval;
+        this.heartbeatTimeout = heartbeatTimeout;
+        if (heartbeatInterval.compareTo(heartbeatTimeout) >= 0) {
+            throw new IllegalStateException("app.export.jobs.heartbeat-interval must be shorter than heartbeat-timeout");
+        }
+        this.maxRunningPerCompany = Math.max(1, maxRunningPerCompany);
+        this.maxActivePerCompany = Math.max(1, maxActivePerCompany);
+    }
+
+    @PostConstruct
+    public void start() {
+        cleaner = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "export-job-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::cleanUp,
+                cleanupInterval.toMillis(), cleanupInterval.toMillis(), TimeUnit.MILLISECONDS);
+        cleaner.scheduleWithFixedDelay(this::heartbeat,
+                heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Хранилище заданий экспорта: {}, срок хранения файлов {}", dir, ttl);
+    }
+
+    @PreDestroy
+    public void stop() {
+        cleaner.shutdownNow();
+    }
+
+    /**
+     * Поставить экспорт в очередь
+     *
+     * Доступ и параметры проверяются сразу, папки разворачиваются в список товаров на момент запроса
+     */
+    @Transactional
+    public ExportJobDto submit(String userEmail, Long companyOwnerId, ExportRequest request) {
+        ExportRequest resolved = exportService.resolveExportRequest(userEmail, companyOwnerId, request);
+        String format = resolved.getFormat() != null ? resolved.getFormat().toUpperCase() : "EXCEL";
+        if (!FORMATS.contains(format)) {
+            throw new ValidationException("Неподдерживаемый формат: " + format);
+        }
+
+        if (exportJobRepository.countByCompanyIdAndStatusIn(companyOwnerId, ACTIVE_STATUSES) >= maxActivePerCompany) {
+            throw new ConflictException("Слишком много заданий экспорта в очереди, дождитесь завершения текущих");
+        }
+
+        ExportJob job = exportJobRepository.save(ExportJob.builder()
+                .companyId(companyOwnerId)
+                .userEmail(userEmail)
+                .format(format)
+                .request(toJson(resolved.toBuilder().format(format).build()))
+                .heartbeatAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plus(maxDuration).plus(ttl))
+                .build());
+
+        afterCommit(() -> enqueue(companyOwnerId, job.getId()));
+
+        log.info("Создано задание экспорта {} компании {} пользователем {}: {} товаров в формате {}",
+                job.getId(), companyOwnerId, userEmail, resolved.getProductIds().size(), format);
+        return toDto(job);
+    }
+
+    @Transactional(readOnly = true)
+    public ExportJobDto getJob(String userEmail, Long companyOwnerId, Long exportJobId) {
+        return toDto(findJob(userEmail, companyOwnerId, exportJobId));
+    }
+
+    /**
+     * Готовый файл задания
+     */
+    @Transactional(readOnly = true)
+    public ExportJobFileDto getJobFile(String userEmail, Long companyOwnerId, Long exportJobId) {
+        ExportJob job = findJob(userEmail, companyOwnerId, exportJobId);
+        if (!ExportJob.DONE.equals(job.getStatus())) {
+            throw new ConflictException("Экспорт ещё не готов");
+        }
+
+        Path file = artifactPath(job.getId());
+        if (job.getExpiresAt().isBefore(LocalDateTime.now()) || !Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("Файл экспорта больше не доступен");
+        }
+
+        return ExportJobFileDto.builder()
+                .path(file)
+                .contentType(contentType(job.getFormat()))
+                .fileName(fileName(job))
+                .build();
+    }
+
+    public static String contentType(String format) {
+        return switch (format) {
+            case "PDF" -> MediaType.APPLICATION_PDF_VALUE;
+            case "ZIP" -> "application/zip";
+            default -> "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        };
+    }
+
+    public static String fileName(ExportJob job) {
+        String extension = switch (job.getFormat()) {
+            case "PDF" -> "pdf";
+            case "ZIP" -> "zip";
+            default -> "xlsx";
+        };
+        return "labels-" + job.getId() + "." + extension;
+    }
+
+    private ExportJob findJob(String userEmail, Long companyOwnerId, Long exportJobId) {
+        companyService.checkAccess(userEmail, companyOwnerId);
+        return exportJobRepository.findByIdAndCompanyId(exportJobId, companyOwnerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Задание экспорта с id=" + exportJobId + " не найдено"));
+    }
+
+    private void enqueue(Long companyId, Long jobId) {
+        synchronized (companyQueues) {
+            CompanyQueue queue = companyQueues.computeIfAbsent(companyId, id -> new CompanyQueue());
+            if (queue.running.size() >= maxRunningPerCompany) {
+                queue.waiting.add(jobId);
+                return;
+            }
+            queue.running.add(jobId);
+        }
+        exportJobExecutor.execute(() -> run(companyId, jobId));
+    }
+
+    /**
+     * Освободить место компании: запустить её следующее задание, если оно есть
+     */
+    private void release(Long companyId, Long jobId) {
+        Long next;
+        synchronized (companyQueues) {
+            CompanyQueue queue = companyQueues.get(companyId);
+            queue.running.remove(jobId);
+            next = queue.waiting.poll();
+            if (next != null) {
+                queue.running.add(next);
+            } else if (queue.running.isEmpty()) {
+                companyQueues.remove(companyId);
+            }
+        }
+        if (next != null) {
+            Long nextJobId = next;
+            exportJobExecutor.execute(() -> run(companyId, nextJobId));
+        }
+    }
+
+    private void run(Long companyId, Long jobId) {
+        try {
+            exportJobRepository.findById(jobId).ifPresent(this::execute);
+        } catch (Exception e) {
+            log.error("Ошибка выполнения задания экспорта {}: {}", jobId, e.getMessage(), e);
+        } finally {
+            release(companyId, jobId);
+        }
+    }
+
+    private void execute(ExportJob job) {
+        long startedAt = System.currentTimeMillis();
+        exportJobRepository.markRunning(job.getId(), LocalDateTime.now());
+
+        try {
+            ExportRequest request = objectMapper.readValue(job.getRequest(), ExportRequest.class);
+            long size = writeArtifact(job, request);
+
+            LocalDateTime now = LocalDateTime.now();
+            job.setStatus(ExportJob.DONE);
+            job.setExpiresAt(now.plus(ttl));
+            exportJobRepository.markFinished(job.getId(), ExportJob.DONE, size, null, now, job.getExpiresAt());
+            log.info("Задание экспорта {} компании {} выполнено за {} мс, размер {} байт",
+                    job.getId(), job.getCompanyId(), System.currentTimeMillis() - startedAt, size);
+        } catch (Exception e) {
+            String error = e instanceof ValidationException || e instanceof BusinessException
+                    ? e.getMessage()
+                    : "Внутренняя ошибка экспорта";
+            if (error != null && error.length() > MAX_ERROR_LENGTH) {
+                error = error.substring(0, MAX_ERROR_LENGTH);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            job.setStatus(ExportJob.FAILED);
+            job.setError(error);
+            job.setExpiresAt(now.plus(ttl));
+            exportJobRepository.markFinished(job.getId(), ExportJob.FAILED, null, error, now, job.getExpiresAt());
+            log.error("Ошибка задания экспорта {} компании {}: {}", job.getId(), job.getCompanyId(), e.getMessage(), e);
+        }
+
+        notifyUser(job);
+    }
+
+    private long writeArtifact(ExportJob job, ExportRequest request) throws IOException {
+        Files.createDirectories(dir);
+        Path file = artifactPath(job.getId());
+        Path tempFile = Files.createTempFile(dir, ARTIFACT_PREFIX, PART_SUFFIX);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024)) {
+                exportService.writeExport(job.getUserEmail(), job.getCompanyId(), request, out);
+            }
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return Files.size(file);
+    }
+
+    private void notifyUser(ExportJob job) {
+        try {
+            Long userId = userService.findByEmail(job.getUserEmail()).map(UserResponseDto::getId).orElse(null);
+            if (userId == null) {
+                return;
+            }
+            boolean done = ExportJob.DONE.equals(job.getStatus());
+            notificationService.createNotification(CreateNotificationDto.builder()
+                    .userId(userId)
+                    .type(NotificationType.SYSTEM)
+                    .priority(NotificationPriority.NORMAL)
+                    .title(done ? "Экспорт готов" : "Ошибка экспорта")
+                    .message(done
+                            ? "Файл " + fileName(job) + " готов к скачиванию"
+                            : "Не удалось выполнить экспорт: " + job.getError())
+                    .data(Map.of(
+                            "exportJobId", job.getId(),
+                            "companyOwnerId", job.getCompanyId(),
+                            "status", job.getStatus()))
+                    .actionType(done ? "DOWNLOAD_EXPORT" : null)
+                    .actionUrl(done
+                            ? "/api/labels/export/jobs/" + job.getId() + "/download?companyOwnerId=" + job.getCompanyId()
+                            : null)
+                    .relatedEntityType("EXPORT_JOB")
+                    .relatedEntityId(job.getId())
+                    .expiresAt(job.getExpiresAt())
+                    .build());
+        } catch (Exception e) {
+            log.warn("Не удалось отправить уведомление о задании экспорта {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private void cleanUp() {
+        try {
+            // Свои задания обновляются первыми: помечены будут только задания остановленных экземпляров
+            heartbeat();
+            LocalDateTime now = LocalDateTime.now();
+            int failed = exportJobRepository.failAbandoned(now.minus(heartbeatTimeout),
+                    "Задание экспорта прервано, запустите экспорт заново", now, now.plus(ttl));
+            if (failed > 0) {
+                log.warn("Помечено прерванных заданий экспорта: {}", failed);
+            }
+
+            List<Long> expiredIds = exportJobRepository.findExpiredIds(now);
+            for (Long jobId : expiredIds) {
+                Files.deleteIfExists(artifactPath(jobId));
+            }
+            if (!expiredIds.isEmpty()) {
+                exportJobRepository.deleteAllByIdInBatch(expiredIds);
+                log.info("Удалено просроченных заданий экспорта: {}", expiredIds.size());
+            }
+
+            deleteAbandonedParts();
+        } catch (Exception e) {
+            log.error("Ошибка очистки заданий экспорта: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Обновить heartbeat заданий, которые этот экземпляр держит в очередях компаний
+     */
+    private void heartbeat() {
+        List<Long> jobIds = new ArrayList<>();
+        synchronized (companyQueues) {
+            for (CompanyQueue queue : companyQueues.values()) {
+                jobIds.addAll(queue.running);
+                jobIds.addAll(queue.waiting);
+            }
+        }
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        try {
+            exportJobRepository.touch(jobIds, LocalDateTime.now());
+        } catch (Exception e) {
+            log.warn("Не удалось обновить heartbeat заданий экспорта: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Временные файлы, оставшиеся после остановки приложения посреди экспорта
+     */
+    private void deleteAbandonedParts() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        Instant threshold = Instant.now().minus(maxDuration);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, ARTIFACT_PREFIX + "*" + PART_SUFFIX)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(threshold)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path artifactPath(Long jobId) {
+        return dir.resolve(ARTIFACT_PREFIX + jobId);
+    }
+
+    private ExportJobDto toDto(ExportJob job) {
+        return ExportJobDto.builder()
+                .id(job.getId())
+                .format(job.getFormat())
+                .status(job.getStatus())
+                .fileName(fileName(job))
+                .fileSize(job.getFileSize())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .finishedAt(job.getFinishedAt())
+                .expiresAt(job.getExpiresAt())
+                .build();
+    }
+
+    private String toJson(ExportRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Не удалось сохранить параметры экспорта");
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Задания одной компании на этом экземпляре
+     */
+    private static final class CompanyQueue {
+
+        private final Set<Long> running = new HashSet<>();
+        private final Deque<Long> waiting = new ArrayDeque<>();
+    }
+}
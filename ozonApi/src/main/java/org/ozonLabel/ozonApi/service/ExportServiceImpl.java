@@ -16,13 +16,19 @@ import org.ozonLabel.ozonApi.entity.Label;
 import org.ozonLabel.ozonApi.entity.OzonProduct;
 import org.ozonLabel.ozonApi.repository.LabelRepository;
 import org.ozonLabel.ozonApi.repository.OzonProductRepository;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
-import java.io.ByteArrayInputStream;
 import java.util.*;
 
 @Service
@@ -37,10 +43,45 @@ public class ExportServiceImpl implements ExportService {
     private final ExportFolderHelper exportFolderHelper;
     private final OzonProductRepository productRepository;
     private final LabelRepository labelRepository;
+    private final ThreadPoolTaskExecutor exportRenderExecutor;
 
+    /**
+     * Не readOnly: PDF и ZIP экспорт с DataMatrix списывают коды, а PDF экспорт
+     * сохраняется как задание печати вместе с записанными кодами
+     */
     @Override
-    @Transactional(readOnly = true)
+    @Transactional
     public byte[] exportLabels(String userEmail, Long companyOwnerId, ExportRequest request) {
+        request = resolveExportRequest(userEmail, companyOwnerId, request);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeExport(userEmail, companyOwnerId, request, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    @Transactional
+    public void writeExport(String userEmail, Long companyOwnerId, ExportRequest request, OutputStream out) {
+        String format = request.getFormat() != null ? request.getFormat().toUpperCase() : "EXCEL";
+        String exportType = request.getExportType() != null ? request.getExportType() : "labels";
+
+        switch (format) {
+            case "ZIP" -> writeZipExport(userEmail, companyOwnerId, request, out);
+            case "PDF" -> writePdfExport(userEmail, companyOwnerId, request, out);
+            case "EXCEL" -> {
+                if ("database".equals(exportType)) {
+                    writeExcelDatabase(userEmail, companyOwnerId, request, out);
+                } else {
+                    writeExcelExport(userEmail, companyOwnerId, request, out);
+                }
+            }
+            default -> throw new ValidationException("Неподдерживаемый формат: " + format);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ExportRequest resolveExportRequest(String userEmail, Long companyOwnerId, ExportRequest request) {
         companyService.checkAccess(userEmail, companyOwnerId);
 
         // Проверка: если ничего не выбрано — возвращаем ошибку
@@ -67,17 +108,7 @@ public class ExportServiceImpl implements ExportService {
             throw new ValidationException("Не выбрано товаров для экспорта");
         }
 
-        String format = request.getFormat() != null ? request.getFormat().toUpperCase() : "EXCEL";
-        String exportType = request.getExportType() != null ? request.getExportType() : "labels";
-
-        return switch (format) {
-            case "ZIP" -> generateZipExport(userEmail, companyOwnerId, request);
-            case "PDF" -> generatePdfExport(userEmail, companyOwnerId, request);
-            case "EXCEL" -> "database".equals(exportType)
-                    ? generateExcelDatabase(userEmail, companyOwnerId, request)
-                    : generateExcelExport(userEmail, companyOwnerId, request);
-            default -> throw new ValidationException("Неподдерживаемый формат: " + format);
-        };
+        return request;
     }
 
     /**
@@ -85,9 +116,8 @@ public class ExportServiceImpl implements ExportService {
      * Экспортирует все данные этикетки (элементы: штрихкоды, текст, изображения, DataMatrix)
      * Если этикетка не создана — экспортирует данные из товара по умолчанию
      */
-    private byte[] generateExcelExport(String userEmail, Long companyOwnerId, ExportRequest request) {
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+    private void writeExcelExport(String userEmail, Long companyOwnerId, ExportRequest request, OutputStream out) {
+        try (Workbook workbook = new XSSFWorkbook()) {
 
             Sheet sheet = workbook.createSheet("Этикетки");
 
@@ -221,9 +251,8 @@ public class ExportServiceImpl implements ExportService {
                 sheet.autoSizeColumn(i);
             }
 
-            workbook.write(baos);
+            workbook.write(out);
             log.info("Сгенерирован Excel экспорт для {} товаров", products.size());
-            return baos.toByteArray();
 
         } catch (Exception e) {
             log.error("Ошибка генерации Excel: {}", e.getMessage(), e);
@@ -271,9 +300,15 @@ public class ExportServiceImpl implements ExportService {
     }
 
     /**
-     * Генерация ZIP архива с PDF файлами этикеток
+     * Потоковая генерация ZIP.
+     * Товары и этикетки загружаются одним запросом каждый, PDF рендерятся параллельно
+     * (с ограниченным окном), а записи пишутся в поток ответа по порядку в режиме STORED —
+     * PDF уже сжат, повторное сжатие только тратит CPU.
+     * Этикетки с DataMatrix рендерятся последовательно: резервирование кодов не должно
+     * конкурировать внутри одного задания.
      */
-    private byte[] generateZipExport(String userEmail, Long companyOwnerId, ExportRequest request) {
+    @Override
+    public void writeZipExport(String userEmail, Long companyOwnerId, ExportRequest request, OutputStream out) {
         List<Long> productIds = request.getProductIds();
         if (productIds == null || productIds.isEmpty()) {
             throw new ValidationException("Не указаны продукты для экспорта");
@@ -281,53 +316,131 @@ public class ExportServiceImpl implements ExportService {
 
         String fileNaming = request.getFileNaming() != null ? request.getFileNaming() : "barcode";
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             ZipOutputStream zos = new ZipOutputStream(baos)) {
-
-            for (Long productId : productIds) {
-                // Получить продукт для именования файла
-                OzonProduct product = productRepository.findByUserIdAndProductId(companyOwnerId, productId)
-                        .orElseThrow(() -> new ValidationException("Продукт не найден: " + productId));
+        Map<Long, OzonProduct> productsById = new HashMap<>();
+        for (OzonProduct product : productRepository.findByUserIdAndProductIdIn(companyOwnerId, productIds)) {
+            productsById.put(product.getProductId(), product);
+        }
+        Map<Long, LabelResponseDto> labelsByProductId = new HashMap<>();
+        for (LabelResponseDto label : labelService.getLabelsByProductIds(userEmail, companyOwnerId, productIds)) {
+            labelsByProductId.put(label.getProductId(), label);
+        }
 
-                // Получить этикетку
-                LabelResponseDto label = labelService.getLabelByProductId(userEmail, companyOwnerId, productId);
+        // Проверяем всё до начала записи — после первой записи ответ уже не отменить
+        for (Long productId : productIds) {
+            if (!productsById.containsKey(productId)) {
+                throw new ValidationException("Продукт не найден: " + productId);
+            }
+            if (!labelsByProductId.containsKey(productId)) {
+                throw new ValidationException("Этикетка для продукта не найдена: " + productId);
+            }
+        }
 
-                // Сгенерировать PDF одной страницы
-                PrintRequest printRequest = PrintRequest.builder()
-                        .productIds(Collections.singletonList(productId))
-                        .copies(new HashMap<>())
-                        .separatorType("NONE")
-                        .build();
-                PrintResponse printResponse = printService.generateLabelsPdf(userEmail, companyOwnerId, printRequest);
-                byte[] pdfData = printResponse.getPdfData();
+        int window = exportRenderExecutor.getMaxPoolSize() * 2;
+        Deque<ZipPart> pending = new ArrayDeque<>();
+        Iterator<Long> queue = new LinkedHashSet<>(productIds).iterator();
+        Set<String> usedNames = new HashSet<>();
+        int written = 0;
+
+        try (ZipOutputStream zos = new ZipOutputStream(StreamUtils.nonClosing(out))) {
+            while (queue.hasNext() || !pending.isEmpty()) {
+                while (queue.hasNext() && pending.size() < window) {
+                    Long productId = queue.next();
+                    LabelResponseDto label = labelsByProductId.get(productId);
+                    CompletableFuture<byte[]> future = hasDataMatrix(label)
+                            ? null
+                            : CompletableFuture.supplyAsync(
+                                    () -> renderSingleLabelPdf(userEmail, companyOwnerId, productId, label),
+                                    exportRenderExecutor);
+                    pending.add(new ZipPart(productId, label, future));
+                }
 
-                // Получить имя файла
-                String fileName = exportFolderHelper.getFileName(product, fileNaming) + ".pdf";
+                ZipPart part = pending.poll();
+                byte[] pdfData = part.future() != null
+                        ? part.future().join()
+                        : renderSingleLabelPdf(userEmail, companyOwnerId, part.productId(), part.label());
 
-                // Добавить в ZIP
-                ZipEntry zipEntry = new ZipEntry(fileName);
-                zos.putNextEntry(zipEntry);
-                zos.write(pdfData);
-                zos.closeEntry();
+                String baseName = exportFolderHelper.getFileName(productsById.get(part.productId()), fileNaming);
+                String fileName = uniqueName(baseName, usedNames) + ".pdf";
+                writeStoredEntry(zos, fileName, pdfData);
+                written++;
 
                 log.debug("Добавлен файл в ZIP: {}", fileName);
             }
+            zos.finish();
 
-            log.info("Сгенерирован ZIP экспорт для {} этикеток", productIds.size());
-            return baos.toByteArray();
+            log.info("Сгенерирован ZIP экспорт для {} этикеток", written);
 
-        } catch (ValidationException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("Ошибка генерации ZIP: {}", e.getMessage(), e);
+        } catch (CompletionException e) {
+            pending.forEach(p -> { if (p.future() != null) p.future().cancel(true); });
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof ValidationException validationException) {
+                throw validationException;
+            }
+            log.error("Ошибка генерации ZIP: {}", cause.getMessage(), cause);
+            throw new ValidationException("Ошибка генерации ZIP: " + cause.getMessage());
+        } catch (IOException e) {
+            pending.forEach(p -> { if (p.future() != null) p.future().cancel(true); });
+            log.error("Ошибка записи ZIP: {}", e.getMessage(), e);
             throw new ValidationException("Ошибка генерации ZIP: " + e.getMessage());
         }
     }
 
+    private byte[] renderSingleLabelPdf(String userEmail, Long companyOwnerId, Long productId, LabelResponseDto label) {
+        PrintRequest printRequest = PrintRequest.builder()
+                .productIds(Collections.singletonList(productId))
+                .copies(new HashMap<>())
+                .separatorType("NONE")
+                .build();
+        return printService.renderLabelsPdf(userEmail, companyOwnerId, printRequest, Map.of(productId, label))
+                .getPdfData();
+    }
+
+    private boolean hasDataMatrix(LabelResponseDto label) {
+        if (label.getConfig() == null || label.getConfig().getElements() == null) {
+            return false;
+        }
+        return label.getConfig().getElements().stream()
+                .anyMatch(e -> "datamatrix".equals(e.getType()));
+    }
+
+    /**
+     * Запись без сжатия: размер и CRC известны заранее, поэтому data descriptor не нужен
+     */
+    private void writeStoredEntry(ZipOutputStream zos, String fileName, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ZipEntry zipEntry = new ZipEntry(fileName);
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(data.length);
+        zipEntry.setCompressedSize(data.length);
+        zipEntry.setCrc(crc.getValue());
+
+        zos.putNextEntry(zipEntry);
+        zos.write(data);
+        zos.closeEntry();
+    }
+
+    /**
+     * Одинаковые штрихкоды/артикулы у разных товаров не должны ломать архив дублирующимися записями
+     */
+    private String uniqueName(String baseName, Set<String> usedNames) {
+        String name = baseName;
+        int suffix = 2;
+        while (!usedNames.add(name)) {
+            name = baseName + "_" + suffix++;
+        }
+        return name;
+    }
+
+    private record ZipPart(Long productId, LabelResponseDto label, CompletableFuture<byte[]> future) {
+    }
+
     /**
-     * Генерация PDF экспорта (один файл со всеми этикетками)
+     * Генерация PDF экспорта (один файл со всеми этикетками).
+     * Экспорт оформляется заданием печати: списанные коды записываются и доступны для перепечатки
      */
-    private byte[] generatePdfExport(String userEmail, Long companyOwnerId, ExportRequest request) {
+    private void writePdfExport(String userEmail, Long companyOwnerId, ExportRequest request, OutputStream out) {
         List<Long> productIds = request.getProductIds();
         if (productIds == null || productIds.isEmpty()) {
             throw new ValidationException("Не указаны продукты для экспорта");
@@ -339,14 +452,18 @@ public class ExportServiceImpl implements ExportService {
                 .separatorType("NONE")
                 .build();
         PrintResponse printResponse = printService.generateLabelsPdf(userEmail, companyOwnerId, printRequest);
+        try {
+            out.write(printResponse.getPdfData());
+        } catch (IOException e) {
+            throw new ValidationException("Ошибка записи PDF: " + e.getMessage());
+        }
         log.info("Сгенерирован PDF экспорт для {} этикеток", productIds.size());
-        return printResponse.getPdfData();
     }
 
     /**
      * Генерация Excel экспорта базы данных
      */
-    private byte[] generateExcelDatabase(String userEmail, Long companyOwnerId, ExportRequest request) {
+    private void writeExcelDatabase(String userEmail, Long companyOwnerId, ExportRequest request, OutputStream out) {
         List<Long> productIds = request.getProductIds();
         if (productIds == null || productIds.isEmpty()) {
             throw new ValidationException("Не указаны продукты для экспорта");
@@ -355,8 +472,7 @@ public class ExportServiceImpl implements ExportService {
         Boolean separateFiles = Boolean.TRUE.equals(request.getSeparateFiles());
         Boolean includePhotos = Boolean.TRUE.equals(request.getIncludePhotos());
 
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        try (Workbook workbook = new XSSFWorkbook()) {
 
             if (separateFiles) {
                 // Отдельный лист для каждой папки
@@ -366,9 +482,8 @@ public class ExportServiceImpl implements ExportService {
                 createDatabaseSingleSheet(workbook, companyOwnerId, productIds, includePhotos);
             }
 
-            workbook.write(baos);
+            workbook.write(out);
             log.info("Сгенерирован Excel database экспорт для {} продуктов", productIds.size());
-            return baos.toByteArray();
 
         } catch (Exception e) {
             log.error("Ошибка генерации Excel database: {}", e.getMessage(), e);
@@ -6,22 +6,54 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 @Slf4j
 public class FileStorageService {
 
+    /**
+     * Имя файла, адресуемого по содержимому: SHA-256 (64 hex) + необязательное расширение
+     */
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("^([0-9a-f]{64})(\\.[A-Za-z0-9]+)?$");
+
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
 
     @Value("${app.upload.base-url:http://localhost:8082/uploads}")
     private String baseUrl;
 
+    /**
+     * Закрытое хранилище: в отличие от app.upload.dir не раздаётся через /uploads
+     */
+    @Value("${app.storage.private-dir:private-storage}")
+    private String privateDir;
+
+    /**
+     * Файл в закрытом хранилище: относительный путь, размер и SHA-256 несжатого содержимого
+     */
+    public record StoredFile(String path, long size, String sha256) {}
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
     public String store(MultipartFile file, String storedName, Long companyId) {
         try {
             Path uploadPath = Paths.get(uploadDir, "company_" + companyId, "images");
@@ -41,6 +73,156 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Сохранить файл под именем, равным SHA-256 его содержимого.
+     * Одинаковые файлы внутри компании хранятся в одном экземпляре, а URL никогда
+     * не меняет содержимое — это позволяет отдавать их с immutable-кэшированием.
+     *
+     * @param extension расширение с точкой (может быть пустым)
+     * @return относительный путь к файлу
+     */
+    public String storeContentAddressed(MultipartFile file, String extension, Long companyId) {
+        Path tempFile = null;
+        try {
+            Path uploadPath = Paths.get(uploadDir, "company_" + companyId, "images");
+            Files.createDirectories(uploadPath);
+
+            // Хэш считаем на лету при копировании во временный файл — без повторного чтения
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            tempFile = Files.createTempFile(uploadPath, "upload-", ".tmp");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            String storedName = HexFormat.of().formatHex(digest.digest()) + extension;
+            Path filePath = uploadPath.resolve(storedName);
+            if (Files.exists(filePath)) {
+                Files.delete(tempFile);
+                log.info("Файл с таким содержимым уже существует: {}", storedName);
+            } else {
+                Files.move(tempFile, filePath, StandardCopyOption.ATOMIC_MOVE);
+            }
+            tempFile = null;
+
+            String relativePath = "company_" + companyId + "/images/" + storedName;
+            log.info("Файл сохранен: {}", relativePath);
+            return relativePath;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("Ошибка сохранения файла: {}", file.getOriginalFilename(), e);
+            throw new ValidationException("Не удалось сохранить файл");
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Сохранить сгенерированный файл (миниатюру и т.п.) под именем, равным SHA-256 содержимого
+     *
+     * @param directory каталог внутри хранилища, например company_1/thumbnails
+     * @param extension расширение с точкой
+     * @return относительный путь к файлу
+     */
+    public String storeContentAddressed(byte[] content, String extension, String directory) {
+        Path tempFile = null;
+        try {
+            Path targetDir = Paths.get(uploadDir, directory);
+            Files.createDirectories(targetDir);
+
+            String storedName = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)) + extension;
+            Path filePath = targetDir.resolve(storedName);
+            if (!Files.exists(filePath)) {
+                tempFile = Files.createTempFile(targetDir, "upload-", ".tmp");
+                Files.write(tempFile, content);
+                Files.move(tempFile, filePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                tempFile = null;
+            }
+            return directory + "/" + storedName;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("Ошибка сохранения файла в {}", directory, e);
+            throw new ValidationException("Не удалось сохранить файл");
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Найти файл в хранилище по относительному пути.
+     * Пути, выходящие за пределы каталога загрузок, отклоняются.
+     */
+    public Optional<Path> resolve(String storagePath) {
+        return resolveUnder(uploadDir, storagePath);
+    }
+
+    private static Optional<Path> resolveUnder(String rootDir, String storagePath) {
+        Path root = Paths.get(rootDir).toAbsolutePath().normalize();
+        Path filePath = root.resolve(storagePath).normalize();
+        if (!filePath.startsWith(root) || !Files.isRegularFile(filePath)) {
+            return Optional.empty();
+        }
+        return Optional.of(filePath);
+    }
+
+    /**
+     * Записать файл в закрытое хранилище со сжатием gzip.
+     * Содержимое пишется потоком прямо в сжатый файл; размер и SHA-256 считаются по несжатым данным
+     * на лету. Файл появляется под итоговым именем только после успешной записи.
+     *
+     * @param directory каталог внутри закрытого хранилища, например company_1/datamatrix
+     * @param name имя файла без расширения .gz
+     */
+    public StoredFile storePrivateGzipped(String directory, String name, ContentWriter writer) {
+        Path tempFile = null;
+        try {
+            Path targetDir = Paths.get(privateDir, directory);
+            Files.createDirectories(targetDir);
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            tempFile = Files.createTempFile(targetDir, "upload-", ".tmp");
+            CountingOutputStream counter;
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempFile), 64 * 1024)) {
+                counter = new CountingOutputStream(new DigestOutputStream(out, digest));
+                writer.write(counter);
+                counter.flush();
+            }
+
+            String storedName = name + ".gz";
+            Files.move(tempFile, targetDir.resolve(storedName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            tempFile = null;
+            return new StoredFile(directory + "/" + storedName, counter.count, HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("Ошибка сохранения файла {} в {}", name, directory, e);
+            throw new ValidationException("Не удалось сохранить файл");
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Найти файл в закрытом хранилище по относительному пути
+     */
+    public Optional<Path> resolvePrivate(String storagePath) {
+        return resolveUnder(privateDir, storagePath);
+    }
+
+    public void deletePrivate(String storagePath) {
+        resolvePrivate(storagePath).ifPresent(filePath -> {
+            try {
+                Files.deleteIfExists(filePath);
+                log.info("Файл удален: {}", storagePath);
+            } catch (IOException e) {
+                log.error("Ошибка удаления файла: {}", storagePath, e);
+            }
+        });
+    }
+
+    /**
+     * SHA-256 содержимого, если имя файла адресовано по содержимому
+     */
+    public Optional<String> getContentHash(Path filePath) {
+        var matcher = CONTENT_ADDRESSED_NAME.matcher(filePath.getFileName().toString());
+        return matcher.matches() ? Optional.of(matcher.group(1)) : Optional.empty();
+    }
+
     public String getPublicUrl(String storagePath) {
         return baseUrl + "/" + storagePath;
     }
@@ -52,8 +234,42 @@ public class FileStorageService {
                 Files.delete(filePath);
                 log.info("Файл удален: {}", storagePath);
             }
+            // Предсжатый вариант, если он был создан рядом с оригиналом
+            Files.deleteIfExists(Paths.get(uploadDir, storagePath + ".gz"));
         } catch (IOException e) {
             log.error("Ошибка удаления файла: {}", storagePath, e);
         }
     }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить временный файл {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
 }
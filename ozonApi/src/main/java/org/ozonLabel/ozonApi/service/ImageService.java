@@ -57,8 +57,10 @@ public class ImageService {
         validateFile(file);
         validateUserQuota(companyOwnerId, userId, file.getSize());
 
-        String storedName = UUID.randomUUID() + getExtension(file.getOriginalFilename());
-        String storagePath = fileStorageService.store(file, storedName, companyOwnerId);
+        String extension = getExtension(file.getContentType());
+        String storedName = UUID.randomUUID() + extension;
+        // Путь адресуется по содержимому: один и тот же файл хранится один раз и кэшируется навсегда
+        String storagePath = fileStorageService.storeContentAddressed(file, extension, companyOwnerId);
         String url = fileStorageService.getPublicUrl(storagePath);
 
         UserImage image = UserImage.builder()
@@ -118,7 +120,10 @@ public class ImageService {
         UserImage image = userImageRepository.findByIdAndCompanyIdAndUserId(id, companyOwnerId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Изображение с id=" + id));
 
-        fileStorageService.delete(image.getStoragePath());
+        // Файл может разделяться несколькими записями с одинаковым содержимым
+        if (userImageRepository.countByStoragePath(image.getStoragePath()) <= 1) {
+            fileStorageService.delete(image.getStoragePath());
+        }
         userImageRepository.delete(image);
         log.info("Удалено изображение id={} пользователем {}", id, userEmail);
     }
@@ -223,10 +228,17 @@ public class ImageService {
         return true;
     }
 
-    private String getExtension(String filename) {
-        if (filename == null) return "";
-        int idx = filename.lastIndexOf('.');
-        return idx > 0 ? filename.substring(idx) : "";
+    /**
+     * Расширение берём из проверенного MIME-типа, а не из имени файла клиента
+     */
+    private String getExtension(String contentType) {
+        if (contentType == null) return "";
+        return switch (contentType) {
+            case "image/png" -> ".png";
+            case "image/jpeg" -> ".jpg";
+            case "image/webp" -> ".webp";
+            default -> "";
+        };
     }
 
     private UserImageDto toDto(UserImage image) {
@@ -0,0 +1,73 @@
+package org.ozonLabel.ozonApi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Кэш отрендеренных статических частей этикеток.
+ * Ключ — SHA-256 от канонического JSON статических элементов и размеров этикетки,
+ * значение — одностраничный PDF, который при печати копируется в документ как Form XObject.
+ * Байты хранятся вне heap (direct buffer), размер кэша ограничен по весу.
+ */
+@Component
+@Slf4j
+public class LabelPageCache {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, ByteBuffer> pages;
+
+    public LabelPageCache(ObjectMapper objectMapper,
+                          @Value("${app.print.page-cache.max-bytes:67108864}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, ByteBuffer value) -> value.capacity())
+                .build();
+    }
+
+    /**
+     * Детерминированный ключ для набора входных данных страницы
+     */
+    public String key(Object... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : parts) {
+                digest.update(objectMapper.writeValueAsBytes(part));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось вычислить ключ кэша страницы", e);
+        }
+    }
+
+    /**
+     * Получить PDF страницы из кэша или отрендерить и сохранить
+     */
+    public byte[] getOrRender(String key, Supplier<byte[]> renderer) {
+        ByteBuffer cached = pages.getIfPresent(key);
+        if (cached != null) {
+            byte[] bytes = new byte[cached.capacity()];
+            cached.duplicate().get(bytes);
+            return bytes;
+        }
+
+        byte[] rendered = renderer.get();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(rendered.length);
+        buffer.put(rendered).flip();
+        pages.put(key, buffer);
+        log.debug("Страница этикетки {} добавлена в кэш ({} байт)", key, rendered.length);
+        return rendered;
+    }
+}
@@ -0,0 +1,97 @@
+package org.ozonLabel.ozonApi.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.FontMappers;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.ozonLabel.common.exception.user.TooManyRequestsException;
+import org.ozonLabel.common.exception.user.ValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Растеризация PDF предпросмотра в PNG.
+ *
+ * Одновременно растеризуется не больше {@code app.print.preview.max-concurrent} документов,
+ * остальные запросы ждут свободного слота — предпросмотр не отнимает процессор у печати.
+ * Шрифты PDFBox прогреваются при старте: иначе первый предпросмотр ждёт сканирования системных шрифтов.
+ */
+@Service
+@Slf4j
+public class LabelPreviewRasterizer {
+
+    private static final long SLOT_TIMEOUT_MS = 2000;
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final Semaphore slots;
+
+    public LabelPreviewRasterizer(@Value("${app.print.preview.max-concurrent:0}") int maxConcurrent) {
+        int permits = maxConcurrent > 0 ? maxConcurrent : Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.slots = new Semaphore(permits, true);
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        Thread thread = new Thread(() -> {
+            try {
+                FontMappers.instance().getFontBoxFont("Helvetica", null);
+                log.debug("Шрифты PDFBox для предпросмотра загружены");
+            } catch (Exception e) {
+                log.warn("Не удалось прогреть шрифты PDFBox: {}", e.getMessage());
+            }
+        }, "preview-font-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Отрисовать каждую страницу PDF в PNG
+     *
+     * @param dpi разрешение изображений
+     */
+    public List<byte[]> toPng(byte[] pdf, int dpi) {
+        acquireSlot();
+        try (PDDocument document = PDDocument.load(pdf)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            renderer.setSubsamplingAllowed(true);
+
+            List<byte[]> images = new ArrayList<>(document.getNumberOfPages());
+            ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+            for (int page = 0; page < document.getNumberOfPages(); page++) {
+                BufferedImage image = renderer.renderImageWithDPI(page, dpi, ImageType.RGB);
+                out.reset();
+                ImageIO.write(image, "png", out);
+                images.add(out.toByteArray());
+            }
+            return images;
+        } catch (IOException e) {
+            log.error("Ошибка растеризации предпросмотра: {}", e.getMessage(), e);
+            throw new ValidationException("Ошибка генерации предпросмотра");
+        } finally {
+            slots.release();
+        }
+    }
+
+    private void acquireSlot() {
+        try {
+            if (!slots.tryAcquire(SLOT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new TooManyRequestsException("Слишком много запросов предпросмотра, повторите позже",
+                        RETRY_AFTER_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValidationException("Генерация предпросмотра прервана");
+        }
+    }
+}
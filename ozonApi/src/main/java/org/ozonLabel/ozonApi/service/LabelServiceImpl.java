@@ -27,6 +27,7 @@ import org.ozonLabel.ozonApi.mapper.LabelMapper;
 import org.ozonLabel.ozonApi.repository.LabelRepository;
 import org.ozonLabel.ozonApi.repository.OzonProductRepository;
 import org.ozonLabel.ozonApi.validation.LabelValidator;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -42,6 +43,7 @@ public class LabelServiceImpl implements LabelService {
     private final CompanyService companyService;
     private final UserService userService;
     private final OzonProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -76,6 +78,7 @@ public class LabelServiceImpl implements LabelService {
 
         Label saved = labelRepository.save(label);
         log.info("Создана этикетка id={} для productId={} пользователем {}", saved.getId(), dto.getProductId(), userEmail);
+        eventPublisher.publishEvent(ThumbnailStaleEvent.ofLabel(saved.getId()));
         return labelMapper.toDto(saved);
     }
 
@@ -86,6 +89,7 @@ public class LabelServiceImpl implements LabelService {
 
         Label label = labelRepository.findByIdAndCompanyId(id, companyOwnerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Этикетка с id=" + id));
+        requestMissingThumbnail(label);
         return labelMapper.toDto(label);
     }
 
@@ -96,6 +100,7 @@ public class LabelServiceImpl implements LabelService {
 
         Label label = labelRepository.findByCompanyIdAndProductId(companyOwnerId, productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Этикетка для продукта с id=" + productId));
+        requestMissingThumbnail(label);
         return labelMapper.toDto(label);
     }
 
@@ -124,6 +129,7 @@ public class LabelServiceImpl implements LabelService {
 
         Label saved = labelRepository.save(label);
         log.info("Обновлена этикетка id={} пользователем {}", saved.getId(), userEmail);
+        eventPublisher.publishEvent(ThumbnailStaleEvent.ofLabel(saved.getId()));
         return labelMapper.toDto(saved);
     }
 
@@ -166,6 +172,7 @@ public class LabelServiceImpl implements LabelService {
         Label saved = labelRepository.save(newLabel);
         log.info("Дублирована этикетка id={} в новую id={} для productId={} пользователем {}",
                 id, saved.getId(), targetProductId, userEmail);
+        eventPublisher.publishEvent(ThumbnailStaleEvent.ofLabel(saved.getId()));
         return labelMapper.toDto(saved);
     }
 
@@ -182,6 +189,15 @@ public class LabelServiceImpl implements LabelService {
                 .toList();
     }
 
+    /**
+     * Миниатюра ещё не построена или сброшена изменением этикетки — построить в фоне
+     */
+    private void requestMissingThumbnail(Label label) {
+        if (label.getPreviewUrl() == null) {
+            eventPublisher.publishEvent(ThumbnailMissingEvent.ofLabel(label.getId()));
+        }
+    }
+
     private Long getUserIdByEmail(String email) {
         UserResponseDto user = userService.findByEmail(email)
                 .orElseThrow(() -> new UserNotFoundException("Пользователь с email " + email + " не найден"));
@@ -346,6 +362,7 @@ public class LabelServiceImpl implements LabelService {
         Label saved = labelRepository.save(label);
         log.info("Изменён размер этикетки id={}: {}x{} → {}x{}, autoFit={}",
                 labelId, oldWidth, oldHeight, newWidth, dto.getAutoFit());
+        eventPublisher.publishEvent(ThumbnailStaleEvent.ofLabel(saved.getId()));
         return labelMapper.toDto(saved);
     }
 
@@ -18,6 +18,7 @@ import org.ozonLabel.common.service.template.LabelTemplateService;
 import org.ozonLabel.common.service.user.CompanyService;
 import org.ozonLabel.ozonApi.entity.LabelTemplate;
 import org.ozonLabel.ozonApi.repository.LabelTemplateRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,6 +34,7 @@ public class LabelTemplateServiceImpl implements LabelTemplateService {
     private final CompanyService companyService;
     private final LabelService labelService;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional(readOnly = true)
@@ -42,6 +44,11 @@ public class LabelTemplateServiceImpl implements LabelTemplateService {
         List<LabelTemplate> templates = labelTemplateRepository.findByCompanyIdOrSystem(companyOwnerId);
         log.info("Получено {} шаблонов для компании {} пользователем {}", 
                 templates.size(), companyOwnerId, userEmail);
+        // Миниатюры, которых ещё нет (в том числе у системных шаблонов), строятся в фоне;
+        // недавно не построившиеся пропускаются, чтобы не рендерить их на каждый запрос списка
+        templates.stream()
+                .filter(template -> template.getPreviewUrl() == null)
+                .forEach(template -> eventPublisher.publishEvent(ThumbnailMissingEvent.ofTemplate(template.getId())));
         return templates.stream()
                 .map(this::mapToDto)
                 .toList();
@@ -74,6 +81,9 @@ public class LabelTemplateServiceImpl implements LabelTemplateService {
         template = labelTemplateRepository.save(template);
         log.info("Создан шаблон id={} для компании {} пользователем {}", 
                 template.getId(), companyOwnerId, userEmail);
+        if (template.getPreviewUrl() == null) {
+            eventPublisher.publishEvent(ThumbnailStaleEvent.ofTemplate(template.getId()));
+        }
         return mapToDto(template);
     }
 
@@ -95,6 +105,9 @@ public class LabelTemplateServiceImpl implements LabelTemplateService {
             throw new ForbiddenException("Доступ запрещён");
         }
         
+        // Изменился вид шаблона — старая миниатюра больше не подходит
+        boolean appearanceChanged = dto.getWidth() != null || dto.getHeight() != null || dto.getConfig() != null;
+
         // Обновление полей
         if (dto.getName() != null) template.setName(dto.getName());
         if (dto.getWidth() != null) template.setWidth(dto.getWidth());
@@ -109,11 +122,18 @@ public class LabelTemplateServiceImpl implements LabelTemplateService {
             }
             template.setConfig(dto.getConfig());
         }
-        if (dto.getPreviewUrl() != null) template.setPreviewUrl(dto.getPreviewUrl());
+        if (dto.getPreviewUrl() != null) {
+            template.setPreviewUrl(dto.getPreviewUrl());
+        } else if (appearanceChanged) {
+            template.setPreviewUrl(null);
+        }
         
         template = labelTemplateRepository.save(template);
         log.info("Обновлён шаблон id={} для компании {} пользователем {}", 
                 template.getId(), companyOwnerId, userEmail);
+        if (template.getPreviewUrl() == null) {
+            eventPublisher.publishEvent(ThumbnailStaleEvent.ofTemplate(template.getId()));
+        }
         return mapToDto(template);
     }
 
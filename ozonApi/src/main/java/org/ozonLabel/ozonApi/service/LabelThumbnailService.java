@@ -0,0 +1,173 @@
+package org.ozonLabel.ozonApi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.dto.label.LabelConfigDto;
+import org.ozonLabel.common.dto.label.LabelResponseDto;
+import org.ozonLabel.ozonApi.entity.Label;
+import org.ozonLabel.ozonApi.entity.LabelTemplate;
+import org.ozonLabel.ozonApi.repository.LabelRepository;
+import org.ozonLabel.ozonApi.repository.LabelTemplateRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Миниатюры этикеток и шаблонов (preview_url).
+ *
+ * Миниатюра рендерится в фоне после коммита тем же кодом, что и печать, с образцом DataMatrix вместо
+ * кодов, и сохраняется под именем-хэшем содержимого. В preview_url она записывается, только если
+ * запись не изменилась с начала рендеринга (по updated_at): иначе изменение уже запросило новую.
+ *
+ * Неудачный рендеринг запоминается на {@code app.thumbnails.retry-delay}: отсутствующие миниатюры,
+ * запрошенные при чтении списка, в это время не перестраиваются. Изменение записи сбрасывает отметку.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LabelThumbnailService {
+
+    private static final int MAX_DPI = 96;
+    private static final int MIN_DPI = 12;
+    private static final double MM_PER_INCH = 25.4;
+
+    private final LabelRepository labelRepository;
+    private final LabelTemplateRepository labelTemplateRepository;
+    private final PrintServiceImpl printService;
+    private final LabelPreviewRasterizer previewRasterizer;
+    private final FileStorageService fileStorageService;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor thumbnailExecutor;
+
+    // Запрошенные, но ещё не начатые задачи: повторный запрос той же записи не ставится в очередь
+    private final Set<ThumbnailStaleEvent> pending = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.thumbnails.max-size:240}")
+    private int maxSize;
+
+    @Value("${app.thumbnails.retry-delay:PT1H}")
+    private Duration retryDelay;
+
+    // Записи, миниатюра которых недавно не построилась
+    private Cache<ThumbnailStaleEvent, Boolean> recentFailures;
+
+    @PostConstruct
+    public void init() {
+        recentFailures = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(retryDelay)
+                .build();
+    }
+
+    /**
+     * Запись создана или изменена: прежняя ошибка рендеринга больше не показательна
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onThumbnailStale(ThumbnailStaleEvent event) {
+        recentFailures.invalidate(event);
+        schedule(event);
+    }
+
+    /**
+     * Построить отсутствующую миниатюру, замеченную при чтении,
+     * если она не падала в последние {@code app.thumbnails.retry-delay}
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onThumbnailMissing(ThumbnailMissingEvent event) {
+        if (recentFailures.getIfPresent(event.thumbnail()) == null) {
+            schedule(event.thumbnail());
+        }
+    }
+
+    private void schedule(ThumbnailStaleEvent event) {
+        if (!pending.add(event)) {
+            return;
+        }
+        try {
+            thumbnailExecutor.execute(() -> {
+                pending.remove(event);
+                try {
+                    if (event.template()) {
+                        renderTemplate(event.id());
+                    } else {
+                        renderLabel(event.id());
+                    }
+                } catch (Exception e) {
+                    recentFailures.put(event, Boolean.TRUE);
+                    log.warn("Не удалось построить миниатюру {} id={}: {}",
+                            event.template() ? "шаблона" : "этикетки", event.id(), e.getMessage());
+                }
+            });
+        } catch (TaskRejectedException e) {
+            pending.remove(event);
+            log.debug("Очередь миниатюр переполнена, миниатюра id={} будет запрошена позже", event.id());
+        }
+    }
+
+    private void renderLabel(Long labelId) {
+        Label label = labelRepository.findById(labelId).orElse(null);
+        if (label == null || label.getPreviewUrl() != null) {
+            return;
+        }
+        LocalDateTime version = label.getUpdatedAt();
+        LabelResponseDto dto = toDto(label.getProductId(), label.getWidth(), label.getHeight(), label.getConfig());
+        String url = render(dto, "company_" + label.getCompanyId() + "/thumbnails");
+
+        if (labelRepository.updatePreviewUrl(labelId, version, url) > 0) {
+            log.debug("Построена миниатюра этикетки id={}", labelId);
+        }
+    }
+
+    private void renderTemplate(Long templateId) {
+        LabelTemplate template = labelTemplateRepository.findById(templateId).orElse(null);
+        if (template == null || template.getPreviewUrl() != null) {
+            return;
+        }
+        LocalDateTime version = template.getUpdatedAt() != null ? template.getUpdatedAt() : template.getCreatedAt();
+        LabelResponseDto dto = toDto(null, template.getWidth(), template.getHeight(), template.getConfig());
+        String directory = template.getCompanyId() != null
+                ? "company_" + template.getCompanyId() + "/thumbnails"
+                : "system/thumbnails";
+        String url = render(dto, directory);
+
+        if (labelTemplateRepository.updatePreviewUrl(templateId, version, url) > 0) {
+            log.debug("Построена миниатюра шаблона id={}", templateId);
+        }
+    }
+
+    private String render(LabelResponseDto label, String directory) {
+        // Длинная сторона миниатюры — не больше maxSize пикселей
+        double longSideMm = Math.max(label.getWidth().doubleValue(), label.getHeight().doubleValue());
+        int dpi = (int) Math.max(MIN_DPI, Math.min(MAX_DPI, maxSize * MM_PER_INCH / longSideMm));
+
+        byte[] pdf = printService.renderSamplePdf(label);
+        byte[] png = previewRasterizer.toPng(pdf, dpi).get(0);
+        return fileStorageService.getPublicUrl(fileStorageService.storeContentAddressed(png, ".png", directory));
+    }
+
+    private LabelResponseDto toDto(Long productId, BigDecimal width, BigDecimal height, String config) {
+        try {
+            return LabelResponseDto.builder()
+                    .productId(productId)
+                    .width(width)
+                    .height(height)
+                    .config(objectMapper.readValue(config, LabelConfigDto.class))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException("Неверная конфигурация: " + e.getMessage(), e);
+        }
+    }
+}
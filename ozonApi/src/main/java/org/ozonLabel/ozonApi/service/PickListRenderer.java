@@ -0,0 +1,498 @@
+package org.ozonLabel.ozonApi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.xobject.PdfImageXObject;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.dto.label.PickListRequest;
+import org.ozonLabel.common.exception.user.ValidationException;
+import org.ozonLabel.ozonApi.repository.OzonProductRepository;
+import org.ozonLabel.ozonApi.repository.OzonProductRepository.PickListRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Лист подбора: таблица товаров на страницах A4.
+ *
+ * Поля товаров и имена папок загружаются пачками одним запросом на пачку, фото — параллельно
+ * до начала вывода, в виде маленьких JPEG из кэша. Шрифты создаются один раз на документ,
+ * одинаковые фото рисуются одним XObject. Страницы сбрасываются в поток по мере заполнения.
+ */
+@Service
+@Slf4j
+public class PickListRenderer {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int PHOTO_PIXELS = 96;
+    private static final int PHOTO_CONNECT_TIMEOUT_MS = 5000;
+    private static final int PHOTO_READ_TIMEOUT_MS = 10000;
+    private static final byte[] NO_PHOTO = new byte[0];
+
+    private static final float MARGIN = 20;
+    private static final float TITLE_HEIGHT = 48;
+    private static final float HEADER_HEIGHT = 18;
+    private static final float GROUP_HEIGHT = 18;
+    private static final float ROW_HEIGHT_WITH_PHOTO = 44;
+    private static final float ROW_HEIGHT = 26;
+    private static final float FOOTER_HEIGHT = 20;
+    private static final float FONT_SIZE = 9;
+    private static final float LEADING = 10.5f;
+
+    // Колонки: левый край и ширина
+    private static final float PHOTO_X = 20, PHOTO_W = 44;
+    private static final float NAME_X = 68, NAME_W = 235;
+    private static final float BARCODE_X = 307, BARCODE_W = 110;
+    private static final float OFFER_X = 421, OFFER_W = 110;
+    private static final float QTY_X = 535, QTY_W = 40;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+    private final OzonProductRepository productRepository;
+    private final ThreadPoolTaskExecutor pickListPhotoExecutor;
+    private final FontProgram fontProgram;
+    private final FontProgram boldFontProgram;
+
+    // Миниатюры фото по URL; неудачная загрузка запоминается ненадолго
+    private final Cache<String, byte[]> photoCache = Caffeine.newBuilder()
+            .maximumWeight(16L * 1024 * 1024)
+            .weigher((String url, byte[] bytes) -> bytes.length + url.length())
+            .expireAfter(new Expiry<String, byte[]>() {
+                @Override
+                public long expireAfterCreate(String url, byte[] bytes, long currentTime) {
+                    return (bytes.length == 0 ? Duration.ofMinutes(10) : Duration.ofHours(6)).toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String url, byte[] bytes, long currentTime, long currentDuration) {
+                    return expireAfterCreate(url, bytes, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String url, byte[] bytes, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    public PickListRenderer(OzonProductRepository productRepository,
+                            ThreadPoolTaskExecutor pickListPhotoExecutor,
+                            @Value("${app.print.pick-list.font:}") String fontPath) {
+        this.productRepository = productRepository;
+        this.pickListPhotoExecutor = pickListPhotoExecutor;
+        this.fontProgram = loadFontProgram(fontPath);
+        // Жирное начертание — соседний файл *-Bold.ttf, если он есть
+        String boldPath = fontPath.replaceFirst("(?i)\\.ttf$", "-Bold.ttf");
+        this.boldFontProgram = fontProgram != null && !boldPath.equals(fontPath) && Files.isRegularFile(Paths.get(boldPath))
+                ? loadFontProgram(boldPath)
+                : fontProgram;
+    }
+
+    /**
+     * Загрузить товары и записать лист подбора в поток.
+     * Запрос уже проверен в {@link org.ozonLabel.common.service.label.PrintService#checkPickListRequest};
+     * запросы к базе и загрузка фото выполняются до первой записи в поток
+     *
+     * @return количество строк в листе
+     */
+    public int render(Long companyOwnerId, PickListRequest request, OutputStream out) {
+        List<PickListRow> rows = loadRows(companyOwnerId, request.getProductIds());
+        sortRows(rows, request.getSortBy());
+        boolean includePhotos = !Boolean.FALSE.equals(request.getIncludePhotos());
+        Map<String, byte[]> photos = includePhotos ? loadPhotos(rows) : Map.of();
+        boolean groupByFolder = "folder".equals(request.getSortBy());
+
+        try {
+            PdfDocument pdf = new PdfDocument(new PdfWriter(out));
+            pdf.setCloseWriter(false);
+            try {
+                new Writer(pdf, includePhotos, photos).write(rows, groupByFolder);
+            } finally {
+                pdf.close();
+            }
+        } catch (IOException e) {
+            throw new ValidationException("Ошибка генерации листа подбора: " + e.getMessage());
+        }
+        return rows.size();
+    }
+
+    /**
+     * Строки в порядке запроса, без повторов и без товаров чужой компании
+     */
+    private List<PickListRow> loadRows(Long companyOwnerId, List<Long> productIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        Map<Long, PickListRow> rowsById = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += LOAD_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + LOAD_BATCH_SIZE, ids.size()));
+            for (PickListRow row : productRepository.findPickListRows(companyOwnerId, batch)) {
+                rowsById.put(row.getProductId(), row);
+            }
+        }
+
+        List<PickListRow> rows = new ArrayList<>(rowsById.size());
+        for (Long id : ids) {
+            PickListRow row = rowsById.get(id);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        if (rows.size() < ids.size()) {
+            log.warn("Лист подбора компании {}: не найдено {} из {} товаров",
+                    companyOwnerId, ids.size() - rows.size(), ids.size());
+        }
+        return rows;
+    }
+
+    private void sortRows(List<PickListRow> rows, String sortBy) {
+        Comparator<PickListRow> byOfferId = Comparator.comparing(PickListRow::getOfferId,
+                Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+        if ("folder".equals(sortBy)) {
+            rows.sort(Comparator.comparing(PickListRow::getFolderName,
+                    Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)).thenComparing(byOfferId));
+        } else if ("offerId".equals(sortBy)) {
+            rows.sort(byOfferId);
+        }
+    }
+
+    /**
+     * Миниатюры фото всех строк; отсутствующие в кэше загружаются параллельно
+     */
+    private Map<String, byte[]> loadPhotos(List<PickListRow> rows) {
+        Map<String, CompletableFuture<byte[]>> futures = new LinkedHashMap<>();
+        for (PickListRow row : rows) {
+            String url = row.getImageUrl();
+            if (url == null || url.isBlank() || futures.containsKey(url)) {
+                continue;
+            }
+            byte[] cached = photoCache.getIfPresent(url);
+            futures.put(url, cached != null
+                    ? CompletableFuture.completedFuture(cached)
+                    : CompletableFuture.supplyAsync(() -> photoCache.get(url, this::loadThumbnail), pickListPhotoExecutor));
+        }
+
+        Map<String, byte[]> photos = new HashMap<>(futures.size() * 2);
+        futures.forEach((url, future) -> photos.put(url, future.join()));
+        return photos;
+    }
+
+    private byte[] loadThumbnail(String url) {
+        try {
+            URLConnection connection = new URL(url).openConnection();
+            connection.setConnectTimeout(PHOTO_CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(PHOTO_READ_TIMEOUT_MS);
+            BufferedImage source;
+            try (InputStream in = connection.getInputStream()) {
+                source = ImageIO.read(in);
+            }
+            if (source == null) {
+                return NO_PHOTO;
+            }
+
+            double scale = Math.min(1.0, (double) PHOTO_PIXELS / Math.max(source.getWidth(), source.getHeight()));
+            int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+            BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = thumbnail.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setColor(java.awt.Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                graphics.drawImage(source, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+            ImageIO.write(thumbnail, "jpg", out);
+            return out.toByteArray();
+        } catch (Exception e) {
+            log.debug("Фото для листа подбора не загружено {}: {}", url, e.getMessage());
+            return NO_PHOTO;
+        }
+    }
+
+    private static int quantity(PickListRow row) {
+        return row.getPrintQuantity() != null ? row.getPrintQuantity() : 1;
+    }
+
+    private static FontProgram loadFontProgram(String fontPath) {
+        if (fontPath == null || fontPath.isBlank()) {
+            return null;
+        }
+        try {
+            return FontProgramFactory.createFont(fontPath);
+        } catch (Exception e) {
+            log.warn("Шрифт листа подбора {} не загружен, используется Helvetica: {}", fontPath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Вывод одного документа: текущая страница и позиция на ней
+     */
+    private final class Writer {
+
+        private final PdfDocument pdf;
+        private final boolean includePhotos;
+        private final Map<String, byte[]> photos;
+        private final Map<String, PdfImageXObject> xObjects = new HashMap<>();
+        private final PdfFont font;
+        private final PdfFont boldFont;
+        private final float rowHeight;
+
+        private PdfPage page;
+        private PdfCanvas canvas;
+        private float y;
+        private int pageNumber;
+
+        Writer(PdfDocument pdf, boolean includePhotos, Map<String, byte[]> photos) throws IOException {
+            this.pdf = pdf;
+            this.includePhotos = includePhotos;
+            this.photos = photos;
+            if (fontProgram != null) {
+                this.font = PdfFontFactory.createFont(fontProgram, PdfEncodings.IDENTITY_H,
+                        PdfFontFactory.EmbeddingStrategy.PREFER_EMBEDDED);
+                this.boldFont = boldFontProgram != fontProgram
+                        ? PdfFontFactory.createFont(boldFontProgram, PdfEncodings.IDENTITY_H,
+                                PdfFontFactory.EmbeddingStrategy.PREFER_EMBEDDED)
+                        : font;
+            } else {
+                this.font = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+                this.boldFont = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+            }
+            this.rowHeight = includePhotos ? ROW_HEIGHT_WITH_PHOTO : ROW_HEIGHT;
+        }
+
+        void write(List<PickListRow> rows, boolean groupByFolder) {
+            long totalQuantity = rows.stream().mapToLong(PickListRenderer::quantity).sum();
+            newPage();
+            writeTitle(rows.size(), totalQuantity);
+            writeHeader();
+
+            String currentFolder = null;
+            boolean first = true;
+            for (PickListRow row : rows) {
+                if (groupByFolder && (first || !Objects.equals(currentFolder, row.getFolderName()))) {
+                    currentFolder = row.getFolderName();
+                    ensureSpace(GROUP_HEIGHT + rowHeight);
+                    writeGroup(currentFolder != null ? currentFolder : "Без папки");
+                }
+                first = false;
+                ensureSpace(rowHeight);
+                writeRow(row);
+            }
+            finishPage();
+        }
+
+        private void newPage() {
+            page = pdf.addNewPage(PageSize.A4);
+            canvas = new PdfCanvas(page);
+            pageNumber++;
+            y = PageSize.A4.getHeight() - MARGIN;
+        }
+
+        private void finishPage() {
+            text(font, 8, "Стр. " + pageNumber, PageSize.A4.getWidth() - MARGIN, MARGIN - 8, true);
+            canvas.release();
+            // Страница больше не меняется: её содержимое уходит в поток, в памяти остаются только общие ресурсы
+            page.flush();
+        }
+
+        private void ensureSpace(float height) {
+            if (y - height < MARGIN + FOOTER_HEIGHT) {
+                finishPage();
+                newPage();
+                writeHeader();
+            }
+        }
+
+        private void writeTitle(int positions, long totalQuantity) {
+            text(boldFont, 16, "Лист подбора", MARGIN, y - 16, false);
+            text(font, 9, "Позиций: " + positions + ", штук: " + totalQuantity
+                    + ", сформирован " + LocalDateTime.now().format(DATE_FORMAT), MARGIN, y - 32, false);
+            y -= TITLE_HEIGHT;
+        }
+
+        private void writeHeader() {
+            float baseline = y - 12;
+            if (includePhotos) {
+                text(boldFont, FONT_SIZE, "Фото", PHOTO_X, baseline, false);
+            }
+            text(boldFont, FONT_SIZE, "Название", includePhotos ? NAME_X : PHOTO_X, baseline, false);
+            text(boldFont, FONT_SIZE, "Штрихкод", BARCODE_X, baseline, false);
+            text(boldFont, FONT_SIZE, "Артикул", OFFER_X, baseline, false);
+            text(boldFont, FONT_SIZE, "Кол-во", QTY_X + QTY_W, baseline, true);
+            y -= HEADER_HEIGHT;
+            line(y, 1f);
+        }
+
+        private void writeGroup(String folderName) {
+            canvas.saveState()
+                    .setFillColor(ColorConstants.LIGHT_GRAY)
+                    .rectangle(MARGIN, y - GROUP_HEIGHT, PageSize.A4.getWidth() - 2 * MARGIN, GROUP_HEIGHT)
+                    .fill()
+                    .restoreState();
+            text(boldFont, FONT_SIZE, fit(boldFont, folderName, PageSize.A4.getWidth() - 2 * MARGIN - 8),
+                    MARGIN + 4, y - 12.5f, false);
+            y -= GROUP_HEIGHT;
+        }
+
+        private void writeRow(PickListRow row) {
+            float top = y;
+            float middle = top - rowHeight / 2;
+
+            float nameX = NAME_X;
+            float nameWidth = NAME_W;
+            if (includePhotos) {
+                PdfImageXObject photo = photo(row.getImageUrl());
+                if (photo != null) {
+                    float size = rowHeight - 4;
+                    canvas.addXObjectFittedIntoRectangle(photo, fitted(photo, PHOTO_X, top - 2 - size, PHOTO_W, size));
+                }
+            } else {
+                nameX = PHOTO_X;
+                nameWidth = NAME_X + NAME_W - PHOTO_X;
+            }
+
+            List<String> nameLines = wrap(row.getName() != null ? row.getName() : "", nameWidth - 4, 2);
+            float nameBaseline = middle + (nameLines.size() - 1) * LEADING / 2 - FONT_SIZE / 3;
+            for (String nameLine : nameLines) {
+                text(font, FONT_SIZE, nameLine, nameX, nameBaseline, false);
+                nameBaseline -= LEADING;
+            }
+
+            float baseline = middle - FONT_SIZE / 3;
+            text(font, FONT_SIZE, fit(font, nonNull(row.getBarcode()), BARCODE_W), BARCODE_X, baseline, false);
+            text(font, FONT_SIZE, fit(font, nonNull(row.getOfferId()), OFFER_W), OFFER_X, baseline, false);
+            text(boldFont, FONT_SIZE + 1, String.valueOf(quantity(row)), QTY_X + QTY_W, baseline, true);
+
+            y -= rowHeight;
+            line(y, 0.3f);
+        }
+
+        /**
+         * Одинаковые фото в документе — один XObject
+         */
+        private PdfImageXObject photo(String url) {
+            if (url == null) {
+                return null;
+            }
+            byte[] bytes = photos.get(url);
+            if (bytes == null || bytes.length == 0) {
+                return null;
+            }
+            return xObjects.computeIfAbsent(url, key -> new PdfImageXObject(ImageDataFactory.create(bytes)));
+        }
+
+        private Rectangle fitted(PdfImageXObject image, float x, float y, float width, float height) {
+            float scale = Math.min(width / image.getWidth(), height / image.getHeight());
+            float w = image.getWidth() * scale;
+            float h = image.getHeight() * scale;
+            return new Rectangle(x + (width - w) / 2, y + (height - h) / 2, w, h);
+        }
+
+        private void line(float lineY, float width) {
+            canvas.saveState()
+                    .setLineWidth(width)
+                    .moveTo(MARGIN, lineY)
+                    .lineTo(PageSize.A4.getWidth() - MARGIN, lineY)
+                    .stroke()
+                    .restoreState();
+        }
+
+        private void text(PdfFont textFont, float size, String text, float x, float baseline, boolean alignRight) {
+            if (text.isEmpty()) {
+                return;
+            }
+            float textX = alignRight ? x - textFont.getWidth(text, size) : x;
+            canvas.beginText()
+                    .setFontAndSize(textFont, size)
+                    .moveText(textX, baseline)
+                    .showText(text)
+                    .endText();
+        }
+
+        /**
+         * Обрезать строку по ширине колонки
+         */
+        private String fit(PdfFont textFont, String text, float width) {
+            if (textFont.getWidth(text, FONT_SIZE) <= width) {
+                return text;
+            }
+            int end = text.length();
+            while (end > 0 && textFont.getWidth(text.substring(0, end) + "...", FONT_SIZE) > width) {
+                end--;
+            }
+            return text.substring(0, end) + "...";
+        }
+
+        /**
+         * Разбить строку по словам не более чем на maxLines строк, последняя обрезается
+         */
+        private List<String> wrap(String text, float width, int maxLines) {
+            List<String> lines = new ArrayList<>(maxLines);
+            String rest = text.trim();
+            while (!rest.isEmpty() && lines.size() < maxLines - 1 && font.getWidth(rest, FONT_SIZE) > width) {
+                int split = rest.length();
+                int space;
+                while ((space = rest.lastIndexOf(' ', split - 1)) > 0
+                        && font.getWidth(rest.substring(0, space), FONT_SIZE) > width) {
+                    split = space;
+                }
+                if (space <= 0) {
+                    break;
+                }
+                lines.add(rest.substring(0, space));
+                rest = rest.substring(space + 1).trim();
+            }
+            if (!rest.isEmpty()) {
+                lines.add(fit(font, rest, width));
+            }
+            return lines;
+        }
+
+        private String nonNull(String value) {
+            return value != null ? value : "";
+        }
+    }
+}
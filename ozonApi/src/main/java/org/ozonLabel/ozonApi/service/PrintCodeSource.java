@@ -0,0 +1,125 @@
+package org.ozonLabel.ozonApi.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.dto.datamatrix.DataMatrixCodeDto;
+import org.ozonLabel.common.service.datamatrix.DataMatrixService;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Источник DataMatrix кодов для одного задания печати.
+ *
+ * Обычная печать резервирует новые коды и запоминает, какие списала. Перепечатка берёт
+ * записанные коды задания в том же порядке и ничего не резервирует: если кодов записано
+ * меньше, чем мест под DataMatrix, рисуется заглушка, как при нехватке кодов.
+ * Предпросмотр рисует образец кода и тоже ничего не списывает.
+ */
+public abstract class PrintCodeSource {
+
+    // Образец кода для предпросмотра: GTIN, серийный номер, ключ и код проверки — как у реального кода
+    private static final String SAMPLE_CODE = "0104600000000000215PREVIEW000000"
+            + "\u001d" + "91EE06" + "\u001d" + "92" + "PREVIEWPREVIEWPREVIEWPREVIEWPREVIEWPREVIEW00";
+
+    private static final PrintCodeSource PLACEHOLDER = new PrintCodeSource() {
+        @Override
+        public Optional<String> next(Long productId, Long fileId) {
+            return Optional.of(SAMPLE_CODE);
+        }
+    };
+
+    /**
+     * Код для очередного DataMatrix элемента этикетки товара
+     *
+     * @param fileId файл, к которому привязан элемент, или null
+     */
+    public abstract Optional<String> next(Long productId, Long fileId);
+
+    /**
+     * Коды, списанные этим источником, в порядке печати
+     */
+    public List<ReservedCode> reserved() {
+        return List.of();
+    }
+
+    /**
+     * Списанный код: товар, на этикетке которого он напечатан, и ID кода
+     */
+    public record ReservedCode(Long productId, Long codeId) {
+    }
+
+    /**
+     * Записанный код задания для перепечатки
+     */
+    public record RecordedCode(Long productId, String code) {
+    }
+
+    public static PrintCodeSource reserving(DataMatrixService dataMatrixService, String userEmail, Long companyOwnerId) {
+        return new Reserving(dataMatrixService, userEmail, companyOwnerId);
+    }
+
+    public static PrintCodeSource replay(List<RecordedCode> codes) {
+        return new Replay(codes);
+    }
+
+    /**
+     * Предпросмотр: вместо кодов — один образец кода Честного знака той же длины.
+     * Символ получается того же размера, что и на печати, а коды не резервируются
+     */
+    public static PrintCodeSource placeholder() {
+        return PLACEHOLDER;
+    }
+
+    @Slf4j
+    private static final class Reserving extends PrintCodeSource {
+
+        private final DataMatrixService dataMatrixService;
+        private final String userEmail;
+        private final Long companyOwnerId;
+        private final List<ReservedCode> reserved = new ArrayList<>();
+
+        Reserving(DataMatrixService dataMatrixService, String userEmail, Long companyOwnerId) {
+            this.dataMatrixService = dataMatrixService;
+            this.userEmail = userEmail;
+            this.companyOwnerId = companyOwnerId;
+        }
+
+        @Override
+        public Optional<String> next(Long productId, Long fileId) {
+            Optional<DataMatrixCodeDto> code = dataMatrixService.reserveNextCode(userEmail, companyOwnerId, productId, fileId);
+            if (code.isEmpty()) {
+                log.warn("Нет доступных DataMatrix кодов для продукта {} (файл {})", productId, fileId);
+                return Optional.empty();
+            }
+            reserved.add(new ReservedCode(productId, code.get().getId()));
+            return Optional.of(code.get().getCode());
+        }
+
+        @Override
+        public List<ReservedCode> reserved() {
+            return List.copyOf(reserved);
+        }
+    }
+
+    private static final class Replay extends PrintCodeSource {
+
+        private final Map<Long, Deque<String>> codesByProduct = new HashMap<>();
+
+        Replay(List<RecordedCode> codes) {
+            for (RecordedCode code : codes) {
+                codesByProduct.computeIfAbsent(code.productId(), id -> new ArrayDeque<>()).add(code.code());
+            }
+        }
+
+        @Override
+        public Optional<String> next(Long productId, Long fileId) {
+            Deque<String> codes = codesByProduct.get(productId);
+            return codes != null ? Optional.ofNullable(codes.poll()) : Optional.empty();
+        }
+    }
+}
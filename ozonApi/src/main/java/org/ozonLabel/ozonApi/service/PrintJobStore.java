@@ -0,0 +1,265 @@
+package org.ozonLabel.ozonApi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.dto.label.PrintRequest;
+import org.ozonLabel.common.dto.label.PrintResponse;
+import org.ozonLabel.common.exception.user.ResourceNotFoundException;
+import org.ozonLabel.common.exception.user.ValidationException;
+import org.ozonLabel.ozonApi.entity.PrintJob;
+import org.ozonLabel.ozonApi.repository.PrintJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Хранилище заданий печати.
+ *
+ * Строка задания (параметры и списанные коды) хранится в БД бессрочно, файл задания — на диске
+ * в течение {@code app.print.jobs.ttl}: срок считается от времени изменения файла, просроченные
+ * файлы удаляет фоновый поток. Файл пишется после коммита — если записать не удалось,
+ * задание соберётся заново из кодов при первой перепечатке.
+ */
+@Service
+@Slf4j
+public class PrintJobStore {
+
+    private static final String INSERT_CODE_SQL =
+            "INSERT INTO print_job_codes (job_id, seq, product_id, code_id) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_CODES_SQL = """
+            SELECT j.product_id, c.code
+            FROM print_job_codes j
+            JOIN datamatrix_codes c ON c.id = j.code_id
+            WHERE j.job_id = ?
+            ORDER BY j.seq
+            """;
+
+    private static final String ARTIFACT_PREFIX = "job-";
+
+    private final PrintJobRepository printJobRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path dir;
+    private final Duration ttl;
+    private final Duration cleanupInterval;
+
+    private ScheduledExecutorService cleaner;
+
+    public PrintJobStore(PrintJobRepository printJobRepository,
+                         JdbcTemplate jdbcTemplate,
+                         ObjectMapper objectMapper,
+                         @Value("${app.print.jobs.dir:print-jobs}") String dir,
+                         @Value("${app.print.jobs.ttl:PT24H}") Duration ttl,
+                         @Value("${app.print.jobs.cleanup-interval:PT10M}") Duration cleanupInterval) {
+        this.printJobRepository = printJobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.ttl = ttl;
+        this.cleanupInterval = cleanupInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        cleaner = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "print-job-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::deleteExpiredArtifacts,
+                cleanupInterval.toMillis(), cleanupInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Хранилище заданий печати: {}, срок хранения файлов {}", dir, ttl);
+    }
+
+    @PreDestroy
+    public void stop() {
+        cleaner.shutdownNow();
+    }
+
+    /**
+     * Сохранить задание и списанные им коды в текущей транзакции, файл — после коммита
+     *
+     * @return ID задания
+     */
+    public Long save(String userEmail, Long companyOwnerId, PrintRequest request, PrintResponse response,
+                     List<PrintCodeSource.ReservedCode> reservedCodes) {
+        PrintJob job = printJobRepository.save(PrintJob.builder()
+                .companyId(companyOwnerId)
+                .userEmail(userEmail)
+                .outputFormat(response.getOutputFormat())
+                .request(toJson(request))
+                .totalLabels(response.getTotalLabels() != null ? response.getTotalLabels() : 0)
+                .codesUsed(reservedCodes.size())
+                .expiresAt(LocalDateTime.now().plus(ttl))
+                .build());
+
+        if (!reservedCodes.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(reservedCodes.size());
+            for (int seq = 0; seq < reservedCodes.size(); seq++) {
+                PrintCodeSource.ReservedCode code = reservedCodes.get(seq);
+                rows.add(new Object[]{job.getId(), seq, code.productId(), code.codeId()});
+            }
+            jdbcTemplate.batchUpdate(INSERT_CODE_SQL, rows);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writeArtifactQuietly(job, response);
+                }
+            });
+        } else {
+            writeArtifactQuietly(job, response);
+        }
+
+        log.info("Сохранено задание печати {} компании {}: этикеток {}, кодов {}",
+                job.getId(), companyOwnerId, job.getTotalLabels(), reservedCodes.size());
+        return job.getId();
+    }
+
+    public PrintJob getJob(Long companyOwnerId, Long printJobId) {
+        return printJobRepository.findByIdAndCompanyId(printJobId, companyOwnerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Задание печати с id=" + printJobId + " не найдено"));
+    }
+
+    public PrintRequest readRequest(PrintJob job) {
+        try {
+            return objectMapper.readValue(job.getRequest(), PrintRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Не удалось прочитать параметры задания печати");
+        }
+    }
+
+    /**
+     * Коды, списанные заданием, в порядке печати
+     */
+    public List<PrintCodeSource.RecordedCode> recordedCodes(Long printJobId) {
+        return jdbcTemplate.query(SELECT_CODES_SQL,
+                (rs, rowNum) -> new PrintCodeSource.RecordedCode(rs.getLong(1), rs.getString(2)),
+                printJobId);
+    }
+
+    /**
+     * Файл задания, если он ещё хранится
+     */
+    public Optional<Path> findArtifact(PrintJob job) {
+        Path file = artifactPath(job);
+        try {
+            if (Files.isRegularFile(file) && !isExpired(file)) {
+                return Optional.of(file);
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось проверить файл задания печати {}: {}", job.getId(), e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Записать файл задания и продлить срок его хранения
+     */
+    public Path storeArtifact(PrintJob job, PrintResponse response) {
+        try {
+            Path file = writeArtifact(job, response);
+            printJobRepository.updateExpiresAt(job.getId(), LocalDateTime.now().plus(ttl));
+            return file;
+        } catch (IOException e) {
+            log.error("Ошибка сохранения файла задания печати {}", job.getId(), e);
+            throw new ValidationException("Не удалось сохранить файл задания печати");
+        }
+    }
+
+    public static String contentType(String outputFormat) {
+        return "PDF".equals(outputFormat) ? MediaType.APPLICATION_PDF_VALUE : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    public static String fileName(PrintJob job) {
+        return "labels-" + job.getId() + "." + job.getOutputFormat().toLowerCase();
+    }
+
+    private void writeArtifactQuietly(PrintJob job, PrintResponse response) {
+        try {
+            writeArtifact(job, response);
+        } catch (IOException e) {
+            log.warn("Файл задания печати {} не сохранён, при перепечатке он будет собран заново: {}",
+                    job.getId(), e.getMessage());
+        }
+    }
+
+    private Path writeArtifact(PrintJob job, PrintResponse response) throws IOException {
+        byte[] data = response.getPdfData() != null ? response.getPdfData() : response.getPrinterData();
+        Files.createDirectories(dir);
+        Path file = artifactPath(job);
+        Path tempFile = Files.createTempFile(dir, ARTIFACT_PREFIX, ".tmp");
+        try {
+            Files.write(tempFile, data);
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return file;
+    }
+
+    private Path artifactPath(PrintJob job) {
+        return dir.resolve(ARTIFACT_PREFIX + job.getId() + "." + job.getOutputFormat().toLowerCase());
+    }
+
+    private boolean isExpired(Path file) throws IOException {
+        return Files.getLastModifiedTime(file).toInstant().plus(ttl).isBefore(Instant.now());
+    }
+
+    private void deleteExpiredArtifacts() {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, ARTIFACT_PREFIX + "*")) {
+            for (Path file : files) {
+                try {
+                    if (isExpired(file)) {
+                        Files.deleteIfExists(file);
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    log.warn("Не удалось удалить файл задания печати {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Ошибка очистки файлов заданий печати: {}", e.getMessage(), e);
+        }
+        if (deleted > 0) {
+            log.info("Удалено просроченных файлов заданий печати: {}", deleted);
+        }
+    }
+
+    private String toJson(PrintRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Не удалось сохранить параметры задания печати");
+        }
+    }
+}
@@ -6,20 +6,19 @@ import com.itextpdf.kernel.colors.Color;
 import com.itextpdf.kernel.colors.DeviceRgb;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
 import com.itextpdf.kernel.geom.PageSize;
 import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.layout.Canvas;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.borders.SolidBorder;
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.EncodeHintType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.zxing.WriterException;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.datamatrix.DataMatrixWriter;
-import com.google.zxing.qrcode.QRCodeWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.ozonLabel.common.dto.label.*;
@@ -28,7 +27,10 @@ import org.ozonLabel.common.service.datamatrix.DataMatrixService;
 import org.ozonLabel.common.service.label.LabelService;
 import org.ozonLabel.common.service.label.PrintService;
 import org.ozonLabel.common.service.user.CompanyService;
+import org.ozonLabel.ozonApi.entity.PrintJob;
+import org.ozonLabel.ozonApi.util.BarcodeSymbolRenderer;
 import org.ozonLabel.ozonApi.util.DateCalculator;
+import org.ozonLabel.ozonApi.util.ImageDownloader;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -36,10 +38,14 @@ import com.itextpdf.kernel.font.PdfFont;
 import com.itextpdf.kernel.font.PdfFontFactory;
 import com.itextpdf.io.font.constants.StandardFonts;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 @Service
@@ -51,15 +57,172 @@ public class PrintServiceImpl implements PrintService {
     private final CompanyService companyService;
     private final DataMatrixService dataMatrixService;
     private final DateCalculator dateCalculator;
+    private final LabelPageCache pageCache;
+    private final BarcodeSymbolRenderer symbolRenderer;
+    private final ThermalPrintRenderer thermalPrintRenderer;
+    private final PrintJobStore printJobStore;
+    private final LabelPreviewRasterizer previewRasterizer;
+    private final PickListRenderer pickListRenderer;
 
     // Константы для конвертации мм в пункты (1 мм ≈ 2.835 pt при 72 dpi)
     private static final double MM_TO_POINTS = 2.83464567;
 
+    private static final int DEFAULT_PREVIEW_LABELS = 4;
+    private static final int MAX_PREVIEW_LABELS = 20;
+    private static final int DEFAULT_PREVIEW_DPI = 96;
+    private static final int MIN_PREVIEW_DPI = 36;
+    private static final int MAX_PREVIEW_DPI = 300;
+
+    // Изображения этикеток по URL: копии и предпросмотры не скачивают одну картинку заново
+    private final Cache<String, byte[]> imageCache = Caffeine.newBuilder()
+            .maximumWeight(32L * 1024 * 1024)
+            .weigher((String url, byte[] bytes) -> bytes.length)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
     @Override
     @Transactional
     public PrintResponse generateLabelsPdf(String userEmail, Long companyOwnerId, PrintRequest request) {
         companyService.checkAccess(userEmail, companyOwnerId);
 
+        Map<Long, LabelResponseDto> labelsByProductId = loadLabels(userEmail, companyOwnerId, request);
+        PrintCodeSource codes = PrintCodeSource.reserving(dataMatrixService, userEmail, companyOwnerId);
+        PrintResponse response = render(request, labelsByProductId, codes);
+
+        // Задание сохраняется вместе со списанными кодами: перепечатка не тратит новые коды
+        response.setPrintJobId(printJobStore.save(userEmail, companyOwnerId, request, response, codes.reserved()));
+        return response;
+    }
+
+    @Override
+    @Transactional
+    public PrintJobFileDto getPrintJobFile(String userEmail, Long companyOwnerId, Long printJobId) {
+        companyService.checkAccess(userEmail, companyOwnerId);
+
+        PrintJob job = printJobStore.getJob(companyOwnerId, printJobId);
+        Path file = printJobStore.findArtifact(job).orElseGet(() -> {
+            // Файл истёк или потерян — собираем заново из записанных кодов, ничего не резервируя
+            PrintRequest request = printJobStore.readRequest(job);
+            PrintCodeSource codes = PrintCodeSource.replay(printJobStore.recordedCodes(job.getId()));
+            PrintResponse response = render(request, loadLabels(userEmail, companyOwnerId, request), codes);
+            log.info("Задание печати {} собрано заново из записанных кодов пользователем {}", job.getId(), userEmail);
+            return printJobStore.storeArtifact(job, response);
+        });
+
+        return PrintJobFileDto.builder()
+                .path(file)
+                .outputFormat(job.getOutputFormat())
+                .contentType(PrintJobStore.contentType(job.getOutputFormat()))
+                .fileName(PrintJobStore.fileName(job))
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PrintPreviewResponse generatePreview(String userEmail, Long companyOwnerId, PrintRequest request,
+                                                String format, Integer limit, Integer dpi) {
+        companyService.checkAccess(userEmail, companyOwnerId);
+
+        boolean pdfPreview = "PDF".equalsIgnoreCase(format);
+        if (!pdfPreview && format != null && !format.isBlank() && !"PNG".equalsIgnoreCase(format)) {
+            throw new ValidationException("Неподдерживаемый формат предпросмотра: " + format);
+        }
+        int maxLabels = limit != null ? Math.min(Math.max(limit, 1), MAX_PREVIEW_LABELS) : DEFAULT_PREVIEW_LABELS;
+        int resolution = dpi != null ? Math.min(Math.max(dpi, MIN_PREVIEW_DPI), MAX_PREVIEW_DPI) : DEFAULT_PREVIEW_DPI;
+
+        long started = System.nanoTime();
+        PrintRequest preview = firstLabels(request, maxLabels);
+        PrintResponse rendered = renderPdf(preview, loadLabels(userEmail, companyOwnerId, preview),
+                PrintCodeSource.placeholder());
+
+        PrintPreviewResponse.PrintPreviewResponseBuilder response = PrintPreviewResponse.builder()
+                .previewLabels(rendered.getTotalLabels())
+                .totalLabels(countLabels(request));
+        if (pdfPreview) {
+            response.format("PDF").pdfData(rendered.getPdfData());
+        } else {
+            response.format("PNG").images(previewRasterizer.toPng(rendered.getPdfData(), resolution));
+        }
+
+        log.debug("Предпросмотр {} этикеток сгенерирован за {} мс",
+                rendered.getTotalLabels(), (System.nanoTime() - started) / 1_000_000);
+        return response.build();
+    }
+
+    @Override
+    @Transactional
+    public PrintResponse renderLabelsPdf(String userEmail, Long companyOwnerId, PrintRequest request,
+                                         Map<Long, LabelResponseDto> labelsByProductId) {
+        return renderPdf(request, labelsByProductId,
+                PrintCodeSource.reserving(dataMatrixService, userEmail, companyOwnerId));
+    }
+
+    /**
+     * PDF одной этикетки с образцами DataMatrix кодов — для миниатюр шаблонов и этикеток.
+     * Доступ не проверяется, коды не резервируются
+     */
+    public byte[] renderSamplePdf(LabelResponseDto label) {
+        Long key = label.getProductId() != null ? label.getProductId() : 0L;
+        PrintRequest request = PrintRequest.builder().productIds(List.of(key)).build();
+        return renderPdf(request, Map.of(key, label), PrintCodeSource.placeholder()).getPdfData();
+    }
+
+    private Map<Long, LabelResponseDto> loadLabels(String userEmail, Long companyOwnerId, PrintRequest request) {
+        // Все этикетки задания одним запросом
+        Map<Long, LabelResponseDto> labelsByProductId = new HashMap<>();
+        for (LabelResponseDto label : labelService.getLabelsByProductIds(userEmail, companyOwnerId, request.getProductIds())) {
+            labelsByProductId.put(label.getProductId(), label);
+        }
+        return labelsByProductId;
+    }
+
+    /**
+     * Запрос на первые maxLabels этикеток задания в порядке печати
+     */
+    private PrintRequest firstLabels(PrintRequest request, int maxLabels) {
+        Map<Long, Integer> copies = request.getCopies() != null ? request.getCopies() : Map.of();
+        List<Long> productIds = new ArrayList<>();
+        Map<Long, Integer> previewCopies = new HashMap<>();
+        int remaining = maxLabels;
+        for (Long productId : request.getProductIds()) {
+            if (remaining <= 0) {
+                break;
+            }
+            int count = Math.min(Math.max(1, copies.getOrDefault(productId, 1)), remaining);
+            productIds.add(productId);
+            previewCopies.put(productId, count);
+            remaining -= count;
+        }
+        return PrintRequest.builder()
+                .productIds(productIds)
+                .copies(previewCopies)
+                .separatorType(request.getSeparatorType())
+                .customSeparatorImageUrl(request.getCustomSeparatorImageUrl())
+                .sheetLayout(request.getSheetLayout())
+                .build();
+    }
+
+    private static int countLabels(PrintRequest request) {
+        Map<Long, Integer> copies = request.getCopies() != null ? request.getCopies() : Map.of();
+        int total = 0;
+        for (Long productId : request.getProductIds()) {
+            total += Math.max(1, copies.getOrDefault(productId, 1));
+        }
+        return total;
+    }
+
+    private PrintResponse render(PrintRequest request, Map<Long, LabelResponseDto> labelsByProductId,
+                                 PrintCodeSource codes) {
+        // ZPL/TSPL — команды термопринтера вместо PDF
+        String outputFormat = request.getOutputFormat();
+        if (outputFormat != null && !outputFormat.isBlank() && !"PDF".equalsIgnoreCase(outputFormat)) {
+            return thermalPrintRenderer.render(request, labelsByProductId, codes);
+        }
+        return renderPdf(request, labelsByProductId, codes);
+    }
+
+    private PrintResponse renderPdf(PrintRequest request, Map<Long, LabelResponseDto> labelsByProductId,
+                                    PrintCodeSource codes) {
         int totalLabels = 0;
         int dataMatrixCodesUsed = 0;
         List<Long> productsMissingDmCodes = new ArrayList<>();
@@ -74,16 +237,24 @@ public class PrintServiceImpl implements PrintService {
 
             boolean firstLabel = true;
             Long lastProductId = null;
+            // Фоны, уже скопированные в этот документ: повторные копии ссылаются на тот же XObject
+            Map<String, PdfFormXObject> jobBackgrounds = new HashMap<>();
+
+            // Режим листа: этикетки раскладываются по сетке на листах вместо страницы на этикетку
+            SheetPlacer sheet = null;
+            if (request.getSheetLayout() != null) {
+                sheet = new SheetPlacer(pdf, request.getSheetLayout());
+                for (Long productId : productIds) {
+                    LabelResponseDto label = labelsByProductId.get(productId);
+                    if (label != null && label.getWidth() != null && label.getHeight() != null) {
+                        sheet.checkFits(label);
+                    }
+                }
+            }
 
             for (Long productId : productIds) {
                 try {
-                    LabelResponseDto label;
-                    try {
-                        label = labelService.getLabelByProductId(userEmail, companyOwnerId, productId);
-                    } catch (Exception e) {
-                        log.warn("Этикетка для продукта {} не найдена, пропускаем", productId);
-                        continue;
-                    }
+                    LabelResponseDto label = labelsByProductId.get(productId);
 
                     // Защита от null
                     if (label == null) {
@@ -98,13 +269,17 @@ public class PrintServiceImpl implements PrintService {
                     int copiesCount = copies.getOrDefault(productId, 1);
                     if (copiesCount <= 0) copiesCount = 1;
 
+                    LabelPagePlan plan = planLabelPage(label);
+
                     for (int i = 0; i < copiesCount; i++) {
-                        if (!firstLabel && !separatorType.equals("NONE") && !productId.equals(lastProductId)) {
+                        if (sheet == null && !firstLabel && !separatorType.equals("NONE") && !productId.equals(lastProductId)) {
                             addSeparator(pdf, separatorType);
                         }
 
                         totalLabels++;
-                        int[] codesUsedInfo = generateLabelPage(pdf, label, userEmail, companyOwnerId, productId);
+                        int[] codesUsedInfo = sheet != null
+                                ? placeLabelOnSheet(sheet, pdf, label, plan, jobBackgrounds, codes, productId)
+                                : generateLabelPage(pdf, label, plan, jobBackgrounds, codes, productId);
                         dataMatrixCodesUsed += codesUsedInfo[0];
                         if (codesUsedInfo[1] > 0) {
                             productsMissingDmCodes.add(productId);
@@ -121,12 +296,14 @@ public class PrintServiceImpl implements PrintService {
                 }
             }
 
+            int pages = sheet != null ? sheet.pages() : totalLabels;
             pdf.close();
-            log.info("Сгенерирован PDF с этикетками для {} продуктов, всего страниц: {}, списано DataMatrix кодов: {}",
-                    productIds.size(), totalLabels, dataMatrixCodesUsed);
+            log.info("Сгенерирован PDF с этикетками для {} продуктов, этикеток: {}, страниц: {}, DataMatrix кодов: {}",
+                    productIds.size(), totalLabels, pages, dataMatrixCodesUsed);
 
             return PrintResponse.builder()
                     .pdfData(baos.toByteArray())
+                    .outputFormat("PDF")
                     .totalLabels(totalLabels)
                     .dataMatrixCodesUsed(dataMatrixCodesUsed)
                     .productsMissingDmCodes(productsMissingDmCodes)
@@ -141,53 +318,118 @@ public class PrintServiceImpl implements PrintService {
     @Override
     @Transactional(readOnly = true)
     public byte[] generatePickListPdf(String userEmail, Long companyOwnerId, PickListRequest request) {
-        companyService.checkAccess(userEmail, companyOwnerId);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writePickListPdf(userEmail, companyOwnerId, request, baos);
+        return baos.toByteArray();
+    }
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdf = new PdfDocument(writer);
+    @Override
+    public void checkPickListRequest(String userEmail, Long companyOwnerId, PickListRequest request) {
+        companyService.checkAccess(userEmail, companyOwnerId);
 
-            PdfPage page = pdf.addNewPage(PageSize.A4);
-            PdfCanvas pdfCanvas = new PdfCanvas(page);
-            Canvas canvas = new Canvas(pdfCanvas, page.getPageSize());
+        if (request.getProductIds() == null || request.getProductIds().isEmpty()) {
+            throw new ValidationException("Не выбрано товаров для листа подбора");
+        }
+    }
 
-            Paragraph title = new Paragraph("Лист подбора")
-                    .setFontSize(18)
-                    .setBold()
-                    .setTextAlignment(TextAlignment.CENTER);
-            canvas.showTextAligned(title, 297, 820, TextAlignment.CENTER);
+    @Override
+    @Transactional(readOnly = true)
+    public void writePickListPdf(String userEmail, Long companyOwnerId, PickListRequest request, OutputStream out) {
+        checkPickListRequest(userEmail, companyOwnerId, request);
 
-            float yPosition = 780;
-            String[] headers = {"Фото", "Название", "Штрихкод", "Артикул", "Кол-во"};
+        long start = System.currentTimeMillis();
+        int rows = pickListRenderer.render(companyOwnerId, request, out);
+        log.info("Сгенерирован лист подбора компании {}: {} строк за {} мс",
+                companyOwnerId, rows, System.currentTimeMillis() - start);
+    }
 
-            float xPosition = 20;
-            for (String header : headers) {
-                Paragraph p = new Paragraph(header).setFontSize(10).setBold();
-                canvas.showTextAligned(p, xPosition + 5, yPosition, TextAlignment.LEFT);
-                xPosition += 100;
+    /**
+     * Разделить элементы этикетки на статический фон и динамический слой.
+     * Фон — все элементы (в порядке zIndex) до первого DataMatrix: он одинаков для всех копий
+     * и берётся из {@link LabelPageCache}. Всё, что выше первого DataMatrix, рисуется заново,
+     * чтобы порядок наложения совпадал с обычным рендерингом.
+     * Умная дата зависит только от текущего дня, поэтому дата входит в ключ и остаётся в фоне.
+     */
+    private LabelPagePlan planLabelPage(LabelResponseDto label) {
+        List<ElementDto> elements = new ArrayList<>();
+        for (ElementDto element : label.getConfig().getElements()) {
+            if (element != null && (element.getVisible() == null || element.getVisible())) {
+                elements.add(element);
             }
+        }
+        elements.sort(Comparator.comparingInt(e -> e.getZIndex() != null ? e.getZIndex() : 0));
 
-            pdfCanvas.rectangle(20, yPosition - 5, 574, 1);
-            pdfCanvas.stroke();
-
-            canvas.close();
-            pdf.close();
+        int split = 0;
+        while (split < elements.size() && !"datamatrix".equals(elements.get(split).getType())) {
+            split++;
+        }
+        List<ElementDto> background = elements.subList(0, split);
+        List<ElementDto> overlay = elements.subList(split, elements.size());
 
-            log.info("Сгенерирован лист подбора для {} продуктов", request.getProductIds().size());
-            return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Ошибка генерации листа подбора: {}", e.getMessage(), e);
-            throw new ValidationException("Ошибка генерации листа подбора: " + e.getMessage());
+        if (background.isEmpty()) {
+            return new LabelPagePlan(null, background, overlay);
         }
+
+        boolean hasSmartDate = background.stream().anyMatch(e -> "date".equals(e.getType())
+                && e.getDateSettings() != null && Boolean.TRUE.equals(e.getDateSettings().getSmartDate()));
+        String key = pageCache.key(label.getWidth(), label.getHeight(), background,
+                hasSmartDate ? LocalDate.now().toString() : "");
+        return new LabelPagePlan(key, background, overlay);
     }
 
-    private int[] generateLabelPage(PdfDocument pdf, LabelResponseDto label, String userEmail, Long companyOwnerId, Long productId) {
+    private int[] generateLabelPage(PdfDocument pdf, LabelResponseDto label, LabelPagePlan plan,
+                                    Map<String, PdfFormXObject> jobBackgrounds,
+                                    PrintCodeSource codes, Long productId) {
         float widthPt = label.getWidth().floatValue() * (float) MM_TO_POINTS;
         float heightPt = label.getHeight().floatValue() * (float) MM_TO_POINTS;
 
         PdfPage page = pdf.addNewPage(new PageSize(widthPt, heightPt));
-        PdfCanvas pdfCanvas = new PdfCanvas(page);
-        Canvas canvas = new Canvas(pdfCanvas, page.getPageSize());
+        Canvas canvas = new Canvas(new PdfCanvas(page), page.getPageSize());
+        return drawLabel(pdf, canvas, label, plan, jobBackgrounds, codes, productId);
+    }
+
+    /**
+     * Поставить этикетку в следующую ячейку листа.
+     * Этикетка без DataMatrix целиком статична — это её фон, один XObject на все копии.
+     * Иначе копия рисуется в собственный Form XObject поверх того же общего фона.
+     */
+    private int[] placeLabelOnSheet(SheetPlacer sheet, PdfDocument pdf, LabelResponseDto label, LabelPagePlan plan,
+                                    Map<String, PdfFormXObject> jobBackgrounds,
+                                    PrintCodeSource codes, Long productId) {
+        float widthPt = label.getWidth().floatValue() * (float) MM_TO_POINTS;
+        float heightPt = label.getHeight().floatValue() * (float) MM_TO_POINTS;
+
+        if (plan.overlay().isEmpty() && plan.backgroundKey() != null) {
+            sheet.place(jobBackgrounds.computeIfAbsent(plan.backgroundKey(),
+                    key -> copyBackground(pdf, label, plan, widthPt, heightPt)), heightPt);
+            return new int[]{0, 0};
+        }
+
+        PdfFormXObject form = new PdfFormXObject(new Rectangle(widthPt, heightPt));
+        int[] result = drawLabel(pdf, new Canvas(form, pdf), label, plan, jobBackgrounds,
+                codes, productId);
+        sheet.place(form, heightPt);
+        return result;
+    }
+
+    /**
+     * Нарисовать этикетку на холсте (страница или Form XObject): общий фон и динамический слой
+     */
+    private int[] drawLabel(PdfDocument pdf, Canvas canvas, LabelResponseDto label, LabelPagePlan plan,
+                            Map<String, PdfFormXObject> jobBackgrounds,
+                            PrintCodeSource codes, Long productId) {
+        float widthPt = label.getWidth().floatValue() * (float) MM_TO_POINTS;
+        float heightPt = label.getHeight().floatValue() * (float) MM_TO_POINTS;
+
+        if (plan.backgroundKey() != null) {
+            try {
+                PdfFormXObject background = jobBackgrounds.computeIfAbsent(plan.backgroundKey(),
+                        key -> copyBackground(pdf, label, plan, widthPt, heightPt));
+                canvas.getPdfCanvas().addXObjectAt(background, 0, 0);
+            } catch (Exception e) {
+                log.error("Ошибка вставки фона этикетки: {}", e.getMessage(), e);
+            }
+        }
 
         int dataMatrixCodesUsed = 0;
         int missingCodesCount = 0;
@@ -195,14 +437,8 @@ public class PrintServiceImpl implements PrintService {
         try {
             LabelConfigDto config = label.getConfig();
 
-            List<ElementDto> elements = new ArrayList<>(config.getElements());
-            elements.sort(Comparator.comparingInt(e -> e.getZIndex() != null ? e.getZIndex() : 0));
-
-            for (ElementDto element : elements) {
-                if (element.getVisible() != null && !element.getVisible()) {
-                    continue;
-                }
-                int[] renderResult = renderElement(canvas, element, config, userEmail, companyOwnerId, productId);
+            for (ElementDto element : plan.overlay()) {
+                int[] renderResult = renderElement(canvas, element, config, codes, productId);
                 dataMatrixCodesUsed += renderResult[0];
                 missingCodesCount += renderResult[1];
             }
@@ -216,7 +452,132 @@ public class PrintServiceImpl implements PrintService {
         return new int[]{dataMatrixCodesUsed, missingCodesCount};
     }
 
-    private int[] renderElement(Canvas canvas, ElementDto element, LabelConfigDto config, String userEmail, Long companyOwnerId, Long productId) {
+    /**
+     * Размещение этикеток на листах по сетке rows×columns.
+     * Ячейки одинаковые: поля листа симметричны, этикетка ставится в левый верхний угол ячейки
+     */
+    private static final class SheetPlacer {
+
+        private final PdfDocument pdf;
+        private final PageSize pageSize;
+        private final int rows;
+        private final int columns;
+        private final float marginTop;
+        private final float marginLeft;
+        private final float pitchX;
+        private final float pitchY;
+        private final float cellWidth;
+        private final float cellHeight;
+
+        private PdfCanvas pageCanvas;
+        private int slot;
+        private int pages;
+
+        SheetPlacer(PdfDocument pdf, SheetLayoutDto layout) {
+            float pageWidth = mm(layout.getPageWidth(), 210);
+            float pageHeight = mm(layout.getPageHeight(), 297);
+            this.rows = layout.getRows() != null ? layout.getRows() : 0;
+            this.columns = layout.getColumns() != null ? layout.getColumns() : 0;
+            if (rows < 1 || columns < 1 || rows > 100 || columns > 100) {
+                throw new ValidationException("Количество строк и столбцов на листе должно быть от 1 до 100");
+            }
+            this.marginTop = mm(layout.getMarginTop(), 0);
+            this.marginLeft = mm(layout.getMarginLeft(), 0);
+            float gutterX = mm(layout.getHorizontalGutter(), 0);
+            float gutterY = mm(layout.getVerticalGutter(), 0);
+
+            this.cellWidth = (pageWidth - 2 * marginLeft - (columns - 1) * gutterX) / columns;
+            this.cellHeight = (pageHeight - 2 * marginTop - (rows - 1) * gutterY) / rows;
+            if (cellWidth <= 0 || cellHeight <= 0) {
+                throw new ValidationException("Поля и промежутки не оставляют места для этикеток на листе");
+            }
+            this.pdf = pdf;
+            this.pageSize = new PageSize(pageWidth, pageHeight);
+            this.pitchX = cellWidth + gutterX;
+            this.pitchY = cellHeight + gutterY;
+            this.slot = rows * columns;
+        }
+
+        /**
+         * Проверить, что этикетка помещается в ячейку (допуск 0.5 мм на округления)
+         */
+        void checkFits(LabelResponseDto label) {
+            float tolerance = 0.5f * (float) MM_TO_POINTS;
+            float widthPt = label.getWidth().floatValue() * (float) MM_TO_POINTS;
+            float heightPt = label.getHeight().floatValue() * (float) MM_TO_POINTS;
+            if (widthPt > cellWidth + tolerance || heightPt > cellHeight + tolerance) {
+                throw new ValidationException(String.format(
+                        "Этикетка %s×%s мм не помещается в ячейку листа %.1f×%.1f мм",
+                        label.getWidth().stripTrailingZeros().toPlainString(),
+                        label.getHeight().stripTrailingZeros().toPlainString(),
+                        cellWidth / MM_TO_POINTS, cellHeight / MM_TO_POINTS));
+            }
+        }
+
+        void place(PdfFormXObject label, float labelHeight) {
+            if (slot == rows * columns) {
+                pageCanvas = new PdfCanvas(pdf.addNewPage(pageSize));
+                slot = 0;
+                pages++;
+            }
+            int row = slot / columns;
+            int column = slot % columns;
+            // PDF отсчитывает y снизу: верх ячейки минус высота этикетки
+            float x = marginLeft + column * pitchX;
+            float y = pageSize.getHeight() - marginTop - row * pitchY - labelHeight;
+            pageCanvas.addXObjectAt(label, x, y);
+            slot++;
+        }
+
+        int pages() {
+            return pages;
+        }
+
+        private static float mm(BigDecimal value, float defaultMm) {
+            return (value != null ? value.floatValue() : defaultMm) * (float) MM_TO_POINTS;
+        }
+    }
+
+    /**
+     * Взять фон из кэша (или отрендерить) и скопировать его в документ задания как Form XObject
+     */
+    private PdfFormXObject copyBackground(PdfDocument pdf, LabelResponseDto label, LabelPagePlan plan,
+                                          float widthPt, float heightPt) {
+        byte[] pageBytes = pageCache.getOrRender(plan.backgroundKey(),
+                () -> renderBackground(label, plan.background(), widthPt, heightPt));
+        try (PdfDocument source = new PdfDocument(new PdfReader(new ByteArrayInputStream(pageBytes)))) {
+            return source.getFirstPage().copyAsFormXObject(pdf);
+        } catch (IOException e) {
+            throw new ValidationException("Ошибка чтения кэшированной страницы: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Отрендерить статические элементы в отдельный одностраничный PDF
+     */
+    private byte[] renderBackground(LabelResponseDto label, List<ElementDto> background, float widthPt, float heightPt) {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            PdfDocument pdf = new PdfDocument(new PdfWriter(baos));
+            PdfPage page = pdf.addNewPage(new PageSize(widthPt, heightPt));
+            Canvas canvas = new Canvas(new PdfCanvas(page), page.getPageSize());
+            try {
+                for (ElementDto element : background) {
+                    renderElement(canvas, element, label.getConfig(), null, null);
+                }
+            } finally {
+                canvas.close();
+            }
+            pdf.close();
+            return baos.toByteArray();
+        } catch (IOException e) {
+            throw new ValidationException("Ошибка рендеринга фона этикетки: " + e.getMessage());
+        }
+    }
+
+    private record LabelPagePlan(String backgroundKey, List<ElementDto> background, List<ElementDto> overlay) {
+    }
+
+    private int[] renderElement(Canvas canvas, ElementDto element, LabelConfigDto config, PrintCodeSource codes, Long productId) {
         // Защита от null
         if (element == null || element.getType() == null) {
             return new int[]{0, 0};
@@ -248,7 +609,7 @@ public class PrintServiceImpl implements PrintService {
                 renderBarcode(canvas, element, x, y, width, height, rotation);
                 break;
             case "datamatrix":
-                int[] dmResult = renderDataMatrix(canvas, element, x, y, width, height, userEmail, companyOwnerId, productId);
+                int[] dmResult = renderDataMatrix(canvas, element, x, y, width, height, codes, productId);
                 dataMatrixCodesUsed += dmResult[0];
                 missingCodesCount += dmResult[1];
                 break;
@@ -344,8 +705,6 @@ public class PrintServiceImpl implements PrintService {
 
         try {
             PdfDocument pdfDocument = canvas.getPdfDocument();
-            PdfPage page = pdfDocument.getLastPage();
-            PdfCanvas pdfCanvas = new PdfCanvas(page);
 
             switch (barcodeType) {
                 case "Code 128":
@@ -435,25 +794,10 @@ public class PrintServiceImpl implements PrintService {
     }
 
     private int[] renderDataMatrix(Canvas canvas, ElementDto element, float x, float y, float width, float height,
-                                    String userEmail, Long companyOwnerId, Long productId) {
+                                    PrintCodeSource codes, Long productId) {
         try {
-            // Проверяем есть ли привязка к конкретному файлу
-            Long fileId = element.getDataMatrixFileId();
-            
-            Optional<String> codeOpt;
-            if (fileId != null) {
-                // Резервируем код из конкретного файла
-                codeOpt = dataMatrixService.reserveNextCodeFromFile(userEmail, companyOwnerId, fileId);
-                if (codeOpt.isEmpty()) {
-                    log.warn("Нет доступных DataMatrix кодов в файле {} для продукта {}", fileId, productId);
-                }
-            } else {
-                // Фоллбэк: резервируем из общего пула продукта
-                codeOpt = dataMatrixService.reserveNextCodeForProduct(userEmail, companyOwnerId, productId);
-                if (codeOpt.isEmpty()) {
-                    log.warn("Нет доступных DataMatrix кодов для продукта {}", productId);
-                }
-            }
+            // Код из привязанного файла, иначе из общего пула продукта; при перепечатке — записанный код задания
+            Optional<String> codeOpt = codes.next(productId, element.getDataMatrixFileId());
 
             if (codeOpt.isEmpty()) {
                 // Рисуем заглушку - пустой квадрат с текстом "Нет кода"
@@ -462,18 +806,8 @@ public class PrintServiceImpl implements PrintService {
             }
 
             String code = codeOpt.get();
-            byte[] dmImage = generateDataMatrixImage(code, (int) width, (int) height);
-
-            if (dmImage != null) {
-                com.itextpdf.layout.element.Image img = new com.itextpdf.layout.element.Image(
-                    com.itextpdf.io.image.ImageDataFactory.create(dmImage));
-                img.setFixedPosition(x, y);
-                img.scaleToFit(width, height);
-                canvas.add(img);
-                return new int[]{1, 0};
-            }
-
-            return new int[]{0, 0};
+            symbolRenderer.draw(canvas.getPdfCanvas(), symbolRenderer.dataMatrix(code), x, y, width, height);
+            return new int[]{1, 0};
 
         } catch (Exception e) {
             log.error("Ошибка рендеринга DataMatrix: {}", e.getMessage(), e);
@@ -486,13 +820,15 @@ public class PrintServiceImpl implements PrintService {
      */
     private void drawDataMatrixPlaceholder(Canvas canvas, float x, float y, float width, float height) {
         try {
-            PdfCanvas pdfCanvas = new PdfCanvas(canvas.getPdfDocument().getLastPage());
+            PdfCanvas pdfCanvas = canvas.getPdfCanvas();
 
             // Рисуем контур квадрата
+            pdfCanvas.saveState();
             pdfCanvas.setStrokeColor(new DeviceRgb(200, 200, 200));
             pdfCanvas.setLineWidth(1);
             pdfCanvas.rectangle(x, y, width, height);
             pdfCanvas.stroke();
+            pdfCanvas.restoreState();
 
             // Добавляем текст "Нет кода" по центру
             PdfFont font = PdfFontFactory.createFont(StandardFonts.HELVETICA);
@@ -520,100 +856,16 @@ public class PrintServiceImpl implements PrintService {
         String content = element.getContent() != null ? element.getContent() : "";
 
         try {
-            QRCodeWriter writer = new QRCodeWriter();
-            Map<EncodeHintType, Object> hints = new HashMap<>();
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-            hints.put(EncodeHintType.MARGIN, 1);
-
-            BitMatrix bitMatrix = writer.encode(content, BarcodeFormat.QR_CODE, 
-                    (int) (width * 3), (int) (height * 3), hints);
-
-            byte[] qrImage = bitMatrixToPng(bitMatrix);
-            
-            if (qrImage != null) {
-                com.itextpdf.layout.element.Image img = new com.itextpdf.layout.element.Image(
-                    com.itextpdf.io.image.ImageDataFactory.create(qrImage));
-                img.setFixedPosition(x, y);
-                img.scaleToFit(width, height);
-                canvas.add(img);
-            }
+            symbolRenderer.draw(canvas.getPdfCanvas(), symbolRenderer.qrCode(content), x, y, width, height);
         } catch (WriterException e) {
             log.error("Ошибка генерации QR-кода: {}", e.getMessage());
         }
     }
 
     private void renderDate(Canvas canvas, ElementDto element, float x, float y, float width, float height, Integer rotation) {
-        DateSettingsDto dateSettings = element.getDateSettings();
-
-        // Fallback: если dateSettings == null, рендерим content как текст
-        if (dateSettings == null) {
-            renderText(canvas, element, x, y, width, height, rotation);
-            return;
-        }
-
-        // Определяем дату изготовления
-        LocalDate manufactureDate;
-        Boolean smartDate = dateSettings.getSmartDate();
-        String customDate = dateSettings.getCustomDate();
-
-        if (smartDate != null && smartDate) {
-            // Умная дата: дата изготовления = дата печати
-            manufactureDate = LocalDate.now();
-        } else if (customDate != null && !customDate.isEmpty()) {
-            // Обычная дата: из customDate
-            try {
-                manufactureDate = LocalDate.parse(customDate);
-            } catch (Exception e) {
-                log.warn("Некорректная customDate: {}, используем текущую дату", customDate);
-                manufactureDate = LocalDate.now();
-            }
-        } else {
-            // Fallback: используем content как есть (уже отформатировано фронтендом)
-            renderText(canvas, element, x, y, width, height, rotation);
-            return;
-        }
-
-        // Расчёт даты «годен до» (только для умной даты)
-        LocalDate bestBefore = null;
-        if (smartDate != null && smartDate) {
-            Integer shelfLifeValue = dateSettings.getShelfLifeValue();
-            String shelfLifeUnit = dateSettings.getShelfLifeUnit();
-            bestBefore = dateCalculator.calculateBestBefore(manufactureDate, shelfLifeValue, shelfLifeUnit);
-        }
-
-        // Получаем форматтер
-        String format = dateSettings.getFormat() != null ? dateSettings.getFormat() : "DD.MM.YYYY";
-        DateTimeFormatter formatter = dateCalculator.getFormatter(format);
+        List<String> lines = dateCalculator.formatDateLines(element.getDateSettings());
 
-        // Формируем текст по чекбоксам
-        List<String> lines = new ArrayList<>();
-        Boolean abbreviateText = dateSettings.getAbbreviateText();
-
-        // Дата изготовления
-        if (dateSettings.getShowManufactureDate() != null && dateSettings.getShowManufactureDate()) {
-            String label = abbreviateText != null && abbreviateText ? "Дата изг.: " : "Дата изготовления: ";
-            lines.add(label + manufactureDate.format(formatter));
-        }
-
-        // Годен до (только для умной даты)
-        if (smartDate != null && smartDate && 
-            dateSettings.getShowBestBefore() != null && dateSettings.getShowBestBefore() && 
-            bestBefore != null) {
-            String label = abbreviateText != null && abbreviateText ? "Годен до: " : "Годен до: ";
-            lines.add(label + bestBefore.format(formatter));
-        }
-
-        // Срок годности
-        if (dateSettings.getShowShelfLife() != null && dateSettings.getShowShelfLife()) {
-            String label = abbreviateText != null && abbreviateText ? "Ср. годн.: " : "Срок годности: ";
-            String shelfLifeFormatted = dateCalculator.formatShelfLife(
-                dateSettings.getShelfLifeValue(), 
-                dateSettings.getShelfLifeUnit()
-            );
-            lines.add(label + shelfLifeFormatted);
-        }
-
-        // Если ни один чекбокс не выбран, рендерим content как есть
+        // Нет настроек даты или ни один чекбокс не выбран — рендерим content как есть
         if (lines.isEmpty()) {
             renderText(canvas, element, x, y, width, height, rotation);
             return;
@@ -649,7 +901,8 @@ public class PrintServiceImpl implements PrintService {
             float fontSize = style.getFontSize() != null ? style.getFontSize().floatValue() : 12;
             float lineHeight = fontSize * 1.2f;
 
-            PdfCanvas pdfCanvas = new PdfCanvas(canvas.getPdfDocument().getLastPage());
+            PdfCanvas pdfCanvas = canvas.getPdfCanvas();
+            pdfCanvas.saveState();
 
             float currentY = y + height - lineHeight; // начинаем сверху с отступом
 
@@ -687,6 +940,7 @@ public class PrintServiceImpl implements PrintService {
 
                 currentY -= lineHeight;
             }
+            pdfCanvas.restoreState();
 
         } catch (Exception e) {
             log.error("Ошибка многострочного рендеринга даты: {}", e.getMessage());
@@ -735,30 +989,6 @@ public class PrintServiceImpl implements PrintService {
         }
     }
 
-    private byte[] generateDataMatrixImage(String code, int width, int height) throws WriterException {
-        DataMatrixWriter writer = new DataMatrixWriter();
-        Map<EncodeHintType, Object> hints = new HashMap<>();
-        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-        hints.put(EncodeHintType.MARGIN, 1);
-
-        BitMatrix bitMatrix = writer.encode(code, BarcodeFormat.DATA_MATRIX, width, height, hints);
-        return bitMatrixToPng(bitMatrix);
-    }
-
-    private byte[] bitMatrixToPng(BitMatrix bitMatrix) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            javax.imageio.ImageIO.write(
-                com.google.zxing.client.j2se.MatrixToImageWriter.toBufferedImage(bitMatrix),
-                "PNG",
-                baos
-            );
-            return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Ошибка конвертации BitMatrix в PNG: {}", e.getMessage());
-            return null;
-        }
-    }
-
     /**
      * Рендеринг изображения
      */
@@ -771,9 +1001,7 @@ public class PrintServiceImpl implements PrintService {
         }
 
         try {
-            // Загружаем изображение по URL
-            java.net.URL url = new java.net.URL(imageUrl);
-            byte[] imageBytes = url.openStream().readAllBytes();
+            byte[] imageBytes = imageCache.get(imageUrl, this::loadImage);
 
             com.itextpdf.io.image.ImageData imageData = com.itextpdf.io.image.ImageDataFactory.create(imageBytes);
             com.itextpdf.layout.element.Image image = new com.itextpdf.layout.element.Image(imageData);
@@ -786,21 +1014,37 @@ public class PrintServiceImpl implements PrintService {
             }
 
             canvas.add(image);
-        } catch (java.net.MalformedURLException e) {
-            log.error("Некорректный URL изображения: {}", imageUrl, e);
-        } catch (java.io.IOException e) {
-            log.error("Ошибка загрузки изображения по URL {}: {}", imageUrl, e.getMessage());
+        } catch (java.io.UncheckedIOException e) {
+            if (e.getCause() instanceof java.net.MalformedURLException) {
+                log.error("Некорректный URL изображения: {}", imageUrl, e.getCause());
+            } else {
+                log.error("Ошибка загрузки изображения по URL {}: {}", imageUrl, e.getCause().getMessage());
+            }
         } catch (Exception e) {
             log.error("Ошибка рендеринга изображения: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * Загрузить изображение по URL (исключения пробрасываются в renderImage)
+     */
+    private byte[] loadImage(String imageUrl) {
+        try {
+            return ImageDownloader.download(imageUrl);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
     /**
      * Рендеринг фигур (rectangle, line, circle, square, triangle, rhombus)
      */
     private void renderShape(Canvas canvas, ElementDto element, float x, float y, float width, float height, Integer rotation) {
         try {
-            PdfCanvas pdfCanvas = new PdfCanvas(canvas.getPdfDocument().getLastPage());
+            // Рисуем в контент того же холста, что и остальные элементы: так сохраняется порядок zIndex
+            // и фигура рисуется и на странице, и в Form XObject (режим листа)
+            PdfCanvas pdfCanvas = canvas.getPdfCanvas();
+            pdfCanvas.saveState();
 
             // Получаем стили из корня элемента
             String fillColor = element.getFillColor();
@@ -834,7 +1078,6 @@ public class PrintServiceImpl implements PrintService {
                 float centerX = x + width / 2;
                 float centerY = y + height / 2;
 
-                pdfCanvas.saveState();
                 pdfCanvas.concatMatrix(
                     (float) Math.cos(radians), (float) Math.sin(radians),
                     (float) -Math.sin(radians), (float) Math.cos(radians),
@@ -897,9 +1140,7 @@ public class PrintServiceImpl implements PrintService {
                     break;
             }
 
-            if (rotation != null && rotation != 0) {
-                pdfCanvas.restoreState();
-            }
+            pdfCanvas.restoreState();
 
         } catch (Exception e) {
             log.error("Ошибка рендеринга фигуры {}: {}", element.getType(), e.getMessage(), e);
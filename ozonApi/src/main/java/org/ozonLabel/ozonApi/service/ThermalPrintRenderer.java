@@ -0,0 +1,609 @@
+package org.ozonLabel.ozonApi.service;
+
+import com.google.zxing.oned.Code128Writer;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.dto.label.*;
+import org.ozonLabel.common.exception.user.ValidationException;
+import org.ozonLabel.ozonApi.util.BarcodeSymbolRenderer;
+import org.ozonLabel.ozonApi.util.DateCalculator;
+import org.ozonLabel.ozonApi.util.ImageDownloader;
+import org.ozonLabel.ozonApi.util.ThermalCommandWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Печать этикеток командами термопринтера (ZPL/TSPL) вместо PDF.
+ *
+ * Каждая этикетка компилируется один раз в формат принтера: текст — резидентным шрифтом,
+ * штрихкоды, QR и DataMatrix — встроенными командами принтера, изображения — монохромным
+ * растром (GRF/BITMAP). Копии печатаются вызовом формата с количеством, для DataMatrix в каждый
+ * вызов передаются только коды текущей копии — задание на 1000 этикеток занимает килобайты.
+ * Геометрия совпадает с PDF: координаты элемента в мм, y — от нижнего края этикетки.
+ */
+@Service
+@Slf4j
+public class ThermalPrintRenderer {
+
+    private static final int DEFAULT_DPI = 203;
+    private static final Set<Integer> SUPPORTED_DPI = Set.of(203, 300, 600);
+    // Типичный размер символа кода Честного знака (24×24 + тихая зона) — если кода для расчёта нет
+    private static final int DEFAULT_DATAMATRIX_MODULES = 26;
+    private static final float SEPARATOR_HEIGHT_PT = 5;
+
+    private final DateCalculator dateCalculator;
+    private final BarcodeSymbolRenderer symbolRenderer;
+    private final String zplFont;
+    private final String tsplFont;
+
+    public ThermalPrintRenderer(DateCalculator dateCalculator,
+                                BarcodeSymbolRenderer symbolRenderer,
+                                @Value("${app.print.thermal.zpl-font:0}") String zplFont,
+                                @Value("${app.print.thermal.tspl-font:0}") String tsplFont) {
+        this.dateCalculator = dateCalculator;
+        this.symbolRenderer = symbolRenderer;
+        this.zplFont = zplFont;
+        this.tsplFont = tsplFont;
+    }
+
+    /**
+     * Сгенерировать команды принтера по уже загруженным этикеткам (доступ проверен вызывающим кодом)
+     * @param codeSource откуда брать DataMatrix коды: новые резервирования или коды перепечатываемого задания
+     */
+    public PrintResponse render(PrintRequest request, Map<Long, LabelResponseDto> labelsByProductId,
+                                PrintCodeSource codeSource) {
+        ThermalCommandWriter.Language language = ThermalCommandWriter.Language.parse(request.getOutputFormat());
+        int dpi = request.getPrinterDpi() != null ? request.getPrinterDpi() : DEFAULT_DPI;
+        if (!SUPPORTED_DPI.contains(dpi)) {
+            throw new ValidationException("Неподдерживаемое разрешение принтера: " + dpi);
+        }
+
+        ThermalCommandWriter writer = ThermalCommandWriter.create(language, dpi, zplFont, tsplFont);
+        Map<String, ThermalCommandWriter.Bitmap> bitmaps = new HashMap<>();
+
+        List<Long> productIds = request.getProductIds();
+        Map<Long, Integer> copies = request.getCopies() != null ? request.getCopies() : new HashMap<>();
+        boolean darkSeparator = "DARK".equals(request.getSeparatorType());
+
+        int totalLabels = 0;
+        int dataMatrixCodesUsed = 0;
+        List<Long> productsMissingDmCodes = new ArrayList<>();
+
+        for (int index = 0; index < productIds.size(); index++) {
+            Long productId = productIds.get(index);
+            LabelResponseDto label = labelsByProductId.get(productId);
+            if (label == null || label.getConfig() == null) {
+                log.warn("Этикетка для товара {} не найдена или не имеет конфигурации, пропускаем", productId);
+                continue;
+            }
+
+            int copiesCount = Math.max(1, copies.getOrDefault(productId, 1));
+            // Разделитель — тёмная полоса внизу последней копии перед следующим SKU, как в PDF
+            boolean separatorAfter = darkSeparator && index < productIds.size() - 1
+                    && !productId.equals(productIds.get(index + 1));
+
+            try {
+                LabelLayout layout = new LabelLayout(label, dpi);
+                List<ElementDto> elements = visibleElements(label);
+                List<ElementDto> dataMatrixElements = elements.stream()
+                        .filter(e -> "datamatrix".equals(e.getType()))
+                        .toList();
+
+                // Коды первой копии резервируются до описания формата: от длины кода зависит размер модуля
+                List<Optional<String>> firstCodes = reserveCodes(dataMatrixElements, codeSource, productId);
+
+                String format = writer.beginFormat(layout.widthDots, layout.heightDots,
+                        label.getWidth().doubleValue(), label.getHeight().doubleValue());
+                List<ThermalCommandWriter.Box> dataMatrixAreas = new ArrayList<>();
+                for (ElementDto element : elements) {
+                    if ("datamatrix".equals(element.getType())) {
+                        int field = dataMatrixAreas.size() + 1;
+                        dataMatrixAreas.add(writeDataMatrix(writer, layout, element, field,
+                                firstCodes.get(field - 1).orElse(null)));
+                    } else {
+                        writeElement(writer, layout, element, bitmaps);
+                    }
+                }
+                writer.endFormat();
+
+                List<ThermalCommandWriter.Box> separator = separatorAfter
+                        ? List.of(layout.separator())
+                        : List.of();
+
+                if (dataMatrixElements.isEmpty()) {
+                    // Все копии одинаковые — один вызов формата на всё количество
+                    int plain = separatorAfter ? copiesCount - 1 : copiesCount;
+                    if (plain > 0) {
+                        writer.print(format, Map.of(), List.of(), plain);
+                    }
+                    if (separatorAfter) {
+                        writer.print(format, Map.of(), separator, 1);
+                    }
+                } else {
+                    boolean missing = false;
+                    for (int copy = 0; copy < copiesCount; copy++) {
+                        List<Optional<String>> codes = copy == 0
+                                ? firstCodes
+                                : reserveCodes(dataMatrixElements, codeSource, productId);
+                        Map<Integer, String> fields = new HashMap<>();
+                        List<ThermalCommandWriter.Box> boxes = new ArrayList<>();
+                        for (int i = 0; i < codes.size(); i++) {
+                            if (codes.get(i).isPresent()) {
+                                fields.put(i + 1, codes.get(i).get());
+                                dataMatrixCodesUsed++;
+                            } else {
+                                // Заглушка: контур на месте кода
+                                boxes.add(dataMatrixAreas.get(i));
+                                missing = true;
+                            }
+                        }
+                        if (copy == copiesCount - 1) {
+                            boxes.addAll(separator);
+                        }
+                        writer.print(format, fields, boxes, 1);
+                    }
+                    if (missing) {
+                        productsMissingDmCodes.add(productId);
+                    }
+                }
+                totalLabels += copiesCount;
+
+            } catch (Exception e) {
+                log.error("Ошибка формирования команд принтера для товара {}: {}", productId, e.getMessage(), e);
+                // Продолжаем с остальными — как при генерации PDF
+            }
+        }
+
+        byte[] data = writer.finish();
+        log.info("Сгенерированы команды {} ({} dpi) для {} продуктов, этикеток: {}, размер: {} байт, списано DataMatrix кодов: {}",
+                language, dpi, productIds.size(), totalLabels, data.length, dataMatrixCodesUsed);
+
+        return PrintResponse.builder()
+                .printerData(data)
+                .outputFormat(language.name())
+                .totalLabels(totalLabels)
+                .dataMatrixCodesUsed(dataMatrixCodesUsed)
+                .productsMissingDmCodes(productsMissingDmCodes)
+                .build();
+    }
+
+    private List<ElementDto> visibleElements(LabelResponseDto label) {
+        List<ElementDto> elements = new ArrayList<>();
+        for (ElementDto element : label.getConfig().getElements()) {
+            if (element != null && element.getType() != null
+                    && (element.getVisible() == null || element.getVisible())
+                    && element.getX() != null && element.getY() != null
+                    && element.getWidth() != null && element.getHeight() != null) {
+                elements.add(element);
+            }
+        }
+        elements.sort(Comparator.comparingInt(e -> e.getZIndex() != null ? e.getZIndex() : 0));
+        return elements;
+    }
+
+    private List<Optional<String>> reserveCodes(List<ElementDto> dataMatrixElements, PrintCodeSource codeSource,
+                                                Long productId) {
+        List<Optional<String>> codes = new ArrayList<>(dataMatrixElements.size());
+        for (ElementDto element : dataMatrixElements) {
+            Optional<String> code;
+            try {
+                code = codeSource.next(productId, element.getDataMatrixFileId());
+            } catch (Exception e) {
+                log.error("Ошибка резервирования DataMatrix кода для продукта {}: {}", productId, e.getMessage());
+                code = Optional.empty();
+            }
+            codes.add(code);
+        }
+        return codes;
+    }
+
+    /**
+     * Поле DataMatrix. Символ, как в PDF, вписан в левый нижний угол элемента с тихой зоной в 1 модуль
+     *
+     * @return область символа (для заглушки, если кода не хватит)
+     */
+    private ThermalCommandWriter.Box writeDataMatrix(ThermalCommandWriter writer, LabelLayout layout,
+                                                     ElementDto element, int field, String sampleCode) {
+        int modules = sampleCode != null
+                ? symbolRenderer.dataMatrix(sampleCode).width() + 2
+                : DEFAULT_DATAMATRIX_MODULES;
+        int x = layout.dots(element.getX());
+        int bottom = layout.bottom(element.getY());
+        int size = Math.min(layout.dots(element.getWidth()), layout.dots(element.getHeight()));
+        int module = Math.max(1, size / modules);
+        int symbolSize = modules * module;
+        int top = bottom - symbolSize;
+
+        writer.dataMatrixField(field, x + module, top + module, symbolSize - 2 * module, module);
+        return new ThermalCommandWriter.Box(x, top, symbolSize, symbolSize, Math.max(1, layout.pointsToDots(1)));
+    }
+
+    private void writeElement(ThermalCommandWriter writer, LabelLayout layout, ElementDto element,
+                              Map<String, ThermalCommandWriter.Bitmap> bitmaps) {
+        int rotation = element.getRotation() != null ? element.getRotation().intValue() : 0;
+        try {
+            switch (element.getType()) {
+                case "text" -> writeText(writer, layout, element, element.getContent(), rotation);
+                case "date" -> writeDate(writer, layout, element, rotation);
+                case "barcode" -> writeBarcode(writer, layout, element, rotation);
+                case "qrcode" -> writeQrCode(writer, layout, element);
+                case "image" -> writeImage(writer, layout, element, bitmaps);
+                case "rectangle", "line", "circle", "square", "triangle", "rhombus" ->
+                        writeShape(writer, layout, element, rotation);
+                default -> {
+                }
+            }
+        } catch (Exception e) {
+            log.error("Ошибка преобразования элемента {} ({}) в команды принтера: {}",
+                    element.getId(), element.getType(), e.getMessage());
+        }
+    }
+
+    private void writeText(ThermalCommandWriter writer, LabelLayout layout, ElementDto element,
+                           String content, int rotation) {
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+        TextStyleDto style = element.getStyle() != null ? element.getStyle() : TextStyleDto.builder().build();
+        float fontSize = style.getFontSize() != null ? style.getFontSize().floatValue() : 12;
+        writer.text(layout.dots(element.getX()), layout.top(element.getY(), element.getHeight()),
+                layout.dots(element.getWidth()), layout.dots(element.getHeight()),
+                layout.pointsToDots(fontSize), style.getTextAlign(), rotation, content);
+    }
+
+    private void writeDate(ThermalCommandWriter writer, LabelLayout layout, ElementDto element, int rotation) {
+        List<String> lines = dateCalculator.formatDateLines(element.getDateSettings());
+        if (lines.isEmpty()) {
+            writeText(writer, layout, element, element.getContent(), rotation);
+            return;
+        }
+
+        TextStyleDto style = element.getStyle() != null ? element.getStyle() : TextStyleDto.builder().build();
+        float fontSize = style.getFontSize() != null ? style.getFontSize().floatValue() : 12;
+        int fontDots = layout.pointsToDots(fontSize);
+        // Строки сверху вниз с интервалом fontSize * 1.2, как в многострочном PDF
+        int lineHeight = layout.pointsToDots(fontSize * 1.2f);
+        int x = layout.dots(element.getX());
+        int top = layout.top(element.getY(), element.getHeight());
+        int bottom = top + layout.dots(element.getHeight());
+        int width = layout.dots(element.getWidth());
+
+        for (int i = 0; i < lines.size() && top + (i + 1) * lineHeight <= bottom; i++) {
+            writer.text(x, top + i * lineHeight, width, lineHeight, fontDots, style.getTextAlign(), rotation, lines.get(i));
+        }
+    }
+
+    private void writeBarcode(ThermalCommandWriter writer, LabelLayout layout, ElementDto element, int rotation) {
+        String content = element.getContent() != null ? element.getContent() : "";
+        if (content.isEmpty()) {
+            log.warn("Пустое содержимое штрихкода");
+            return;
+        }
+        String barcodeType = element.getBarcodeType() != null ? element.getBarcodeType() : "Code 128";
+
+        String type;
+        int modules;
+        switch (barcodeType) {
+            case "Code 128", "Code128" -> {
+                type = "CODE128";
+                modules = new Code128Writer().encode(content).length;
+            }
+            case "EAN-13", "EAN13" -> {
+                type = "EAN13";
+                modules = 95;
+            }
+            case "EAN-8", "EAN8" -> {
+                type = "EAN8";
+                modules = 67;
+            }
+            default -> {
+                type = null;
+                modules = 0;
+            }
+        }
+        int requiredDigits = "EAN13".equals(type) ? 13 : "EAN8".equals(type) ? 8 : 0;
+        if (type == null || requiredDigits > 0 && !content.matches("\\d{" + requiredDigits + "}")) {
+            log.warn("Неподдерживаемый штрихкод {} с содержимым {}, печатаем текстом", barcodeType, content);
+            writer.text(layout.dots(element.getX()), layout.top(element.getY(), element.getHeight()),
+                    layout.dots(element.getWidth()), layout.dots(element.getHeight()),
+                    layout.pointsToDots(8), "left", 0, content);
+            return;
+        }
+
+        int width = layout.dots(element.getWidth());
+        int height = layout.dots(element.getHeight());
+        int module = Math.max(1, width / modules);
+        // Под штрихами — строка с расшифровкой
+        int barHeight = Math.max(module * 10, height - layout.pointsToDots(10));
+        writer.barcode(type, layout.dots(element.getX()), layout.top(element.getY(), element.getHeight()),
+                barHeight, module, rotation, content);
+    }
+
+    private void writeQrCode(ThermalCommandWriter writer, LabelLayout layout, ElementDto element) throws Exception {
+        String content = element.getContent() != null ? element.getContent() : "";
+        if (content.isEmpty()) {
+            return;
+        }
+        // Матрица QR уже включает тихую зону в 1 модуль
+        int modules = symbolRenderer.qrCode(content).width();
+        int size = Math.min(layout.dots(element.getWidth()), layout.dots(element.getHeight()));
+        int module = Math.max(1, Math.min(10, size / modules));
+        int top = layout.bottom(element.getY()) - modules * module;
+        writer.qrCode(layout.dots(element.getX()) + module, top + module, module, content);
+    }
+
+    private void writeImage(ThermalCommandWriter writer, LabelLayout layout, ElementDto element,
+                            Map<String, ThermalCommandWriter.Bitmap> bitmaps) throws Exception {
+        String imageUrl = element.getImageUrl();
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            log.warn("Пустой URL изображения");
+            return;
+        }
+        int maxWidth = layout.dots(element.getWidth());
+        int maxHeight = layout.dots(element.getHeight());
+
+        ThermalCommandWriter.Bitmap bitmap = bitmaps.get(imageUrl + "@" + maxWidth + "x" + maxHeight);
+        if (bitmap == null) {
+            BufferedImage image;
+            try (InputStream in = new ByteArrayInputStream(ImageDownloader.download(imageUrl))) {
+                image = ImageIO.read(in);
+            }
+            if (image == null) {
+                log.warn("Неподдерживаемый формат изображения: {}", imageUrl);
+                return;
+            }
+            bitmap = toBitmap(image, maxWidth, maxHeight);
+            bitmaps.put(imageUrl + "@" + maxWidth + "x" + maxHeight, bitmap);
+        }
+        // Изображение вписано с сохранением пропорций и прижато к левому нижнему углу, как в PDF
+        writer.image(layout.dots(element.getX()), layout.bottom(element.getY()) - bitmap.height(), bitmap);
+    }
+
+    /**
+     * Масштабировать с сохранением пропорций и перевести в 1 бит: прозрачное — белое, порог яркости 50%
+     */
+    private ThermalCommandWriter.Bitmap toBitmap(BufferedImage image, int maxWidth, int maxHeight) {
+        double scale = Math.min((double) maxWidth / image.getWidth(), (double) maxHeight / image.getHeight());
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        java.awt.Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(java.awt.RenderingHints.KEY_INTERPOLATION, java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+
+        int widthBytes = (width + 7) / 8;
+        byte[] data = new byte[widthBytes * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = scaled.getRGB(x, y);
+                int alpha = argb >>> 24;
+                int luminance = (299 * ((argb >> 16) & 0xFF) + 587 * ((argb >> 8) & 0xFF) + 114 * (argb & 0xFF)) / 1000;
+                // Смешивание с белым фоном по прозрачности
+                int blended = (luminance * alpha + 255 * (255 - alpha)) / 255;
+                if (blended < 128) {
+                    data[y * widthBytes + x / 8] |= (byte) (0x80 >>> (x % 8));
+                }
+            }
+        }
+        return new ThermalCommandWriter.Bitmap(widthBytes, height, data);
+    }
+
+    /**
+     * Фигуры: на термопринтере только чёрное и белое, светлая заливка не печатается.
+     * Цвета и толщина контура выбираются так же, как в PDF
+     */
+    private void writeShape(ThermalCommandWriter writer, LabelLayout layout, ElementDto element, int rotation) {
+        String fillColor = element.getFillColor();
+        String borderColor = element.getBorderColor();
+        BigDecimal strokeWidth = null;
+        String fillType = null;
+        if (element.getStyle() != null) {
+            strokeWidth = element.getStyle().getStrokeWidth();
+            fillType = element.getStyle().getFillType();
+            if ((fillColor == null || fillColor.isEmpty()) && element.getStyle().getFillColor() != null) {
+                fillColor = element.getStyle().getFillColor();
+            }
+            if ((borderColor == null || borderColor.isEmpty()) && element.getStyle().getBorderColor() != null) {
+                borderColor = element.getStyle().getBorderColor();
+            }
+        }
+
+        float lineWidth = 1f;
+        if (element.getBorderWidth() != null && element.getBorderWidth() > 0) {
+            lineWidth = element.getBorderWidth().floatValue();
+        } else if (strokeWidth != null && strokeWidth.compareTo(BigDecimal.ZERO) > 0) {
+            lineWidth = strokeWidth.floatValue();
+        }
+        int thickness = Math.max(1, layout.pointsToDots(lineWidth));
+
+        boolean hasFillColor = fillColor != null && !fillColor.isEmpty();
+        boolean isOutline = "outline".equals(fillType);
+        boolean hasBorder = borderColor != null && !borderColor.isEmpty();
+        // Без цвета заливки PDF заливает фигуру белым — на термопринтере это «ничего»
+        boolean darkFill = hasFillColor && !isOutline && isDark(fillColor);
+        boolean darkBorder = hasBorder && isDark(borderColor);
+
+        double xMm = element.getX().doubleValue();
+        double yMm = element.getY().doubleValue();
+        double wMm = element.getWidth().doubleValue();
+        double hMm = element.getHeight().doubleValue();
+
+        switch (element.getType()) {
+            case "line" -> {
+                // Линия — прямоугольник высотой height; без цвета контура PDF обводит её чёрным
+                if (darkFill || darkBorder || !hasBorder) {
+                    writePolygonOrBox(writer, layout, xMm, yMm, wMm, hMm, rotation, Integer.MAX_VALUE);
+                }
+            }
+            case "circle" -> {
+                boolean quarterTurn = Math.floorMod(rotation, 180) == 90;
+                double w = quarterTurn ? hMm : wMm;
+                double h = quarterTurn ? wMm : hMm;
+                double cx = xMm + wMm / 2;
+                double cy = yMm + hMm / 2;
+                int x = layout.dots(cx - w / 2);
+                int top = layout.bottom(cy + h / 2);
+                int wd = layout.dots(w);
+                int hd = layout.dots(h);
+                if (darkFill) {
+                    writer.ellipse(x, top, wd, hd, Math.max(1, Math.min(wd, hd) / 2));
+                } else if (darkBorder) {
+                    writer.ellipse(x, top, wd, hd, thickness);
+                }
+            }
+            case "triangle" -> {
+                if (darkFill || darkBorder) {
+                    // Вершины как в PDF: (x + w/2, y), (x, y + h), (x + w, y + h). Заливка — контуром
+                    writePolygon(writer, layout, rotate(new double[]{
+                            xMm + wMm / 2, yMm, xMm, yMm + hMm, xMm + wMm, yMm + hMm
+                    }, xMm + wMm / 2, yMm + hMm / 2, rotation), thickness);
+                }
+            }
+            case "rhombus" -> {
+                if (darkFill || darkBorder) {
+                    writePolygon(writer, layout, rotate(new double[]{
+                            xMm + wMm / 2, yMm, xMm + wMm, yMm + hMm / 2, xMm + wMm / 2, yMm + hMm, xMm, yMm + hMm / 2
+                    }, xMm + wMm / 2, yMm + hMm / 2, rotation), thickness);
+                }
+            }
+            default -> {
+                if (darkFill) {
+                    writePolygonOrBox(writer, layout, xMm, yMm, wMm, hMm, rotation, Integer.MAX_VALUE);
+                } else if (darkBorder) {
+                    writePolygonOrBox(writer, layout, xMm, yMm, wMm, hMm, rotation, thickness);
+                }
+            }
+        }
+    }
+
+    /**
+     * Прямоугольник: при повороте на угол, кратный 90°, — рамкой, иначе контуром из линий
+     */
+    private void writePolygonOrBox(ThermalCommandWriter writer, LabelLayout layout,
+                                   double xMm, double yMm, double wMm, double hMm, int rotation, int thickness) {
+        double cx = xMm + wMm / 2;
+        double cy = yMm + hMm / 2;
+        if (Math.floorMod(rotation, 90) == 0) {
+            boolean quarterTurn = Math.floorMod(rotation, 180) == 90;
+            double w = quarterTurn ? hMm : wMm;
+            double h = quarterTurn ? wMm : hMm;
+            int wd = Math.max(1, layout.dots(w));
+            int hd = Math.max(1, layout.dots(h));
+            writer.box(layout.dots(cx - w / 2), layout.bottom(cy + h / 2), wd, hd,
+                    Math.min(thickness, Math.max(wd, hd)), false);
+            return;
+        }
+        writePolygon(writer, layout, rotate(new double[]{
+                xMm, yMm, xMm + wMm, yMm, xMm + wMm, yMm + hMm, xMm, yMm + hMm
+        }, cx, cy, rotation), thickness == Integer.MAX_VALUE ? layout.pointsToDots(1) : thickness);
+    }
+
+    private void writePolygon(ThermalCommandWriter writer, LabelLayout layout, double[] points, int thickness) {
+        int n = points.length / 2;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            writer.line(layout.dots(points[2 * i]), layout.bottom(points[2 * i + 1]),
+                    layout.dots(points[2 * j]), layout.bottom(points[2 * j + 1]), thickness);
+        }
+    }
+
+    /**
+     * Повернуть точки (мм, ось y вверх) вокруг центра против часовой стрелки — как матрица в PDF
+     */
+    private static double[] rotate(double[] points, double cx, double cy, int rotation) {
+        if (rotation == 0) {
+            return points;
+        }
+        double radians = Math.toRadians(rotation);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        double[] rotated = new double[points.length];
+        for (int i = 0; i < points.length; i += 2) {
+            double dx = points[i] - cx;
+            double dy = points[i + 1] - cy;
+            rotated[i] = cx + dx * cos - dy * sin;
+            rotated[i + 1] = cy + dx * sin + dy * cos;
+        }
+        return rotated;
+    }
+
+    private static boolean isDark(String color) {
+        String hex = color.startsWith("#") ? color.substring(1) : color;
+        if (hex.length() == 3) {
+            hex = "" + hex.charAt(0) + hex.charAt(0) + hex.charAt(1) + hex.charAt(1) + hex.charAt(2) + hex.charAt(2);
+        }
+        if (hex.length() != 6) {
+            return true;
+        }
+        try {
+            int rgb = Integer.parseInt(hex, 16);
+            int luminance = (299 * ((rgb >> 16) & 0xFF) + 587 * ((rgb >> 8) & 0xFF) + 114 * (rgb & 0xFF)) / 1000;
+            return luminance < 128;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Перевод координат этикетки (мм, y от нижнего края) в точки принтера (y от верхнего края)
+     */
+    private static final class LabelLayout {
+
+        private final double dotsPerMm;
+        private final double heightMm;
+        private final int dpi;
+        private final int widthDots;
+        private final int heightDots;
+
+        LabelLayout(LabelResponseDto label, int dpi) {
+            this.dpi = dpi;
+            this.dotsPerMm = dpi / 25.4;
+            this.heightMm = label.getHeight().doubleValue();
+            this.widthDots = dots(label.getWidth().doubleValue());
+            this.heightDots = dots(heightMm);
+        }
+
+        int dots(double mm) {
+            return (int) Math.round(mm * dotsPerMm);
+        }
+
+        int dots(BigDecimal mm) {
+            return dots(mm.doubleValue());
+        }
+
+        /**
+         * Точка принтера для координаты y (мм от нижнего края)
+         */
+        int bottom(double yMm) {
+            return dots(heightMm - yMm);
+        }
+
+        int bottom(BigDecimal yMm) {
+            return bottom(yMm.doubleValue());
+        }
+
+        /**
+         * Верхний край элемента в точках принтера
+         */
+        int top(BigDecimal yMm, BigDecimal heightMm) {
+            return bottom(yMm.doubleValue() + heightMm.doubleValue());
+        }
+
+        int pointsToDots(float points) {
+            return Math.max(1, Math.round(points * dpi / 72f));
+        }
+
+        ThermalCommandWriter.Box separator() {
+            int height = pointsToDots(SEPARATOR_HEIGHT_PT);
+            return new ThermalCommandWriter.Box(0, heightDots - height, widthDots, height, height);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.ozonLabel.ozonApi.service;
+
+/**
+ * При чтении списка замечена запись без миниатюры. В отличие от {@link ThumbnailStaleEvent}
+ * запись не менялась, поэтому недавно не построившаяся миниатюра не перестраивается.
+ * Обрабатывается в {@link LabelThumbnailService}.
+ *
+ * @param thumbnail этикетка или шаблон
+ */
+public record ThumbnailMissingEvent(ThumbnailStaleEvent thumbnail) {
+
+    public static ThumbnailMissingEvent ofLabel(Long labelId) {
+        return new ThumbnailMissingEvent(ThumbnailStaleEvent.ofLabel(labelId));
+    }
+
+    public static ThumbnailMissingEvent ofTemplate(Long templateId) {
+        return new ThumbnailMissingEvent(ThumbnailStaleEvent.ofTemplate(templateId));
+    }
+}
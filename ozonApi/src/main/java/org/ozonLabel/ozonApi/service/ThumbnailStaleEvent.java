@@ -0,0 +1,19 @@
+package org.ozonLabel.ozonApi.service;
+
+/**
+ * Миниатюра этикетки или шаблона устарела либо ещё не построена.
+ * Обрабатывается после коммита в {@link LabelThumbnailService}.
+ *
+ * @param template true — шаблон, false — этикетка
+ * @param id       ID этикетки или шаблона
+ */
+public record ThumbnailStaleEvent(boolean template, Long id) {
+
+    public static ThumbnailStaleEvent ofLabel(Long labelId) {
+        return new ThumbnailStaleEvent(false, labelId);
+    }
+
+    public static ThumbnailStaleEvent ofTemplate(Long templateId) {
+        return new ThumbnailStaleEvent(true, templateId);
+    }
+}
@@ -0,0 +1,138 @@
+package org.ozonLabel.ozonApi.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.datamatrix.DataMatrixWriter;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Векторный рендеринг 2D символов (QR, DataMatrix) прямо из BitMatrix.
+ * Каждый модуль рисуется прямоугольником в PDF (соседние модули строки объединяются),
+ * без промежуточного PNG — меньше CPU, меньше размер PDF и чёткая печать на любом DPI.
+ * Статические символы (QR) кэшируются в LRU по типу и содержимому: матрица модулей
+ * от размера не зависит, масштаб задаётся при отрисовке.
+ */
+@Component
+public class BarcodeSymbolRenderer {
+
+    private static final Map<EncodeHintType, Object> QR_HINTS = Map.of(
+            EncodeHintType.CHARACTER_SET, "UTF-8",
+            EncodeHintType.MARGIN, 1
+    );
+    private static final Map<EncodeHintType, Object> DATAMATRIX_HINTS = Map.of(
+            EncodeHintType.CHARACTER_SET, "UTF-8"
+    );
+
+    // Writer'ы ZXing не хранят состояния между вызовами — один экземпляр на всё приложение
+    private final QRCodeWriter qrCodeWriter = new QRCodeWriter();
+    private final DataMatrixWriter dataMatrixWriter = new DataMatrixWriter();
+
+    private final Cache<SymbolKey, Symbol> staticSymbols = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    /**
+     * QR-код (статический символ, берётся из кэша)
+     */
+    public Symbol qrCode(String content) throws WriterException {
+        SymbolKey key = new SymbolKey(BarcodeFormat.QR_CODE, content);
+        Symbol cached = staticSymbols.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        // Размер 0 → ZXing возвращает матрицу «1 бит = 1 модуль»
+        Symbol symbol = Symbol.of(qrCodeWriter.encode(content, BarcodeFormat.QR_CODE, 0, 0, QR_HINTS), 0);
+        staticSymbols.put(key, symbol);
+        return symbol;
+    }
+
+    /**
+     * DataMatrix. Коды Честного знака уникальны для каждой этикетки, поэтому не кэшируются
+     */
+    public Symbol dataMatrix(String content) {
+        BitMatrix matrix = dataMatrixWriter.encode(content, BarcodeFormat.DATA_MATRIX, 0, 0, DATAMATRIX_HINTS);
+        return Symbol.of(matrix, 1);
+    }
+
+    /**
+     * Нарисовать символ в прямоугольнике с сохранением пропорций (как Image.scaleToFit),
+     * левый нижний угол — в (x, y)
+     */
+    public void draw(PdfCanvas canvas, Symbol symbol, float x, float y, float width, float height) {
+        int totalCols = symbol.width() + symbol.quietZone() * 2;
+        int totalRows = symbol.height() + symbol.quietZone() * 2;
+        float module = Math.min(width / totalCols, height / totalRows);
+        if (module <= 0) {
+            return;
+        }
+
+        float symbolTop = y + totalRows * module;
+        float originX = x + symbol.quietZone() * module;
+        float originTop = symbolTop - symbol.quietZone() * module;
+
+        canvas.saveState();
+
+        // Белая подложка с тихой зоной — как непрозрачный фон у прежнего PNG
+        canvas.setFillColor(ColorConstants.WHITE);
+        canvas.rectangle(x, y, totalCols * module, totalRows * module);
+        canvas.fill();
+
+        canvas.setFillColor(ColorConstants.BLACK);
+        int[] runs = symbol.runs();
+        for (int i = 0; i < runs.length; i += 3) {
+            int row = runs[i];
+            int start = runs[i + 1];
+            int length = runs[i + 2];
+            canvas.rectangle(originX + start * module, originTop - (row + 1) * module, length * module, module);
+        }
+        canvas.fill();
+
+        canvas.restoreState();
+    }
+
+    private record SymbolKey(BarcodeFormat format, String content) {
+    }
+
+    /**
+     * Символ в виде горизонтальных отрезков модулей: тройки (строка, начало, длина)
+     */
+    public record Symbol(int width, int height, int quietZone, int[] runs) {
+
+        static Symbol of(BitMatrix matrix, int quietZone) {
+            int width = matrix.getWidth();
+            int height = matrix.getHeight();
+            int[] runs = new int[Math.max(16, width * height / 2) * 3];
+            int count = 0;
+            for (int row = 0; row < height; row++) {
+                int col = 0;
+                while (col < width) {
+                    if (!matrix.get(col, row)) {
+                        col++;
+                        continue;
+                    }
+                    int start = col;
+                    while (col < width && matrix.get(col, row)) {
+                        col++;
+                    }
+                    if (count + 3 > runs.length) {
+                        runs = Arrays.copyOf(runs, runs.length * 2);
+                    }
+                    runs[count++] = row;
+                    runs[count++] = start;
+                    runs[count++] = col - start;
+                }
+            }
+            return new Symbol(width, height, quietZone, Arrays.copyOf(runs, count));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.ozonLabel.ozonApi.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Locale;
+
+/**
+ * Разбор заголовков согласования содержимого и условных запросов при раздаче файлов.
+ */
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {
+        // Utility class
+    }
+
+    /**
+     * Принимает ли клиент gzip с учётом q-значений (RFC 9110, 12.5.3):
+     * "gzip;q=0" — отказ, явное значение для gzip важнее "*"
+     */
+    public static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(params);
+            if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+                gzipQuality = quality;
+            } else if ("*".equals(coding)) {
+                anyQuality = quality;
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return anyQuality != null && anyQuality > 0;
+    }
+
+    /**
+     * Совпадает ли If-None-Match с ETag ответа (слабое сравнение, как требует RFC 9110 для GET)
+     */
+    public static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || etag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double quality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    // Некорректное q-значение — считаем кодировку неприемлемой
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -1,9 +1,12 @@
 package org.ozonLabel.ozonApi.util;
 
+import org.ozonLabel.common.dto.label.DateSettingsDto;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class DateCalculator {
@@ -95,4 +98,57 @@ public class DateCalculator {
             default -> DateTimeFormatter.ofPattern("dd.MM.yyyy");
         };
     }
+
+    /**
+     * Строки элемента «дата» по его настройкам (дата изготовления, годен до, срок годности).
+     *
+     * @param dateSettings настройки элемента
+     * @return строки для печати или пустой список, если элемент печатается по content как текст
+     */
+    public List<String> formatDateLines(DateSettingsDto dateSettings) {
+        List<String> lines = new ArrayList<>();
+        if (dateSettings == null) {
+            return lines;
+        }
+
+        // Определяем дату изготовления
+        LocalDate manufactureDate;
+        boolean smartDate = Boolean.TRUE.equals(dateSettings.getSmartDate());
+        String customDate = dateSettings.getCustomDate();
+
+        if (smartDate) {
+            // Умная дата: дата изготовления = дата печати
+            manufactureDate = LocalDate.now();
+        } else if (customDate != null && !customDate.isEmpty()) {
+            // Обычная дата: из customDate
+            try {
+                manufactureDate = LocalDate.parse(customDate);
+            } catch (Exception e) {
+                manufactureDate = LocalDate.now();
+            }
+        } else {
+            // content уже отформатирован фронтендом
+            return lines;
+        }
+
+        // Расчёт даты «годен до» (только для умной даты)
+        LocalDate bestBefore = smartDate
+                ? calculateBestBefore(manufactureDate, dateSettings.getShelfLifeValue(), dateSettings.getShelfLifeUnit())
+                : null;
+
+        DateTimeFormatter formatter = getFormatter(dateSettings.getFormat() != null ? dateSettings.getFormat() : "DD.MM.YYYY");
+        boolean abbreviate = Boolean.TRUE.equals(dateSettings.getAbbreviateText());
+
+        if (Boolean.TRUE.equals(dateSettings.getShowManufactureDate())) {
+            lines.add((abbreviate ? "Дата изг.: " : "Дата изготовления: ") + manufactureDate.format(formatter));
+        }
+        if (smartDate && Boolean.TRUE.equals(dateSettings.getShowBestBefore()) && bestBefore != null) {
+            lines.add("Годен до: " + bestBefore.format(formatter));
+        }
+        if (Boolean.TRUE.equals(dateSettings.getShowShelfLife())) {
+            lines.add((abbreviate ? "Ср. годн.: " : "Срок годности: ")
+                    + formatShelfLife(dateSettings.getShelfLifeValue(), dateSettings.getShelfLifeUnit()));
+        }
+        return lines;
+    }
 }
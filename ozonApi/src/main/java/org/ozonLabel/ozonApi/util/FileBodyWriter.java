@@ -0,0 +1,60 @@
+package org.ozonLabel.ozonApi.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Отправка файла с диска телом ответа без копирования в heap:
+ * через sendfile Tomcat, а если он недоступен — через FileChannel.transferTo.
+ */
+public final class FileBodyWriter {
+
+    // Атрибуты sendfile Tomcat (org.apache.tomcat.util.net.Constants)
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // Для мелких файлов sendfile не окупается (порог как у DefaultServlet Tomcat)
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private FileBodyWriter() {
+        // Utility class
+    }
+
+    /**
+     * Отправить count байт файла начиная с start. Заголовки (в том числе Content-Length)
+     * должны быть выставлены до вызова.
+     */
+    public static void write(Path body, long start, long count,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // Tomcat сам отправит файл через sendfile после выхода из сервлета
+            request.setAttribute(SENDFILE_FILENAME_ATTR, body.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(body, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+}
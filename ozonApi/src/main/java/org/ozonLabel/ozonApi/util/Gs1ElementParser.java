@@ -0,0 +1,288 @@
+package org.ozonLabel.ozonApi.util;
+
+/**
+ * Разбор строки элементов GS1 (содержимого GS1 DataMatrix кода маркировки).
+ *
+ * Разбор идёт за один проход по {@link CharSequence} без промежуточных строк: в результат
+ * записываются только смещения элементов, строки создаются по запросу через {@link Elements#value(int)}.
+ * Длина AI и данных берётся из таблицы по первым двум цифрам AI (как в GS1 General Specifications):
+ * элементы с предопределённой длиной могут идти без разделителя, остальные заканчиваются GS/FNC1
+ * или концом кода. Для GTIN (01, 02) и SSCC (00) проверяется контрольная цифра.
+ */
+public final class Gs1ElementParser {
+
+    public static final int AI_SSCC = 0;
+    public static final int AI_GTIN = 1;
+    public static final int AI_CONTENT_GTIN = 2;
+    public static final int AI_SERIAL = 21;
+    public static final int AI_VERIFICATION_KEY = 93;
+
+    private static final char FNC1 = (char) 232;
+    private static final char GS = (char) 29;
+
+    /** Максимум элементов в одном коде */
+    private static final int MAX_ELEMENTS = 16;
+
+    // Таблицы по первым двум цифрам AI: длина AI (0 — префикс не назначен),
+    // фиксированная длина данных (0 — переменная) и максимальная длина переменных данных
+    private static final byte[] AI_LENGTH = new byte[100];
+    private static final byte[] FIXED_LENGTH = new byte[100];
+    private static final byte[] MAX_LENGTH = new byte[100];
+
+    // Набор символов GS1 AI encodable character set 82
+    private static final boolean[] CSET82 = new boolean[128];
+
+    static {
+        fixed(0, 2, 18);
+        fixed(1, 2, 14);
+        fixed(2, 2, 14);
+        fixed(3, 2, 14);
+        fixed(4, 2, 16);
+        variable(10, 2, 20);
+        for (int prefix = 11; prefix <= 19; prefix++) {
+            fixed(prefix, 2, 6);
+        }
+        fixed(20, 2, 2);
+        variable(21, 2, 20);
+        variable(22, 2, 20);
+        variable(23, 3, 28);
+        variable(24, 3, 30);
+        variable(25, 3, 30);
+        variable(30, 2, 8);
+        for (int prefix = 31; prefix <= 36; prefix++) {
+            fixed(prefix, 4, 6);
+        }
+        variable(37, 2, 8);
+        variable(39, 4, 18);
+        variable(40, 3, 30);
+        fixed(41, 3, 13);
+        variable(42, 3, 30);
+        variable(43, 4, 70);
+        variable(70, 4, 30);
+        variable(71, 3, 20);
+        variable(72, 4, 90);
+        variable(80, 4, 90);
+        variable(81, 4, 70);
+        variable(82, 4, 70);
+        variable(90, 2, 30);
+        for (int prefix = 91; prefix <= 99; prefix++) {
+            variable(prefix, 2, 90);
+        }
+
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CSET82[c] = true;
+            CSET82[Character.toLowerCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CSET82[c] = true;
+        }
+        for (char c : "!\"%&'()*+,-./:;<=>?_".toCharArray()) {
+            CSET82[c] = true;
+        }
+    }
+
+    private Gs1ElementParser() {
+        // Utility class
+    }
+
+    private static void fixed(int prefix, int aiLength, int dataLength) {
+        AI_LENGTH[prefix] = (byte) aiLength;
+        FIXED_LENGTH[prefix] = (byte) dataLength;
+        MAX_LENGTH[prefix] = (byte) dataLength;
+    }
+
+    private static void variable(int prefix, int aiLength, int maxLength) {
+        AI_LENGTH[prefix] = (byte) aiLength;
+        MAX_LENGTH[prefix] = (byte) maxLength;
+    }
+
+    /**
+     * Разобрать код в переданный (переиспользуемый) результат
+     *
+     * @param code код маркировки, допускается ведущий FNC1/GS или идентификатор символики ]d2
+     * @param out результат, предыдущее содержимое сбрасывается
+     * @return true, если код корректен; иначе причина в {@link Elements#error()}
+     */
+    public static boolean parse(CharSequence code, Elements out) {
+        out.reset(code);
+        int length = code.length();
+        int pos = 0;
+
+        if (length >= 3 && code.charAt(0) == ']') {
+            pos = 3;
+        }
+        if (pos < length && isSeparator(code.charAt(pos))) {
+            pos++;
+        }
+        if (pos >= length) {
+            return out.fail("пустой код");
+        }
+
+        while (pos < length) {
+            if (out.count == MAX_ELEMENTS) {
+                return out.fail("слишком много элементов");
+            }
+            if (pos + 2 > length || !isDigit(code.charAt(pos)) || !isDigit(code.charAt(pos + 1))) {
+                return out.fail("ожидался AI в позиции " + pos);
+            }
+            int prefix = (code.charAt(pos) - '0') * 10 + (code.charAt(pos + 1) - '0');
+            int aiLength = AI_LENGTH[prefix];
+            if (aiLength == 0) {
+                return out.fail("неизвестный AI в позиции " + pos);
+            }
+            if (pos + aiLength > length) {
+                return out.fail("обрезанный AI в позиции " + pos);
+            }
+            int ai = prefix;
+            for (int i = pos + 2; i < pos + aiLength; i++) {
+                char c = code.charAt(i);
+                if (!isDigit(c)) {
+                    return out.fail("ожидался AI в позиции " + pos);
+                }
+                ai = ai * 10 + (c - '0');
+            }
+
+            int dataStart = pos + aiLength;
+            int dataEnd;
+            int fixedLength = FIXED_LENGTH[prefix];
+            if (fixedLength > 0) {
+                dataEnd = dataStart + fixedLength;
+                if (dataEnd > length) {
+                    return out.fail("короткие данные AI " + ai);
+                }
+                for (int i = dataStart; i < dataEnd; i++) {
+                    if (!isDigit(code.charAt(i))) {
+                        return out.fail("нецифровые данные AI " + ai);
+                    }
+                }
+                if ((prefix <= 2) && !checkDigitValid(code, dataStart, dataEnd)) {
+                    return out.fail("неверная контрольная цифра AI " + ai);
+                }
+                pos = dataEnd;
+            } else {
+                dataEnd = dataStart;
+                while (dataEnd < length) {
+                    char c = code.charAt(dataEnd);
+                    if (isSeparator(c)) {
+                        break;
+                    }
+                    if (c >= CSET82.length || !CSET82[c]) {
+                        return out.fail("недопустимый символ в данных AI " + ai);
+                    }
+                    dataEnd++;
+                }
+                if (dataEnd == dataStart || dataEnd - dataStart > MAX_LENGTH[prefix]) {
+                    return out.fail("неверная длина данных AI " + ai);
+                }
+                pos = dataEnd;
+            }
+            // Разделитель после элемента с фиксированной длиной не обязателен, но допустим
+            if (pos < length && isSeparator(code.charAt(pos))) {
+                pos++;
+            }
+            out.add(ai, dataStart, dataEnd);
+        }
+        return true;
+    }
+
+    /**
+     * Контрольная цифра GS1 (mod 10): последняя цифра диапазона
+     */
+    public static boolean checkDigitValid(CharSequence digits, int start, int end) {
+        int sum = 0;
+        int weight = 3;
+        for (int i = end - 2; i >= start; i--) {
+            sum += (digits.charAt(i) - '0') * weight;
+            weight = 4 - weight;
+        }
+        return (10 - sum % 10) % 10 == digits.charAt(end - 1) - '0';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == GS || c == FNC1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Результат разбора: смещения элементов в исходном коде.
+     * Не потокобезопасен, рассчитан на повторное использование в цикле загрузки.
+     */
+    public static final class Elements {
+
+        private final int[] ais = new int[MAX_ELEMENTS];
+        private final int[] starts = new int[MAX_ELEMENTS];
+        private final int[] ends = new int[MAX_ELEMENTS];
+        private int count;
+        private CharSequence source;
+        private String error;
+
+        private void reset(CharSequence code) {
+            source = code;
+            count = 0;
+            error = null;
+        }
+
+        private void add(int ai, int start, int end) {
+            ais[count] = ai;
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        private boolean fail(String reason) {
+            error = reason;
+            count = 0;
+            return false;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public int ai(int index) {
+            return ais[index];
+        }
+
+        public int start(int index) {
+            return starts[index];
+        }
+
+        public int end(int index) {
+            return ends[index];
+        }
+
+        /**
+         * Индекс элемента с данным AI или -1
+         */
+        public int indexOf(int ai) {
+            for (int i = 0; i < count; i++) {
+                if (ais[i] == ai) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        public boolean has(int ai) {
+            return indexOf(ai) >= 0;
+        }
+
+        /**
+         * Данные элемента с данным AI или null
+         */
+        public String value(int ai) {
+            int index = indexOf(ai);
+            return index < 0 ? null : source.subSequence(starts[index], ends[index]).toString();
+        }
+
+        /**
+         * Причина отказа последнего разбора или null
+         */
+        public String error() {
+            return error;
+        }
+    }
+}
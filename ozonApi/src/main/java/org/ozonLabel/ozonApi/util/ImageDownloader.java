@@ -0,0 +1,41 @@
+package org.ozonLabel.ozonApi.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URLConnection;
+
+/**
+ * Загрузка изображений этикеток по URL с таймаутами: медленный хост не держит поток печати бесконечно.
+ */
+public final class ImageDownloader {
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 10000;
+
+    private ImageDownloader() {
+        // Utility class
+    }
+
+    /**
+     * Скачать изображение целиком
+     *
+     * @throws MalformedURLException если URL некорректен
+     */
+    public static byte[] download(String imageUrl) throws IOException {
+        URLConnection connection;
+        try {
+            connection = URI.create(imageUrl).toURL().openConnection();
+        } catch (IllegalArgumentException e) {
+            MalformedURLException malformed = new MalformedURLException(e.getMessage());
+            malformed.initCause(e);
+            throw malformed;
+        }
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        try (InputStream in = connection.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package org.ozonLabel.ozonApi.util;
+
+import org.ozonLabel.common.exception.user.ValidationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Генерация команд термопринтера (ZPL или TSPL) для этикеток.
+ *
+ * Этикетка описывается один раз как сохранённый в памяти принтера формат
+ * (ZPL: ^DF/^XF, TSPL: DOWNLOAD "*.BAS"/RUN), копии печатаются его вызовом с количеством
+ * (^PQ / PRINT 1,n). Переменные поля — только DataMatrix: в вызове передаются коды текущей копии.
+ * Все координаты — в точках принтера, начало в левом верхнем углу этикетки.
+ * Поворот — в градусах против часовой стрелки, как в PDF.
+ */
+public abstract class ThermalCommandWriter {
+
+    public enum Language {
+        ZPL, TSPL;
+
+        public static Language parse(String value) {
+            try {
+                return Language.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new ValidationException("Неподдерживаемый формат печати: " + value);
+            }
+        }
+    }
+
+    /**
+     * Монохромное изображение: строки по widthBytes байт, бит 1 — чёрная точка, старший бит слева
+     */
+    public record Bitmap(int widthBytes, int height, byte[] data) {
+    }
+
+    /**
+     * Дополнительный прямоугольник в конкретной копии (заглушка DataMatrix, разделитель SKU)
+     */
+    public record Box(int x, int y, int width, int height, int thickness) {
+    }
+
+    protected final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    protected final int dpi;
+    protected final String font;
+    protected int formatCount;
+
+    protected ThermalCommandWriter(int dpi, String font) {
+        this.dpi = dpi;
+        this.font = font;
+    }
+
+    public static ThermalCommandWriter create(Language language, int dpi, String zplFont, String tsplFont) {
+        return language == Language.ZPL ? new Zpl(dpi, zplFont) : new Tspl(dpi, tsplFont);
+    }
+
+    /**
+     * Начать описание формата этикетки
+     *
+     * @return имя формата для {@link #print}
+     */
+    public abstract String beginFormat(int widthDots, int heightDots, double widthMm, double heightMm);
+
+    public abstract void endFormat();
+
+    /**
+     * Текст в рамке (x, y, width, height) с выравниванием left/center/right
+     */
+    public abstract void text(int x, int y, int width, int height, int fontDots, String align,
+                              int rotation, String content);
+
+    /**
+     * Штрихкод: type — CODE128, EAN13 или EAN8; module — ширина узкого штриха в точках
+     */
+    public abstract void barcode(String type, int x, int y, int barHeight, int module, int rotation, String content);
+
+    /**
+     * Переменное поле DataMatrix; значение передаётся в {@link #print} по номеру поля
+     */
+    public abstract void dataMatrixField(int field, int x, int y, int size, int module);
+
+    public abstract void qrCode(int x, int y, int module, String content);
+
+    /**
+     * Прямоугольник; thickness ≥ min(width, height)/2 даёт заливку. white — «стереть» область
+     */
+    public abstract void box(int x, int y, int width, int height, int thickness, boolean white);
+
+    public abstract void ellipse(int x, int y, int width, int height, int thickness);
+
+    public abstract void line(int x1, int y1, int x2, int y2, int thickness);
+
+    public abstract void image(int x, int y, Bitmap bitmap);
+
+    /**
+     * Напечатать копии формата
+     *
+     * @param fields значения полей DataMatrix по номеру (отсутствующие поля не печатаются)
+     * @param boxes  прямоугольники, добавляемые только к этим копиям
+     */
+    public abstract void print(String format, Map<Integer, String> fields, List<Box> boxes, int copies);
+
+    /**
+     * Завершить задание (удалить временные форматы из памяти принтера) и вернуть команды
+     */
+    public abstract byte[] finish();
+
+    protected void write(String commands) {
+        out.writeBytes(commands.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * ZPL II (Zebra). Текст в UTF-8 (^CI28), спецсимволы — через ^FH
+     */
+    private static final class Zpl extends ThermalCommandWriter {
+
+        // Изображения скачиваются в принтер один раз (~DG) и вызываются из форматов через ^XG
+        private final Map<Bitmap, String> images = new IdentityHashMap<>();
+        private final StringBuilder format = new StringBuilder();
+
+        Zpl(int dpi, String font) {
+            super(dpi, font);
+        }
+
+        @Override
+        public String beginFormat(int widthDots, int heightDots, double widthMm, double heightMm) {
+            String name = "R:OZL" + (++formatCount) + ".ZPL";
+            format.setLength(0);
+            format.append("^XA^DF").append(name).append("^FS\n")
+                    .append("^PW").append(widthDots).append("^LL").append(heightDots)
+                    .append("^LH0,0^CI28\n");
+            return name;
+        }
+
+        @Override
+        public void endFormat() {
+            format.append("^XZ\n");
+            write(format.toString());
+        }
+
+        @Override
+        public void text(int x, int y, int width, int height, int fontDots, String align,
+                         int rotation, String content) {
+            int lines = Math.max(1, height / Math.max(1, fontDots));
+            format.append("^FO").append(x).append(',').append(y)
+                    .append(fontCommand(orientation(rotation), fontDots))
+                    .append("^FB").append(Math.max(1, width)).append(',').append(lines).append(",0,")
+                    .append(justification(align)).append(",0")
+                    .append("^FH^FD").append(escape(content)).append("^FS\n");
+        }
+
+        @Override
+        public void barcode(String type, int x, int y, int barHeight, int module, int rotation, String content) {
+            String o = orientation(rotation);
+            format.append("^BY").append(module).append(",3,").append(barHeight)
+                    .append("^FO").append(x).append(',').append(y);
+            switch (type) {
+                // Для ^BE/^B8 контрольную цифру считает принтер
+                case "EAN13" -> format.append("^BE").append(o).append(',').append(barHeight).append(",Y,N")
+                        .append("^FD").append(content, 0, 12);
+                case "EAN8" -> format.append("^B8").append(o).append(',').append(barHeight).append(",Y,N")
+                        .append("^FD").append(content, 0, 7);
+                // '>' в ^BC начинает служебную последовательность, сам символ кодируется как "><"
+                default -> format.append("^BC").append(o).append(',').append(barHeight).append(",Y,N,N")
+                        .append("^FH^FD").append(escape(content).replace(">", "><"));
+            }
+            format.append("^FS\n");
+        }
+
+        @Override
+        public void dataMatrixField(int field, int x, int y, int size, int module) {
+            format.append("^FO").append(x).append(',').append(y)
+                    .append("^BXN,").append(module).append(",200")
+                    .append("^FN").append(field).append("^FS\n");
+        }
+
+        @Override
+        public void qrCode(int x, int y, int module, String content) {
+            format.append("^FO").append(x).append(',').append(y)
+                    .append("^BQN,2,").append(Math.min(10, module))
+                    .append("^FH^FDQA,").append(escape(content)).append("^FS\n");
+        }
+
+        @Override
+        public void box(int x, int y, int width, int height, int thickness, boolean white) {
+            format.append(boxCommand(x, y, width, height, thickness, white));
+        }
+
+        @Override
+        public void ellipse(int x, int y, int width, int height, int thickness) {
+            format.append("^FO").append(x).append(',').append(y)
+                    .append("^GE").append(Math.max(1, width)).append(',').append(Math.max(1, height))
+                    .append(',').append(thickness).append(",B^FS\n");
+        }
+
+        @Override
+        public void line(int x1, int y1, int x2, int y2, int thickness) {
+            if (x1 == x2 || y1 == y2) {
+                // ^GD рисует только диагонали — вертикаль/горизонталь рамкой
+                format.append(boxCommand(Math.min(x1, x2), Math.min(y1, y2),
+                        Math.max(thickness, Math.abs(x2 - x1)), Math.max(thickness, Math.abs(y2 - y1)),
+                        thickness, false));
+                return;
+            }
+            // R — «/» (снизу слева вверх направо), L — «\»
+            char direction = (x2 - x1) * (y2 - y1) < 0 ? 'R' : 'L';
+            format.append("^FO").append(Math.min(x1, x2)).append(',').append(Math.min(y1, y2))
+                    .append("^GD").append(Math.abs(x2 - x1)).append(',').append(Math.abs(y2 - y1))
+                    .append(',').append(thickness).append(",B,").append(direction).append("^FS\n");
+        }
+
+        @Override
+        public void image(int x, int y, Bitmap bitmap) {
+            String name = images.computeIfAbsent(bitmap, b -> {
+                String graphic = "R:OZG" + (images.size() + 1) + ".GRF";
+                write("~DG" + graphic + "," + b.data().length + "," + b.widthBytes() + ","
+                        + HexFormat.of().withUpperCase().formatHex(b.data()) + "\n");
+                return graphic;
+            });
+            format.append("^FO").append(x).append(',').append(y)
+                    .append("^XG").append(name).append(",1,1^FS\n");
+        }
+
+        @Override
+        public void print(String name, Map<Integer, String> fields, List<Box> boxes, int copies) {
+            StringBuilder recall = new StringBuilder("^XA^XF").append(name).append("^FS");
+            fields.forEach((field, value) -> recall.append("^FN").append(field)
+                    .append("^FH^FD").append(escape(value)).append("^FS"));
+            for (Box b : boxes) {
+                recall.append(boxCommand(b.x(), b.y(), b.width(), b.height(), b.thickness(), false));
+            }
+            recall.append("^PQ").append(copies).append("^XZ\n");
+            write(recall.toString());
+        }
+
+        @Override
+        public byte[] finish() {
+            if (formatCount > 0) {
+                write("^XA^IDR:OZ*.*^FS^XZ\n");
+            }
+            return out.toByteArray();
+        }
+
+        private String fontCommand(String orientation, int fontDots) {
+            // Однобуквенное имя — резидентный шрифт (^A0), иначе путь к шрифту в памяти принтера (^A@)
+            return font.length() == 1
+                    ? "^A" + font + orientation + "," + fontDots + "," + fontDots
+                    : "^A@" + orientation + "," + fontDots + "," + fontDots + "," + font;
+        }
+
+        private static String boxCommand(int x, int y, int width, int height, int thickness, boolean white) {
+            int t = Math.max(1, Math.min(thickness, Math.min(width, height)));
+            return "^FO" + x + "," + y + "^GB" + Math.max(t, width) + "," + Math.max(t, height) + ","
+                    + t + "," + (white ? 'W' : 'B') + ",0^FS\n";
+        }
+
+        private static String orientation(int rotation) {
+            return switch (Math.floorMod(rotation, 360)) {
+                case 90 -> "B";
+                case 180 -> "I";
+                case 270 -> "R";
+                default -> "N";
+            };
+        }
+
+        private static char justification(String align) {
+            if ("center".equals(align)) return 'C';
+            if ("right".equals(align)) return 'R';
+            return 'L';
+        }
+
+        /**
+         * Экранирование для ^FH: управляющие символы и ^ ~ _ заменяются на _XX
+         */
+        private static String escape(String value) {
+            StringBuilder sb = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x20 || c == '^' || c == '~' || c == '_' || c == 0x7F) {
+                    sb.append('_').append(HexFormat.of().withUpperCase().toHexDigits((byte) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * TSPL2 (TSC, Xprinter и совместимые). Формат — программа в DRAM, DataMatrix — строковые переменные
+     */
+    private static final class Tspl extends ThermalCommandWriter {
+
+        // Число полей DataMatrix в каждой программе: все переменные задаются перед каждым RUN
+        private final Map<String, Integer> programs = new LinkedHashMap<>();
+        private String current;
+
+        Tspl(int dpi, String font) {
+            super(dpi, font);
+        }
+
+        @Override
+        public String beginFormat(int widthDots, int heightDots, double widthMm, double heightMm) {
+            if (formatCount == 0) {
+                write("CODEPAGE UTF-8\r\n");
+            }
+            String name = "OZL" + (++formatCount) + ".BAS";
+            programs.put(name, 0);
+            current = name;
+            write("DOWNLOAD \"" + name + "\"\r\n");
+            write("SIZE " + mm(widthMm) + " mm," + mm(heightMm) + " mm\r\n");
+            write("CLS\r\n");
+            return name;
+        }
+
+        @Override
+        public void endFormat() {
+            write("EOP\r\n");
+        }
+
+        @Override
+        public void text(int x, int y, int width, int height, int fontDots, String align,
+                         int rotation, String content) {
+            // Для масштабируемого шрифта множители задают размер в пунктах
+            int points = Math.max(1, Math.round(fontDots * 72f / dpi));
+            int alignment = "center".equals(align) ? 2 : "right".equals(align) ? 3 : 1;
+            int anchorX = alignment == 2 ? x + width / 2 : alignment == 3 ? x + width : x;
+            write("TEXT " + anchorX + "," + y + ",\"" + font + "\"," + clockwise(rotation) + ","
+                    + points + "," + points + "," + alignment + "," + literal(content) + "\r\n");
+        }
+
+        @Override
+        public void barcode(String type, int x, int y, int barHeight, int module, int rotation, String content) {
+            String code = switch (type) {
+                case "EAN13" -> "\"EAN13\"";
+                case "EAN8" -> "\"EAN8\"";
+                default -> "\"128\"";
+            };
+            String data = switch (type) {
+                case "EAN13" -> content.substring(0, 12);
+                case "EAN8" -> content.substring(0, 7);
+                default -> content;
+            };
+            write("BARCODE " + x + "," + y + "," + code + "," + barHeight + ",1," + clockwise(rotation)
+                    + "," + module + "," + module + "," + literal(data) + "\r\n");
+        }
+
+        @Override
+        public void dataMatrixField(int field, int x, int y, int size, int module) {
+            programs.merge(current, field, Math::max);
+            write("DMATRIX " + x + "," + y + "," + size + "," + size + ",x" + module + "," + variable(field) + "\r\n");
+        }
+
+        @Override
+        public void qrCode(int x, int y, int module, String content) {
+            write("QRCODE " + x + "," + y + ",M," + Math.min(10, module) + ",A,0," + literal(content) + "\r\n");
+        }
+
+        @Override
+        public void box(int x, int y, int width, int height, int thickness, boolean white) {
+            write(boxCommand(x, y, width, height, thickness, white));
+        }
+
+        @Override
+        public void ellipse(int x, int y, int width, int height, int thickness) {
+            write("ELLIPSE " + x + "," + y + "," + Math.max(1, width) + "," + Math.max(1, height) + ","
+                    + thickness + "\r\n");
+        }
+
+        @Override
+        public void line(int x1, int y1, int x2, int y2, int thickness) {
+            write("DIAGONAL " + x1 + "," + y1 + "," + x2 + "," + y2 + "," + thickness + "\r\n");
+        }
+
+        @Override
+        public void image(int x, int y, Bitmap bitmap) {
+            // В TSPL бит 0 — печатаемая точка: инвертируем
+            byte[] data = bitmap.data().clone();
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) ~data[i];
+            }
+            write("BITMAP " + x + "," + y + "," + bitmap.widthBytes() + "," + bitmap.height() + ",0,");
+            out.writeBytes(data);
+            write("\r\n");
+        }
+
+        @Override
+        public void print(String name, Map<Integer, String> fields, List<Box> boxes, int copies) {
+            // Отсутствующий код — пустая строка: DMATRIX ничего не печатает
+            for (int field = 1; field <= programs.getOrDefault(name, 0); field++) {
+                write(variable(field) + "=" + expression(fields.getOrDefault(field, "")) + "\r\n");
+            }
+            write("RUN \"" + name + "\"\r\n");
+            for (Box b : boxes) {
+                write(boxCommand(b.x(), b.y(), b.width(), b.height(), b.thickness(), false));
+            }
+            write("PRINT 1," + copies + "\r\n");
+        }
+
+        @Override
+        public byte[] finish() {
+            for (String program : programs.keySet()) {
+                write("KILL \"" + program + "\"\r\n");
+            }
+            return out.toByteArray();
+        }
+
+        private static String boxCommand(int x, int y, int width, int height, int thickness, boolean white) {
+            if (white) {
+                return "ERASE " + x + "," + y + "," + width + "," + height + "\r\n";
+            }
+            if (thickness * 2 >= Math.min(width, height)) {
+                return "BAR " + x + "," + y + "," + Math.max(1, width) + "," + Math.max(1, height) + "\r\n";
+            }
+            return "BOX " + x + "," + y + "," + (x + width) + "," + (y + height) + "," + thickness + "\r\n";
+        }
+
+        private static String variable(int field) {
+            return "DM" + field + "$";
+        }
+
+        private static int clockwise(int rotation) {
+            return Math.floorMod(-rotation, 360) / 90 * 90;
+        }
+
+        private static String mm(double value) {
+            return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+        }
+
+        /**
+         * Строковый литерал: кавычка — \["], управляющие символы отбрасываются
+         */
+        private static String literal(String value) {
+            StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    sb.append("\\[\"]");
+                } else if (c >= 0x20) {
+                    sb.append(c);
+                }
+            }
+            return sb.append('"').toString();
+        }
+
+        /**
+         * Строковое выражение BASIC: кавычки и управляющие символы (GS в кодах Честного знака) — через CHR$
+         */
+        private static String expression(String value) {
+            StringBuilder sb = new StringBuilder(value.length() + 8);
+            boolean open = false;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x20 || c == '"') {
+                    if (open) {
+                        sb.append('"');
+                        open = false;
+                    }
+                    if (!sb.isEmpty()) {
+                        sb.append('+');
+                    }
+                    sb.append("CHR$(").append((int) c).append(')');
+                } else {
+                    if (!open) {
+                        if (!sb.isEmpty()) {
+                            sb.append('+');
+                        }
+                        sb.append('"');
+                        open = true;
+                    }
+                    sb.append(c);
+                }
+            }
+            if (open) {
+                sb.append('"');
+            }
+            return sb.isEmpty() ? "\"\"" : sb.toString();
+        }
+    }
+}
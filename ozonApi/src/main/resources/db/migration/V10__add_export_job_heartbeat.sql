@@ -0,0 +1,9 @@
+-- Задания экспорта: экземпляр, у которого задание в очереди или выполняется, периодически обновляет heartbeat_at.
+-- Незавершённое задание с устаревшим heartbeat_at принадлежало остановленному экземпляру и помечается FAILED
+ALTER TABLE export_jobs ADD COLUMN heartbeat_at TIMESTAMP;
+
+UPDATE export_jobs SET heartbeat_at = COALESCE(started_at, created_at) WHERE status IN ('QUEUED', 'RUNNING');
+
+CREATE INDEX idx_export_jobs_unfinished_heartbeat ON export_jobs(heartbeat_at) WHERE status IN ('QUEUED', 'RUNNING');
+
+COMMENT ON COLUMN export_jobs.heartbeat_at IS 'Последний сигнал экземпляра, который держит задание в очереди или выполняет его';
@@ -0,0 +1,97 @@
+-- Помесячное секционирование notifications и company_audit_log по created_at.
+-- Старые данные удаляются целыми секциями (DROP TABLE) вместо построчного DELETE,
+-- будущие секции заранее создаёт PartitionMaintenanceService.
+-- Имена секций: <таблица>_pYYYY_MM, строки вне созданных секций попадают в <таблица>_default.
+
+-- Создать секцию за месяц, содержащий p_month
+CREATE OR REPLACE FUNCTION create_monthly_partition(p_table TEXT, p_month DATE)
+RETURNS VOID AS $$
+DECLARE
+    month_start DATE := date_trunc('month', p_month)::DATE;
+BEGIN
+    EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            p_table || '_p' || to_char(month_start, 'YYYY_MM'),
+            p_table,
+            month_start,
+            (month_start + INTERVAL '1 month')::DATE);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Перенести таблицу в секционированную с тем же набором колонок
+CREATE OR REPLACE FUNCTION convert_to_monthly_partitions(p_table TEXT, p_months_ahead INT)
+RETURNS VOID AS $$
+DECLARE
+    legacy_table TEXT := p_table || '_legacy';
+    id_sequence TEXT := p_table || '_part_id_seq';
+    first_month DATE;
+    last_month DATE;
+    current_month DATE;
+    fk RECORD;
+BEGIN
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', p_table, legacy_table);
+    EXECUTE format('UPDATE %I SET created_at = NOW() WHERE created_at IS NULL', legacy_table);
+
+    EXECUTE format(
+            'CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING COMMENTS) '
+                || 'PARTITION BY RANGE (created_at)',
+            p_table, legacy_table);
+
+    -- Собственная последовательность: SERIAL/IDENTITY исходной таблицы удаляется вместе с ней
+    EXECUTE format('CREATE SEQUENCE %I', id_sequence);
+    EXECUTE format('SELECT setval(%L, COALESCE((SELECT MAX(id) FROM %I), 0) + 1, false)',
+                   id_sequence, legacy_table);
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', p_table, id_sequence);
+    EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.id', id_sequence, p_table);
+
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN created_at SET NOT NULL', p_table);
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN created_at SET DEFAULT NOW()', p_table);
+    -- Ключ секционирования обязан входить в первичный ключ.
+    -- Имя <таблица>_pkey пока занято индексом старой таблицы
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I PRIMARY KEY (id, created_at)',
+                   p_table, p_table || '_part_pkey');
+
+    EXECUTE format('SELECT date_trunc(''month'', MIN(created_at))::DATE FROM %I', legacy_table)
+        INTO first_month;
+    last_month := (date_trunc('month', NOW()) + make_interval(months => p_months_ahead))::DATE;
+    current_month := COALESCE(first_month, date_trunc('month', NOW())::DATE);
+    WHILE current_month <= last_month LOOP
+        PERFORM create_monthly_partition(p_table, current_month);
+        current_month := (current_month + INTERVAL '1 month')::DATE;
+    END LOOP;
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I DEFAULT', p_table || '_default', p_table);
+
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I', p_table, legacy_table);
+
+    -- LIKE не копирует внешние ключи (users, владелец компании): переносим их с исходной таблицы
+    -- с теми же именами и определениями, включая ON DELETE
+    FOR fk IN
+        SELECT conname, pg_get_constraintdef(oid) AS definition
+        FROM pg_constraint
+        WHERE conrelid = legacy_table::regclass AND contype = 'f'
+    LOOP
+        EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', legacy_table, fk.conname);
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I %s', p_table, fk.conname, fk.definition);
+    END LOOP;
+
+    EXECUTE format('DROP TABLE %I', legacy_table);
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT convert_to_monthly_partitions('notifications', 3);
+SELECT convert_to_monthly_partitions('company_audit_log', 3);
+
+DROP FUNCTION convert_to_monthly_partitions(TEXT, INT);
+
+-- Индексы под основные запросы (создаются на всех секциях автоматически)
+CREATE INDEX idx_notifications_user_created ON notifications(user_id, created_at DESC);
+CREATE INDEX idx_notifications_user_unread ON notifications(user_id, created_at DESC) WHERE is_read = FALSE;
+CREATE INDEX idx_notifications_expires ON notifications(expires_at) WHERE expires_at IS NOT NULL;
+
+CREATE INDEX idx_audit_owner_created ON company_audit_log(company_owner_id, created_at DESC);
+CREATE INDEX idx_audit_owner_user_created ON company_audit_log(company_owner_id, user_id, created_at DESC);
+CREATE INDEX idx_audit_owner_action_created ON company_audit_log(company_owner_id, action, created_at DESC);
+CREATE INDEX idx_audit_owner_entity ON company_audit_log(company_owner_id, entity_type, entity_id);
+
+COMMENT ON TABLE notifications IS 'Уведомления пользователей, секции по месяцам created_at';
+COMMENT ON TABLE company_audit_log IS 'Журнал действий в компании, секции по месяцам created_at';
@@ -0,0 +1,33 @@
+-- Сохранённые задания печати: параметры запроса и списанные коды DataMatrix.
+-- Сам файл (PDF/ZPL/TSPL) лежит на диске и удаляется по сроку хранения;
+-- после этого задание собирается заново из записанных кодов без новых резервирований
+CREATE TABLE print_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    company_id BIGINT NOT NULL,
+    user_email VARCHAR(255) NOT NULL,
+    output_format VARCHAR(10) NOT NULL,
+    request JSONB NOT NULL,
+    total_labels INTEGER NOT NULL DEFAULT 0,
+    codes_used INTEGER NOT NULL DEFAULT 0,
+    expires_at TIMESTAMP,
+    created_at TIMESTAMP DEFAULT NOW()
+);
+
+CREATE INDEX idx_print_jobs_company ON print_jobs(company_id, created_at DESC);
+
+CREATE TABLE print_job_codes (
+    job_id BIGINT NOT NULL REFERENCES print_jobs(id) ON DELETE CASCADE,
+    seq INTEGER NOT NULL,
+    product_id BIGINT NOT NULL,
+    code_id BIGINT NOT NULL REFERENCES datamatrix_codes(id) ON DELETE CASCADE,
+    PRIMARY KEY (job_id, seq)
+);
+
+CREATE INDEX idx_print_job_codes_code ON print_job_codes(code_id);
+
+-- Комментарии
+COMMENT ON TABLE print_jobs IS 'Задания печати этикеток для повторной печати без списания новых кодов';
+COMMENT ON COLUMN print_jobs.request IS 'JSONB параметры печати (PrintRequest)';
+COMMENT ON COLUMN print_jobs.expires_at IS 'До какого момента хранится файл задания на диске';
+COMMENT ON TABLE print_job_codes IS 'Коды DataMatrix, списанные заданием печати, в порядке печати';
+COMMENT ON COLUMN print_job_codes.product_id IS 'Товар, на этикетке которого напечатан код';
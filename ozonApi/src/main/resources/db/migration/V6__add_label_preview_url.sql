@@ -0,0 +1,5 @@
+-- Миниатюры этикеток: как label_templates.preview_url, заполняется сервером после сохранения
+ALTER TABLE labels ADD COLUMN preview_url TEXT;
+
+COMMENT ON COLUMN labels.preview_url IS 'URL миниатюры этикетки (PNG); NULL — миниатюра ещё не готова или устарела';
+COMMENT ON COLUMN label_templates.preview_url IS 'URL миниатюры шаблона (PNG); NULL — миниатюра ещё не готова или устарела';
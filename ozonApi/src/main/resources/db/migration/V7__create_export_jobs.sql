@@ -0,0 +1,25 @@
+-- Фоновые задания экспорта этикеток (PDF, ZIP, Excel).
+-- Готовый файл лежит на диске до expires_at, затем удаляется вместе со строкой задания
+CREATE TABLE export_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    company_id BIGINT NOT NULL,
+    user_email VARCHAR(255) NOT NULL,
+    format VARCHAR(10) NOT NULL,
+    request JSONB NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    file_size BIGINT,
+    error VARCHAR(1000),
+    created_at TIMESTAMP DEFAULT NOW(),
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_export_jobs_company_status ON export_jobs(company_id, status);
+CREATE INDEX idx_export_jobs_expires ON export_jobs(expires_at);
+
+-- Комментарии
+COMMENT ON TABLE export_jobs IS 'Фоновые задания экспорта этикеток с файлом для скачивания';
+COMMENT ON COLUMN export_jobs.request IS 'JSONB параметры экспорта (ExportRequest) с развёрнутыми папками';
+COMMENT ON COLUMN export_jobs.status IS 'QUEUED, RUNNING, DONE или FAILED';
+COMMENT ON COLUMN export_jobs.expires_at IS 'Срок хранения задания и его файла';
@@ -0,0 +1,58 @@
+-- Компактное хранение кодов DataMatrix.
+-- Уникальность и поиск кода идут по 16-байтному MD5 вместо полного кода (~85 байт с криптохвостом),
+-- поэтому индекс по (company_id, code_hash) в несколько раз меньше прежних индексов по тексту кода.
+-- При совпадении хэша запросы дополнительно сравнивают сам код, так что коллизия не даёт ложного результата
+
+-- Серийный номер GS1 (AI 21) — не длиннее 20 символов, но прежний разбор кода без разделителя GS
+-- записывал в serial весь остаток кода (до 50 символов). Такие серийные номера выводятся заново из кода:
+-- 01 + GTIN, затем 21 + серийный номер до разделителя GS/FNC1 — как их разбирает Gs1ElementParser
+UPDATE datamatrix_codes
+SET serial = substring(code FROM '^(?:\]d2)?[' || chr(29) || chr(232) || ']?01[0-9]{14}21([^'
+        || chr(29) || chr(232) || ']{1,20})[' || chr(29) || chr(232) || ']')
+WHERE length(serial) > 20
+  AND substring(code FROM '^(?:\]d2)?[' || chr(29) || chr(232) || ']?01[0-9]{14}21([^'
+        || chr(29) || chr(232) || ']{1,20})[' || chr(29) || chr(232) || ']') IS NOT NULL;
+
+-- Оставшиеся коды новый разбор не принимает: миграция останавливается до изменения схемы,
+-- такие коды нужно исправить или удалить вручную
+DO $$
+DECLARE
+    bad_count BIGINT;
+    bad_ids TEXT;
+BEGIN
+    SELECT count(*), string_agg(id::TEXT, ', ' ORDER BY id) FILTER (WHERE rn <= 50)
+    INTO bad_count, bad_ids
+    FROM (SELECT id, row_number() OVER (ORDER BY id) AS rn
+          FROM datamatrix_codes WHERE length(serial) > 20) bad;
+    IF bad_count > 0 THEN
+        RAISE EXCEPTION 'datamatrix_codes: у % строк серийный номер длиннее 20 символов и не выводится из кода (id: %)',
+            bad_count, bad_ids;
+    END IF;
+END;
+$$;
+
+ALTER TABLE datamatrix_codes ADD COLUMN IF NOT EXISTS file_id BIGINT;
+ALTER TABLE datamatrix_codes ADD COLUMN code_hash BYTEA;
+
+UPDATE datamatrix_codes SET code_hash = decode(md5(code), 'hex');
+
+ALTER TABLE datamatrix_codes ALTER COLUMN code_hash SET NOT NULL;
+
+-- GTIN — 14 цифр, помещается в BIGINT; серийные номера выше уже приведены к 20 символам
+ALTER TABLE datamatrix_codes ALTER COLUMN gtin TYPE BIGINT
+    USING CASE WHEN gtin ~ '^[0-9]{14}$' THEN gtin::BIGINT END;
+ALTER TABLE datamatrix_codes ALTER COLUMN serial TYPE VARCHAR(20);
+
+-- Текстовые индексы кода заменяются индексом по хэшу
+ALTER TABLE datamatrix_codes DROP CONSTRAINT IF EXISTS uk_datamatrix_company_code;
+DROP INDEX IF EXISTS idx_dm_codes_company;
+CREATE UNIQUE INDEX uk_datamatrix_company_code_hash ON datamatrix_codes(company_id, code_hash);
+
+-- Индекс по одному флагу не используется планировщиком; выбор следующего кода идёт по id внутри товара/файла
+DROP INDEX IF EXISTS idx_dm_codes_used;
+DROP INDEX IF EXISTS idx_dm_codes_product_unused;
+CREATE INDEX idx_dm_codes_product_unused ON datamatrix_codes(product_id, id) WHERE is_used = FALSE;
+CREATE INDEX IF NOT EXISTS idx_dm_codes_file ON datamatrix_codes(file_id, is_used);
+
+COMMENT ON COLUMN datamatrix_codes.code_hash IS 'MD5 полного кода (16 байт) для уникальности и поиска в пределах компании';
+COMMENT ON COLUMN datamatrix_codes.gtin IS 'GTIN (14 цифр) извлечённый из кода, числом';
@@ -0,0 +1,14 @@
+-- Оригиналы загруженных файлов кодов DataMatrix хранятся сжатыми (gzip) в закрытом файловом хранилище,
+-- в строке остаются только путь, размер и контрольная сумма.
+-- Для старых строк original_content переносится на диск при первом скачивании и обнуляется;
+-- колонку можно удалить, когда в ней не останется данных
+ALTER TABLE datamatrix_files ADD COLUMN content_path VARCHAR(500);
+ALTER TABLE datamatrix_files ADD COLUMN content_size BIGINT;
+ALTER TABLE datamatrix_files ADD COLUMN content_sha256 VARCHAR(64);
+
+CREATE INDEX IF NOT EXISTS idx_dm_files_company_product ON datamatrix_files(company_id, product_id, uploaded_at DESC);
+
+COMMENT ON COLUMN datamatrix_files.content_path IS 'Путь к сжатому оригиналу (.gz) в закрытом хранилище';
+COMMENT ON COLUMN datamatrix_files.content_size IS 'Размер несжатого оригинала в байтах';
+COMMENT ON COLUMN datamatrix_files.content_sha256 IS 'SHA-256 несжатого оригинала';
+COMMENT ON COLUMN datamatrix_files.original_content IS 'Устарело: содержимое файлов, загруженных до переноса на диск';
@@ -1,11 +1,14 @@
 package org.ozonLabel.user.config;
 
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.ozonLabel.common.security.JwtTokenVerifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
+import java.util.Optional;
 
 @Service
 public class JwtService {
@@ -16,33 +19,37 @@ public class JwtService {
     @Value("${jwt.expiration:3600000}") // 1 час по умолчанию
     private long expiration;
 
+    @Value("${jwt.verified-cache-size:10000}")
+    private long verifiedCacheSize;
+
+    private JwtTokenVerifier tokenVerifier;
+
+    @PostConstruct
+    void init() {
+        tokenVerifier = new JwtTokenVerifier(secret, verifiedCacheSize);
+    }
+
     public String generateToken(String email) {
         return Jwts.builder()
                 .subject(email)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(Keys.hmacShaKeyFor(secret.getBytes()))
+                .signWith(tokenVerifier.getSigningKey())
                 .compact();
     }
 
+    /**
+     * Проверить токен и получить email за один разбор (с кэшем проверенных токенов)
+     */
+    public Optional<String> authenticate(String token) {
+        return tokenVerifier.verify(token).map(JwtTokenVerifier.VerifiedToken::subject);
+    }
+
     public String extractEmail(String token) {
-        return Jwts.parser()
-                .verifyWith(Keys.hmacShaKeyFor(secret.getBytes()))
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return authenticate(token).orElseThrow(() -> new JwtException("Invalid JWT token"));
     }
 
     public boolean isTokenValid(String token) {
-        try {
-            Jwts.parser()
-                    .verifyWith(Keys.hmacShaKeyFor(secret.getBytes()))
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        return tokenVerifier.verify(token).isPresent();
     }
 }
@@ -0,0 +1,133 @@
+package org.ozonLabel.user.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.service.user.NotificationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maintenance of monthly partitions of notifications and company_audit_log (see V4 migration).
+ *
+ * Creates partitions for the upcoming months ahead of time and drops partitions older
+ * than the retention period, so old rows disappear with a single DROP TABLE instead of
+ * row-by-row deletes. Runs under a PostgreSQL advisory lock, so several instances
+ * do not issue DDL concurrently.
+ *
+ * Lives outside org.ozonLabel.user.service on purpose: ozonApi scans that package,
+ * and the partition DDL must run only in userService.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PartitionMaintenanceService {
+
+    private static final long ADVISORY_LOCK_KEY = 0x6F7A6F6E5061L;
+    private static final Pattern PARTITION_NAME = Pattern.compile("^(.+)_p(\\d{4})_(\\d{2})$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationService notificationService;
+
+    @Value("${app.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${app.partitions.notifications.retention-months:12}")
+    private int notificationRetentionMonths;
+
+    @Value("${app.partitions.audit-log.retention-months:36}")
+    private int auditLogRetentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${app.partitions.cron:0 15 3 * * *}")
+    public void maintainPartitions() {
+        try {
+            Boolean done = transactionTemplate.execute(status -> {
+                Boolean locked = jdbcTemplate.queryForObject(
+                        "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY);
+                if (!Boolean.TRUE.equals(locked)) {
+                    return false;
+                }
+                maintain("notifications", notificationRetentionMonths);
+                maintain("company_audit_log", auditLogRetentionMonths);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(done)) {
+                log.debug("Partition maintenance is running on another instance");
+            }
+        } catch (Exception e) {
+            log.error("Partition maintenance failed", e);
+        }
+    }
+
+    /**
+     * Expired notifications inside live partitions are still removed by expires_at
+     */
+    @Scheduled(cron = "${app.partitions.notifications.cleanup-cron:0 0 * * * *}")
+    public void cleanupExpiredNotifications() {
+        try {
+            int deleted = notificationService.cleanupExpiredNotifications();
+            if (deleted > 0) {
+                log.info("Expired notifications cleanup: {} deleted", deleted);
+            }
+        } catch (Exception e) {
+            log.error("Expired notifications cleanup failed", e);
+        }
+    }
+
+    private void maintain(String table, int retentionMonths) {
+        YearMonth current = YearMonth.now();
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            LocalDate monthStart = current.plusMonths(i).atDay(1);
+            jdbcTemplate.queryForList("SELECT create_monthly_partition(?, ?)", table, Date.valueOf(monthStart));
+        }
+
+        if (retentionMonths <= 0) {
+            return;
+        }
+
+        // A partition is dropped once its whole month is older than the retention period
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (String partition : listPartitions(table)) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches() || !matcher.group(1).equals(table)) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+            if (month.isBefore(oldestKept)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS \"" + partition + "\"");
+                log.info("Dropped partition {} (retention {} months)", partition, retentionMonths);
+            }
+        }
+    }
+
+    private List<String> listPartitions(String table) {
+        return jdbcTemplate.queryForList("""
+                        SELECT child.relname AS name
+                        FROM pg_inherits inh
+                        JOIN pg_class parent ON parent.oid = inh.inhparent
+                        JOIN pg_class child ON child.oid = inh.inhrelid
+                        WHERE parent.relname = ?
+                        """, table).stream()
+                .map((Map<String, Object> row) -> (String) row.get("name"))
+                .toList();
+    }
+}
@@ -0,0 +1,13 @@
+package org.ozonLabel.user.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduled maintenance (partitions of notifications and audit log).
+ * Enabled only in userService, ozonApi shares the services but does not run the jobs.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
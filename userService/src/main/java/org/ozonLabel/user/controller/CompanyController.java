@@ -11,11 +11,17 @@ import org.ozonLabel.common.model.MemberRole;
 import org.ozonLabel.common.service.user.AuditLogService;
 import org.ozonLabel.common.service.user.CompanyService;
 import org.ozonLabel.user.entity.CompanyMember;
+import org.ozonLabel.user.service.TabularExportWriter;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -251,4 +257,36 @@ public class CompanyController {
         List<AuditLogEntryDto> response = auditLogService.getRecentActions(companyOwnerId);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Выгрузить историю действий компании за период (CSV или XLSX)
+     */
+    @GetMapping("/{companyOwnerId}/audit-log/export")
+    public ResponseEntity<StreamingResponseBody> exportAuditLog(
+            @PathVariable @Positive(message = "ID компании должен быть положительным") Long companyOwnerId,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            Authentication auth) {
+
+        String userEmail = auth.getName();
+
+        // Проверяем права
+        if (!companyService.hasMinimumRole(userEmail, companyOwnerId, MemberRole.ADMIN)) {
+            return ResponseEntity.status(403).body(null);
+        }
+
+        TabularExportWriter.Format exportFormat = TabularExportWriter.Format.parse(format);
+        log.info("Выгрузка истории действий компании {} пользователем {} в формате {}",
+                companyOwnerId, userEmail, exportFormat);
+
+        StreamingResponseBody body = out -> auditLogService.exportCompanyAuditLog(
+                companyOwnerId, from, to, exportFormat.name(), out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"audit-log-" + companyOwnerId + "." + exportFormat.extension() + "\"")
+                .body(body);
+    }
+}
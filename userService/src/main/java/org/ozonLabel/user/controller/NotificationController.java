@@ -8,9 +8,13 @@ import org.ozonLabel.common.dto.user.NotificationListResponseDto;
 import org.ozonLabel.common.dto.user.NotificationResponseDto;
 import org.ozonLabel.common.dto.user.NotificationStatsDto;
 import org.ozonLabel.common.service.user.NotificationService;
+import org.ozonLabel.user.service.TabularExportWriter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -70,6 +74,29 @@ public class NotificationController {
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Выгрузить все уведомления пользователя (CSV или XLSX)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportNotifications(
+            @RequestParam(defaultValue = "csv") String format,
+            Authentication auth) {
+
+        String userEmail = auth.getName();
+        // Формат проверяется до начала ответа, чтобы ошибка вернулась обычным JSON
+        TabularExportWriter.Format exportFormat = TabularExportWriter.Format.parse(format);
+        log.info("Выгрузка уведомлений пользователем {} в формате {}", userEmail, exportFormat);
+
+        StreamingResponseBody body = out -> notificationService.exportUserNotifications(
+                userEmail, exportFormat.name(), out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"notifications." + exportFormat.extension() + "\"")
+                .body(body);
+    }
+
     /**
      * Отметить уведомление как прочитанное
      */
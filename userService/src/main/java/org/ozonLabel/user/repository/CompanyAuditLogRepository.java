@@ -1,16 +1,22 @@
 package org.ozonLabel.user.repository;
 
+import jakarta.persistence.QueryHint;
 import org.ozonLabel.common.model.AuditAction;
 import org.ozonLabel.user.entity.CompanyAuditLog;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface CompanyAuditLogRepository extends JpaRepository<CompanyAuditLog, Long> {
@@ -49,4 +55,18 @@ public interface CompanyAuditLogRepository extends JpaRepository<CompanyAuditLog
             @Param("ownerId") Long companyOwnerId,
             @Param("entityType") String entityType,
             @Param("entityId") Long entityId);
+
+    // Выгрузка журнала за период потоком строк (без загрузки сущностей в память):
+    // [createdAt, action, userName, userEmail, entityType, entityId, details, ipAddress, userAgent]
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT a.createdAt, a.action, u.name, u.email, a.entityType, a.entityId, a.details, " +
+            "a.ipAddress, a.userAgent FROM CompanyAuditLog a LEFT JOIN a.user u " +
+            "WHERE a.companyOwnerId = :ownerId AND a.createdAt >= :from AND a.createdAt < :to " +
+            "ORDER BY a.createdAt DESC")
+    Stream<Object[]> streamForExport(@Param("ownerId") Long companyOwnerId,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
 }
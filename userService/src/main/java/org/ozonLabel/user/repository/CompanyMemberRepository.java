@@ -18,6 +18,14 @@ public interface CompanyMemberRepository extends JpaRepository<CompanyMember, Lo
     // Найти всех членов команды конкретной компании
     List<CompanyMember> findByCompanyOwnerId(Long companyOwnerId);
 
+    // Компании пользователя вместе с владельцами одним запросом
+    @Query("SELECT cm FROM CompanyMember cm JOIN FETCH cm.companyOwner WHERE cm.memberUserId = :memberUserId")
+    List<CompanyMember> findWithOwnerByMemberUserId(@Param("memberUserId") Long memberUserId);
+
+    // Члены команды вместе с пользователями одним запросом
+    @Query("SELECT cm FROM CompanyMember cm JOIN FETCH cm.memberUser WHERE cm.companyOwnerId = :companyOwnerId")
+    List<CompanyMember> findWithMemberUserByCompanyOwnerId(@Param("companyOwnerId") Long companyOwnerId);
+
     // Найти конкретную связь
     Optional<CompanyMember> findByCompanyOwnerIdAndMemberUserId(Long companyOwnerId, Long memberUserId);
 
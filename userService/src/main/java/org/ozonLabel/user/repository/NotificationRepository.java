@@ -1,5 +1,6 @@
 package org.ozonLabel.user.repository;
 
+import jakarta.persistence.QueryHint;
 import org.ozonLabel.common.model.NotificationPriority;
 import org.ozonLabel.common.model.NotificationType;
 import org.ozonLabel.user.entity.Notification;
@@ -8,11 +9,17 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
@@ -35,13 +42,19 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     // Подсчитать по типу
     Long countByUserIdAndType(Long userId, NotificationType type);
 
+    // Все счётчики пользователя одним запросом: [type, priority, isRead, count]
+    @Query("SELECT n.type, n.priority, n.isRead, COUNT(n) FROM Notification n " +
+            "WHERE n.userId = :userId GROUP BY n.type, n.priority, n.isRead")
+    List<Object[]> countGroupedByUserId(@Param("userId") Long userId);
+
     // Найти по связанной сущности
     List<Notification> findByUserIdAndRelatedEntityTypeAndRelatedEntityId(
             Long userId, String entityType, Long entityId);
 
-    // Массово отметить как прочитанные
+    // Массово отметить как прочитанные; возвращает число действительно изменённых (ранее непрочитанных)
     @Modifying
-    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt WHERE n.id IN :ids AND n.userId = :userId")
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt " +
+           "WHERE n.id IN :ids AND n.userId = :userId AND n.isRead = false")
     int markAsRead(@Param("ids") List<Long> ids, @Param("userId") Long userId, @Param("readAt") LocalDateTime readAt);
 
     // ⭐ NEW: Отметить ВСЕ уведомления пользователя как прочитанные (bulk update без предварительной выборки)
@@ -64,13 +77,28 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     @Query("DELETE FROM Notification n WHERE n.expiresAt IS NOT NULL AND n.expiresAt < :now")
     int deleteExpiredNotifications(@Param("now") LocalDateTime now);
 
-    // ⭐ NEW: Удалить истекшие уведомления пакетами (batch deletion для избежания блокировок)
+    // Удалить истекшие уведомления пакетами (batch deletion для избежания блокировок).
+    // В PostgreSQL нет DELETE ... LIMIT, пакет выбирается подзапросом по первичному ключу (id, created_at)
     @Modifying
-    @Query(value = "DELETE FROM notifications WHERE expires_at IS NOT NULL AND expires_at < :now LIMIT :batchSize",
+    @Transactional
+    @Query(value = "DELETE FROM notifications WHERE (id, created_at) IN (" +
+            "SELECT id, created_at FROM notifications " +
+            "WHERE expires_at IS NOT NULL AND expires_at < :now LIMIT :batchSize)",
             nativeQuery = true)
     int deleteExpiredNotificationsBatch(@Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
 
     // Получить уведомления с приоритетом
     List<Notification> findByUserIdAndPriorityOrderByCreatedAtDesc(
             Long userId, NotificationPriority priority);
-}
\ No newline at end of file
+
+    // Выгрузка уведомлений пользователя потоком строк:
+    // [createdAt, type, priority, title, message, isRead, readAt, relatedEntityType, relatedEntityId, data]
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT n.createdAt, n.type, n.priority, n.title, n.message, n.isRead, n.readAt, " +
+            "n.relatedEntityType, n.relatedEntityId, n.data FROM Notification n " +
+            "WHERE n.userId = :userId ORDER BY n.createdAt DESC")
+    Stream<Object[]> streamForExport(@Param("userId") Long userId);
+}
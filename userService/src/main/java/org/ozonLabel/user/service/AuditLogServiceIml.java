@@ -1,5 +1,6 @@
 package org.ozonLabel.user.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,40 +21,41 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AuditLogServiceIml implements AuditLogService {
 
+    private static final List<String> EXPORT_HEADER = List.of(
+            "Дата", "Действие", "Пользователь", "Email", "Тип объекта", "ID объекта",
+            "Детали", "IP-адрес", "User-Agent");
+    private static final int EXPORT_DETAILS_COLUMN = 6;
+
     private final CompanyAuditLogRepository auditLogRepository;
     private final UserRepository userRepository;
+    private final AuditLogWriter auditLogWriter;
+    private final ObjectMapper objectMapper;
 
     /**
-     * Log action with proper error handling
+     * Log action. The row is written asynchronously in batches by AuditLogWriter,
+     * client IP and user agent are captured here while the request is still bound.
      */
-    @Transactional
     public void logAction(Long companyOwnerId, Long userId, AuditAction action,
                           String entityType, Long entityId, Map<String, Object> details) {
         try {
-            CompanyAuditLog logEntry = CompanyAuditLog.builder()
-                    .companyOwnerId(companyOwnerId)
-                    .userId(userId)
-                    .action(action)
-                    .entityType(entityType)
-                    .entityId(entityId)
-                    .details(details)
-                    .ipAddress(getClientIp())
-                    .userAgent(getUserAgent())
-                    .build();
-
-            auditLogRepository.save(logEntry);
-
-            log.debug("Audit log created: {} by user {} in company {}",
+            auditLogWriter.submit(companyOwnerId, userId, action, entityType, entityId, details,
+                    getClientIp(), getUserAgent());
+
+            log.debug("Audit log queued: {} by user {} in company {}",
                     action, userId, companyOwnerId);
 
         } catch (Exception e) {
@@ -63,12 +65,10 @@ public class AuditLogServiceIml implements AuditLogService {
         }
     }
 
-    @Transactional
     public void logAction(Long companyOwnerId, Long userId, AuditAction action) {
         logAction(companyOwnerId, userId, action, null, null, null);
     }
 
-    @Transactional
     public void logAction(Long companyOwnerId, Long userId, AuditAction action,
                           Map<String, Object> details) {
         logAction(companyOwnerId, userId, action, null, null, details);
@@ -242,6 +242,30 @@ public class AuditLogServiceIml implements AuditLogService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Export rows are read through a forward-only cursor (fetch size 1000) as projections,
+     * not entities, so neither the persistence context nor the writer grows with the log.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCompanyAuditLog(Long companyOwnerId, LocalDateTime from, LocalDateTime to,
+                                      String format, OutputStream out) throws IOException {
+        TabularExportWriter.Format exportFormat = TabularExportWriter.Format.parse(format);
+        LocalDateTime start = from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0);
+        LocalDateTime end = to != null ? to : LocalDateTime.now().plusDays(1);
+
+        long rows = 0;
+        try (Stream<Object[]> stream = auditLogRepository.streamForExport(companyOwnerId, start, end);
+             TabularExportWriter writer = TabularExportWriter.create(exportFormat, out, "Журнал действий", EXPORT_HEADER)) {
+            for (Object[] row : (Iterable<Object[]>) stream::iterator) {
+                row[EXPORT_DETAILS_COLUMN] = TabularExportWriter.jsonText(objectMapper, row[EXPORT_DETAILS_COLUMN]);
+                writer.writeRow(Arrays.asList(row));
+                rows++;
+            }
+        }
+        log.info("Audit log of company {} exported: {} rows, format {}", companyOwnerId, rows, exportFormat);
+    }
+
     private AuditLogEntryDto mapToDto(CompanyAuditLog log, Map<Long, User> userMap) {
         User user = userMap.get(log.getUserId());
 
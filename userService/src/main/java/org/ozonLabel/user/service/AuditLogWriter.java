@@ -0,0 +1,238 @@
+package org.ozonLabel.user.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.model.AuditAction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous audit log writer.
+ *
+ * Events are appended to a bounded lock-free buffer and a single background thread
+ * inserts them with JDBC batches every {@code audit.writer.flush-interval-ms} or as soon
+ * as {@code audit.writer.batch-size} events are pending. Inside a transaction the event
+ * is enqueued only after commit, so rolled back operations are not audited.
+ *
+ * No event is dropped: when the buffer stays full longer than
+ * {@code audit.writer.offer-timeout-ms} the caller writes the event itself, and on
+ * shutdown the buffer is drained before the data source is closed.
+ */
+@Component
+@Slf4j
+public class AuditLogWriter {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO company_audit_log
+                (company_owner_id, user_id, action, entity_type, entity_id,
+                 details, ip_address, user_agent, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final AuditEventQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+
+    public AuditLogWriter(JdbcTemplate jdbcTemplate,
+                          ObjectMapper objectMapper,
+                          @Value("${audit.writer.buffer-capacity:8192}") int bufferCapacity,
+                          @Value("${audit.writer.batch-size:200}") int batchSize,
+                          @Value("${audit.writer.flush-interval-ms:200}") long flushIntervalMillis,
+                          @Value("${audit.writer.offer-timeout-ms:50}") long offerTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.queue = new AuditEventQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+        this.writerThread = new Thread(this::runWriter, "audit-log-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        writerThread.start();
+        log.info("Audit log writer started: buffer {}, batch {}, flush interval {} ms",
+                queue.capacity(), batchSize, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos));
+    }
+
+    /**
+     * Queue an audit event. Inside an active transaction the event is queued after commit.
+     */
+    public void submit(Long companyOwnerId, Long userId, AuditAction action,
+                       String entityType, Long entityId, Map<String, Object> details,
+                       String ipAddress, String userAgent) {
+        AuditEvent event = new AuditEvent(companyOwnerId, userId, action, entityType, entityId,
+                toJson(details), ipAddress, userAgent, LocalDateTime.now());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    private void enqueue(AuditEvent event) {
+        if (running && offerWithBackPressure(event)) {
+            if (queue.size() >= batchSize) {
+                LockSupport.unpark(writerThread);
+            }
+            if (running) {
+                return;
+            }
+            // Shutdown started while we were enqueuing: make sure the event is not left behind
+            drain();
+            return;
+        }
+
+        if (running) {
+            log.warn("Audit buffer is full, writing event synchronously");
+        }
+        write(List.of(event));
+    }
+
+    private boolean offerWithBackPressure(AuditEvent event) {
+        if (queue.offer(event)) {
+            return true;
+        }
+        long deadline = System.nanoTime() + offerTimeoutNanos;
+        do {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(this, BACKOFF_NANOS);
+            if (queue.offer(event)) {
+                return true;
+            }
+        } while (running && System.nanoTime() < deadline);
+        return false;
+    }
+
+    private void runWriter() {
+        while (running) {
+            try {
+                if (flushBatch() < batchSize) {
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+            } catch (Exception e) {
+                log.error("Audit log writer failed", e);
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    /**
+     * Write at most one batch. The queue has a single consumer, so polling is serialized
+     * between the writer thread and the shutdown drain.
+     */
+    private synchronized int flushBatch() {
+        List<AuditEvent> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+        AuditEvent event;
+        while (batch.size() < batchSize && (event = queue.poll()) != null) {
+            batch.add(event);
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+        return batch.size();
+    }
+
+    private void drain() {
+        while (flushBatch() > 0) {
+            // keep flushing until the buffer is empty
+        }
+    }
+
+    private void write(List<AuditEvent> events) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), this::bind);
+            log.debug("Audit log batch written: {} events", events.size());
+        } catch (Exception e) {
+            log.warn("Audit log batch of {} events failed, retrying row by row: {}",
+                    events.size(), e.getMessage());
+            for (AuditEvent event : events) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, event));
+                } catch (Exception rowException) {
+                    log.error("Failed to create audit log for action {} by user {} in company {}",
+                            event.action(), event.userId(), event.companyOwnerId(), rowException);
+                }
+            }
+        }
+    }
+
+    private void bind(PreparedStatement ps, AuditEvent event) throws SQLException {
+        ps.setLong(1, event.companyOwnerId());
+        ps.setLong(2, event.userId());
+        ps.setString(3, event.action().name());
+        ps.setString(4, event.entityType());
+        ps.setObject(5, event.entityId(), Types.BIGINT);
+        ps.setObject(6, event.detailsJson(), Types.OTHER);
+        ps.setString(7, event.ipAddress());
+        ps.setString(8, event.userAgent());
+        ps.setTimestamp(9, Timestamp.valueOf(event.createdAt()));
+    }
+
+    private String toJson(Map<String, Object> details) {
+        if (details == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(details);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize audit details: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stop accepting events into the buffer and write everything that is pending.
+     * Runs before the data source is closed because this bean depends on it.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int pending = queue.size();
+        drain();
+        log.info("Audit log writer stopped, {} pending events flushed", pending);
+    }
+
+    private record AuditEvent(Long companyOwnerId, Long userId, AuditAction action,
+                              String entityType, Long entityId, String detailsJson,
+                              String ipAddress, String userAgent, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,19 @@
+package org.ozonLabel.user.service;
+
+/**
+ * Company access of a user changed: membership added or removed, role changed,
+ * or the user's email changed. Invalidates the user's entry in CompanyAccessIndex.
+ *
+ * @param userId user whose memberships changed (may be null if only email is known)
+ * @param email  email the user was known by (may be null if only id is known)
+ */
+public record CompanyAccessChangedEvent(Long userId, String email) {
+
+    public static CompanyAccessChangedEvent ofUser(Long userId) {
+        return new CompanyAccessChangedEvent(userId, null);
+    }
+
+    public static CompanyAccessChangedEvent ofEmail(String email) {
+        return new CompanyAccessChangedEvent(null, email);
+    }
+}
@@ -0,0 +1,173 @@
+package org.ozonLabel.user.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.model.MemberRole;
+import org.ozonLabel.user.entity.CompanyMember;
+import org.ozonLabel.user.entity.User;
+import org.ozonLabel.user.repository.CompanyMemberRepository;
+import org.ozonLabel.user.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory company access index: email → userId → {companyOwnerId → role}.
+ *
+ * Entries are loaded lazily on first access and invalidated by
+ * {@link CompanyAccessChangedEvent} after the changing transaction commits. userService and
+ * ozonApi both hold an index, so the event is also sent as a NOTIFY on {@link #CHANNEL} inside
+ * the changing transaction; every process drops the affected entries on commit
+ * (DatabaseNotificationListener), and a revoked member loses access everywhere at once.
+ *
+ * The background refresh and {@code company-access.max-staleness} only bound staleness while
+ * the listener is reconnecting: an entry older than max-staleness is never served.
+ */
+@Component
+@Slf4j
+public class CompanyAccessIndex implements DatabaseNotificationHandler {
+
+    public static final String CHANNEL = "company_access";
+
+    private final UserRepository userRepository;
+    private final CompanyMemberRepository companyMemberRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Tells this process's own NOTIFY payloads apart from those of other processes
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final LoadingCache<String, Optional<Long>> userIdsByEmail;
+    private final LoadingCache<Long, Map<Long, MemberRole>> rolesByUserId;
+
+    public CompanyAccessIndex(UserRepository userRepository,
+                              CompanyMemberRepository companyMemberRepository,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${company-access.max-users:100000}") long maxUsers,
+                              @Value("${company-access.refresh-interval:PT30S}") Duration refreshInterval,
+                              @Value("${company-access.max-staleness:PT1M}") Duration maxStaleness) {
+        if (refreshInterval.compareTo(maxStaleness) >= 0) {
+            throw new IllegalStateException("company-access.refresh-interval must be shorter than company-access.max-staleness");
+        }
+        this.userRepository = userRepository;
+        this.companyMemberRepository = companyMemberRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.userIdsByEmail = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .refreshAfterWrite(refreshInterval)
+                .expireAfterWrite(maxStaleness)
+                .build(email -> userRepository.findByEmail(email).map(User::getId));
+        this.rolesByUserId = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .refreshAfterWrite(refreshInterval)
+                .expireAfterWrite(maxStaleness)
+                .build(this::loadRoles);
+    }
+
+    /**
+     * User id by email
+     */
+    public Optional<Long> findUserId(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        Optional<Long> userId = userIdsByEmail.get(email);
+        if (userId.isEmpty()) {
+            // Do not keep misses: the user may register any moment
+            userIdsByEmail.invalidate(email);
+        }
+        return userId;
+    }
+
+    /**
+     * Role of the user in the company: ADMIN for the owner, the member role otherwise
+     *
+     * @return empty if the user is unknown or has no access
+     */
+    public Optional<MemberRole> findRole(String email, Long companyOwnerId) {
+        return findUserId(email).flatMap(userId -> userId.equals(companyOwnerId)
+                ? Optional.of(MemberRole.ADMIN)
+                : findMemberRole(userId, companyOwnerId));
+    }
+
+    /**
+     * Member role of the user (the owner is not a member of their own company)
+     */
+    public Optional<MemberRole> findMemberRole(Long userId, Long companyOwnerId) {
+        return Optional.ofNullable(rolesByUserId.get(userId).get(companyOwnerId));
+    }
+
+    /**
+     * Runs inside the changing transaction: NOTIFY is transactional, so other processes get it only on commit.
+     * Not caught on purpose: a failed statement aborts the surrounding PostgreSQL transaction anyway
+     */
+    @EventListener
+    public void publishAccessChanged(CompanyAccessChangedEvent event) {
+        String payload = instanceId + ":" + (event.userId() != null ? event.userId() : "")
+                + ":" + (event.email() != null ? event.email() : "");
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAccessChanged(CompanyAccessChangedEvent event) {
+        invalidate(event.userId(), event.email());
+    }
+
+    @Override
+    public String channel() {
+        return CHANNEL;
+    }
+
+    /**
+     * Access change committed by another process: "instanceId:userId:email", either part may be empty
+     */
+    @Override
+    public void onNotification(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length < 3 || parts[0].equals(instanceId)) {
+            return;
+        }
+        Long userId;
+        try {
+            userId = parts[1].isEmpty() ? null : Long.valueOf(parts[1]);
+        } catch (NumberFormatException e) {
+            log.warn("Unexpected company access payload: {}", payload);
+            return;
+        }
+        invalidate(userId, parts[2].isEmpty() ? null : parts[2]);
+    }
+
+    /**
+     * Changes from other processes may have been missed (listener reconnect)
+     */
+    @Override
+    public void onReconnect() {
+        userIdsByEmail.invalidateAll();
+        rolesByUserId.invalidateAll();
+    }
+
+    private void invalidate(Long userId, String email) {
+        if (userId != null) {
+            rolesByUserId.invalidate(userId);
+        }
+        if (email != null) {
+            userIdsByEmail.invalidate(email);
+        }
+        log.debug("Company access index invalidated: userId={}, email={}", userId, email);
+    }
+
+    private Map<Long, MemberRole> loadRoles(Long userId) {
+        return companyMemberRepository.findByMemberUserId(userId).stream()
+                .collect(Collectors.toUnmodifiableMap(CompanyMember::getCompanyOwnerId, CompanyMember::getRole));
+    }
+}
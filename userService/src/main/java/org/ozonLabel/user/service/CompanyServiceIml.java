@@ -17,7 +17,7 @@ import org.ozonLabel.user.repository.InvitationRepository;
 import org.ozonLabel.user.entity.User;
 import org.ozonLabel.user.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
@@ -38,6 +38,8 @@ public class CompanyServiceIml implements CompanyService {
     private final JavaMailSender mailSender;
     private final AuditLogService auditLogService;
     private final NotificationService notificationService;
+    private final CompanyAccessIndex companyAccessIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.frontend.url:https://dev.print-365.ru}")
     private String frontendUrl;
@@ -150,6 +152,7 @@ public class CompanyServiceIml implements CompanyService {
         invitation.setAcceptedAt(LocalDateTime.now());
         invitation.setAcceptedByUserId(acceptingUser.getId());
         invitationRepository.save(invitation);
+        eventPublisher.publishEvent(CompanyAccessChangedEvent.ofUser(acceptingUser.getId()));
 
         User owner = userRepository.findById(invitation.getCompanyOwnerId()).orElse(null);
         if (owner != null) {
@@ -269,6 +272,7 @@ public class CompanyServiceIml implements CompanyService {
         MemberRole oldRole = member.getRole();
         member.setRole(newRole);
         companyMemberRepository.save(member);
+        eventPublisher.publishEvent(CompanyAccessChangedEvent.ofUser(memberId));
 
         Map<String, Object> details = new HashMap<>();
         details.put("memberId", memberId);
@@ -310,29 +314,23 @@ public class CompanyServiceIml implements CompanyService {
                 AuditAction.MEMBER_REMOVED, "MEMBER", memberId, details);
 
         companyMemberRepository.deleteByCompanyOwnerIdAndMemberUserId(companyOwnerId, memberId);
+        eventPublisher.publishEvent(CompanyAccessChangedEvent.ofUser(memberId));
 
         log.info("User {} removed from company {} by admin {}",
                 memberId, companyOwnerId, adminEmail);
     }
 
     /**
-     * Get user companies with N+1 fixed
+     * Get user companies: memberships and owners in one query
      */
     public UserCompaniesResponseDto getUserCompanies(String userEmail) {
-        User user = getUserByEmail(userEmail);
-        List<CompanyMember> memberships = companyMemberRepository.findByMemberUserId(user.getId());
-
-        // Fetch all owners in one query
-        List<Long> ownerIds = memberships.stream()
-                .map(CompanyMember::getCompanyOwnerId)
-                .collect(Collectors.toList());
-
-        Map<Long, User> ownerMap = userRepository.findAllById(ownerIds).stream()
-                .collect(Collectors.toMap(User::getId, u -> u));
+        Long userId = companyAccessIndex.findUserId(userEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User"));
+        List<CompanyMember> memberships = companyMemberRepository.findWithOwnerByMemberUserId(userId);
 
         List<UserCompaniesResponseDto.CompanyInfo> companies = memberships.stream()
                 .map(membership -> {
-                    User owner = ownerMap.get(membership.getCompanyOwnerId());
+                    User owner = membership.getCompanyOwner();
                     if (owner == null) return null;
 
                     return UserCompaniesResponseDto.CompanyInfo.builder()
@@ -354,13 +352,13 @@ public class CompanyServiceIml implements CompanyService {
     }
 
     /**
-     * Get company info with N+1 fixed
+     * Get company info: membership from the access index, team members with users in one query
      */
     public CompanyInfoResponseDto getCompanyInfo(String userEmail, Long companyOwnerId) {
-        User user = getUserByEmail(userEmail);
+        Long userId = companyAccessIndex.findUserId(userEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User"));
 
-        CompanyMember membership = companyMemberRepository
-                .findByCompanyOwnerIdAndMemberUserId(companyOwnerId, user.getId())
+        MemberRole myRole = companyAccessIndex.findMemberRole(userId, companyOwnerId)
                 .orElseThrow(() -> new AccessDeniedException("Нет доступа к этой компании"));
 
         User owner = userRepository.findById(companyOwnerId)
@@ -375,22 +373,15 @@ public class CompanyServiceIml implements CompanyService {
                 .phone(owner.getPhone())
                 .ozonClientId(owner.getOzonClientId())
                 .subscription(owner.getSubscription())
-                .myRole(membership.getRole().name());
+                .myRole(myRole.name());
 
-        if (membership.getRole() == MemberRole.ADMIN) {
-            List<CompanyMember> allMembers = companyMemberRepository.findByCompanyOwnerId(companyOwnerId);
-
-            // Fetch all member users in one query
-            List<Long> memberIds = allMembers.stream()
-                    .map(CompanyMember::getMemberUserId)
-                    .collect(Collectors.toList());
-
-            Map<Long, User> memberMap = userRepository.findAllById(memberIds).stream()
-                    .collect(Collectors.toMap(User::getId, u -> u));
+        if (myRole == MemberRole.ADMIN) {
+            List<CompanyMember> allMembers = companyMemberRepository
+                    .findWithMemberUserByCompanyOwnerId(companyOwnerId);
 
             List<CompanyInfoResponseDto.TeamMember> teamMembers = allMembers.stream()
                     .map(member -> {
-                        User memberUser = memberMap.get(member.getMemberUserId());
+                        User memberUser = member.getMemberUser();
                         if (memberUser == null) return null;
 
                         return CompanyInfoResponseDto.TeamMember.builder()
@@ -410,30 +401,25 @@ public class CompanyServiceIml implements CompanyService {
     }
 
     /**
-     * Check access with caching for frequently called method
+     * Check access. Served from the in-memory CompanyAccessIndex, no database queries
+     * on the hot path.
      */
-    @Cacheable(value = "userCompanyAccess", key = "#userEmail + '_' + #companyOwnerId")
     public MemberRole checkAccess(String userEmail, Long companyOwnerId) {
-        log.info("checkAccess called: userEmail={}, companyOwnerId={}", userEmail, companyOwnerId);
-        User user = getUserByEmail(userEmail);
+        Long userId = companyAccessIndex.findUserId(userEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User"));
 
-        if (user.getId().equals(companyOwnerId)) {
-            log.info("Owner access granted for user {} to company {}", user.getId(), companyOwnerId);
+        if (userId.equals(companyOwnerId)) {
             return MemberRole.ADMIN;
         }
 
-        log.info("Looking for member role...");
-        return companyMemberRepository.findRoleByCompanyOwnerIdAndMemberUserId(companyOwnerId, user.getId())
+        return companyAccessIndex.findMemberRole(userId, companyOwnerId)
                 .orElseThrow(() -> new AccessDeniedException("No access to this company"));
     }
 
     public boolean hasMinimumRole(String userEmail, Long companyOwnerId, MemberRole minimumRole) {
-        try {
-            MemberRole userRole = checkAccess(userEmail, companyOwnerId);
-            return getRoleLevel(userRole) >= getRoleLevel(minimumRole);
-        } catch (Exception e) {
-            return false;
-        }
+        return companyAccessIndex.findRole(userEmail, companyOwnerId)
+                .map(role -> getRoleLevel(role) >= getRoleLevel(minimumRole))
+                .orElse(false);
     }
 
     @Override
@@ -489,6 +475,7 @@ public class CompanyServiceIml implements CompanyService {
     @Override
     public void deleteByCompanyOwnerIdAndMemberUserId(Long companyOwnerId, Long memberUserId) {
         companyMemberRepository.deleteByCompanyOwnerIdAndMemberUserId(companyOwnerId, memberUserId);
+        eventPublisher.publishEvent(CompanyAccessChangedEvent.ofUser(memberUserId));
     }
 
     @Override
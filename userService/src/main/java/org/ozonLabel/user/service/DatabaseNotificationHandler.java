@@ -0,0 +1,25 @@
+package org.ozonLabel.user.service;
+
+/**
+ * Receiver of PostgreSQL NOTIFY messages on one channel, dispatched by {@link DatabaseNotificationListener}.
+ *
+ * Used by in-memory state shared by userService and ozonApi: a process publishes a change with
+ * {@code pg_notify} inside the writing transaction, and every other process drops its copy on commit.
+ */
+public interface DatabaseNotificationHandler {
+
+    /**
+     * Channel name passed to LISTEN
+     */
+    String channel();
+
+    /**
+     * Change committed by a process (this one included: payloads carry the sender to filter own messages)
+     */
+    void onNotification(String payload);
+
+    /**
+     * The listener (re)connected: notifications sent while it was down are lost, so local state is dropped
+     */
+    void onReconnect();
+}
@@ -0,0 +1,115 @@
+package org.ozonLabel.user.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers changes committed by other processes (userService, ozonApi, other instances) to
+ * every {@link DatabaseNotificationHandler} of this process.
+ *
+ * Listens to the handlers' channels on a dedicated connection outside the pool.
+ * After every (re)connect the handlers drop their local state, since notifications sent while
+ * the connection was down are lost. Lives in user.service, so both userService and ozonApi run it.
+ */
+@Component
+@Slf4j
+public class DatabaseNotificationListener {
+
+    private static final int POLL_TIMEOUT_MS = 10_000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final Map<String, DatabaseNotificationHandler> handlers;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public DatabaseNotificationListener(List<DatabaseNotificationHandler> handlers,
+                                        @Value("${spring.datasource.url}") String url,
+                                        @Value("${spring.datasource.username}") String username,
+                                        @Value("${spring.datasource.password:}") String password) {
+        this.handlers = handlers.stream()
+                .collect(Collectors.toUnmodifiableMap(DatabaseNotificationHandler::channel, Function.identity()));
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    @PostConstruct
+    public void start() {
+        thread = new Thread(this::run, "database-notification-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    for (String channel : handlers.keySet()) {
+                        statement.execute("LISTEN " + channel);
+                    }
+                }
+                handlers.values().forEach(DatabaseNotificationHandler::onReconnect);
+                log.info("Listening for database notifications on {}", handlers.keySet());
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Database notification listener disconnected: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(PGNotification notification) {
+        DatabaseNotificationHandler handler = handlers.get(notification.getName());
+        if (handler == null) {
+            return;
+        }
+        try {
+            handler.onNotification(notification.getParameter());
+        } catch (Exception e) {
+            log.warn("Failed to apply {} notification {}: {}",
+                    notification.getName(), notification.getParameter(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package org.ozonLabel.user.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.ozonLabel.common.model.NotificationPriority;
+import org.ozonLabel.common.model.NotificationType;
+import org.ozonLabel.user.entity.Notification;
+import org.ozonLabel.user.entity.User;
+import org.ozonLabel.user.repository.NotificationRepository;
+import org.ozonLabel.user.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-user notification counters (unread, per type, urgent) kept in memory.
+ *
+ * Counters are loaded with one grouped query and then updated incrementally on every
+ * mutation after the transaction commits. Each entry is reloaded from the database
+ * once per {@code notifications.counters.reconcile-interval} regardless of updates, so
+ * bulk changes made elsewhere (cleanup, partition drop) are reconciled.
+ * The unread count is pushed over STOMP only when it actually changes.
+ *
+ * Every change also sends a PostgreSQL NOTIFY on {@link #CHANNEL} inside the writing transaction,
+ * so it is delivered only on commit. Notifications are created by ozonApi as well (export jobs etc.);
+ * every process listens to the channel (DatabaseNotificationListener) and reloads the affected users,
+ * so its counters do not wait for reconciliation.
+ */
+@Component
+@Slf4j
+public class NotificationCounterStore implements DatabaseNotificationHandler {
+
+    public static final String CHANNEL = "notification_counters";
+
+    private static final String ALL_USERS = "*";
+
+    private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final NotificationWebSocketService webSocketService;
+    private final JdbcTemplate jdbcTemplate;
+    private final LoadingCache<Long, Counters> counters;
+
+    // Tells this process's own NOTIFY payloads apart from those of other processes
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public NotificationCounterStore(NotificationRepository notificationRepository,
+                                    UserRepository userRepository,
+                                    NotificationWebSocketService webSocketService,
+                                    JdbcTemplate jdbcTemplate,
+                                    @Value("${notifications.counters.max-users:100000}") long maxUsers,
+                                    @Value("${notifications.counters.reconcile-interval:PT5M}") Duration reconcileInterval) {
+        this.notificationRepository = notificationRepository;
+        this.userRepository = userRepository;
+        this.webSocketService = webSocketService;
+        this.jdbcTemplate = jdbcTemplate;
+        long reconcileNanos = reconcileInterval.toNanos();
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfter(new Expiry<Long, Counters>() {
+                    @Override
+                    public long expireAfterCreate(Long userId, Counters value, long currentTime) {
+                        return untilReconcile(value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long userId, Counters value, long currentTime,
+                                                  long currentDuration) {
+                        // Incremental updates keep loadedAt, so they do not postpone reconciliation
+                        return untilReconcile(value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long userId, Counters value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    private long untilReconcile(Counters value, long currentTime) {
+                        return Math.max(0, value.loadedAtNanos() + reconcileNanos - currentTime);
+                    }
+                })
+                .build(this::load);
+    }
+
+    public Counters get(Long userId) {
+        return counters.get(userId);
+    }
+
+    public void recordCreated(Long userId, String userEmail, NotificationType type, NotificationPriority priority) {
+        publish(String.valueOf(userId));
+        afterCommit(() -> update(userId, userEmail, c -> c.created(type, priority)));
+    }
+
+    public void recordRead(Long userId, String userEmail, int count) {
+        publish(String.valueOf(userId));
+        afterCommit(() -> update(userId, userEmail, c -> c.read(count)));
+    }
+
+    public void recordAllRead(Long userId, String userEmail) {
+        publish(String.valueOf(userId));
+        afterCommit(() -> update(userId, userEmail, Counters::allRead));
+    }
+
+    public void recordDeleted(Long userId, String userEmail, Notification notification) {
+        boolean wasUnread = Boolean.FALSE.equals(notification.getIsRead());
+        NotificationType type = notification.getType();
+        NotificationPriority priority = notification.getPriority();
+        publish(String.valueOf(userId));
+        afterCommit(() -> update(userId, userEmail, c -> c.deleted(type, priority, wasUnread)));
+    }
+
+    /**
+     * Bulk change with unknown composition: reload the user's counters from the database
+     */
+    public void recordBulkChange(Long userId, String userEmail) {
+        publish(String.valueOf(userId));
+        afterCommit(() -> reload(userId, userEmail));
+    }
+
+    /**
+     * Changes across many users (expired notifications cleanup)
+     */
+    public void invalidateAll() {
+        publish(ALL_USERS);
+        afterCommit(counters::invalidateAll);
+    }
+
+    @Override
+    public String channel() {
+        return CHANNEL;
+    }
+
+    /**
+     * Change committed by another process (payload of a NOTIFY on {@link #CHANNEL}).
+     * Only cached users are reloaded: the others are loaded from the database on first access anyway.
+     */
+    @Override
+    public void onNotification(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0 || payload.startsWith(instanceId + ":")) {
+            return;
+        }
+        String target = payload.substring(separator + 1);
+        if (ALL_USERS.equals(target)) {
+            counters.invalidateAll();
+            return;
+        }
+        Long userId;
+        try {
+            userId = Long.valueOf(target);
+        } catch (NumberFormatException e) {
+            log.warn("Unexpected notification counter payload: {}", payload);
+            return;
+        }
+        if (counters.getIfPresent(userId) != null) {
+            reload(userId, userRepository.findById(userId).map(User::getEmail).orElse(null));
+        }
+    }
+
+    /**
+     * Notifications from other processes may have been missed (listener reconnect)
+     */
+    @Override
+    public void onReconnect() {
+        counters.invalidateAll();
+    }
+
+    private void reload(Long userId, String userEmail) {
+        Counters previous = counters.getIfPresent(userId);
+        Counters fresh = load(userId);
+        counters.put(userId, fresh);
+        pushIfChanged(userEmail, previous, fresh);
+    }
+
+    /**
+     * NOTIFY is transactional: other processes see it only after the change is committed.
+     * Not caught on purpose: a failed statement aborts the surrounding PostgreSQL transaction anyway
+     */
+    private void publish(String target) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, instanceId + ":" + target);
+    }
+
+    private void update(Long userId, String userEmail, UnaryOperator<Counters> change) {
+        Counters[] previous = new Counters[1];
+        Counters updated = counters.asMap().computeIfPresent(userId, (id, current) -> {
+            previous[0] = current;
+            return change.apply(current);
+        });
+        if (updated == null) {
+            // Not cached (or due for reconciliation): the database already has the committed change
+            updated = counters.get(userId);
+        }
+        pushIfChanged(userEmail, previous[0], updated);
+    }
+
+    private void pushIfChanged(String userEmail, Counters previous, Counters current) {
+        if (userEmail == null || current == null) {
+            return;
+        }
+        if (previous == null || previous.unread() != current.unread()) {
+            webSocketService.sendUnreadCount(userEmail, current.unread());
+        }
+    }
+
+    private Counters load(Long userId) {
+        long unread = 0;
+        long urgent = 0;
+        EnumMap<NotificationType, Long> byType = new EnumMap<>(NotificationType.class);
+
+        for (Object[] row : notificationRepository.countGroupedByUserId(userId)) {
+            NotificationType type = (NotificationType) row[0];
+            NotificationPriority priority = (NotificationPriority) row[1];
+            boolean unreadRow = Boolean.FALSE.equals(row[2]);
+            long count = ((Number) row[3]).longValue();
+
+            if (type != null) {
+                byType.merge(type, count, Long::sum);
+            }
+            if (unreadRow) {
+                unread += count;
+            }
+            if (priority == NotificationPriority.URGENT) {
+                urgent += count;
+            }
+        }
+
+        log.debug("Notification counters loaded for user {}: unread={}", userId, unread);
+        // System.nanoTime is the time source Caffeine passes to Expiry
+        return new Counters(unread, Collections.unmodifiableMap(byType), urgent, System.nanoTime());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Notification counters of one user
+     *
+     * @param unread        unread notifications
+     * @param byType        all notifications by type
+     * @param urgent        notifications with URGENT priority
+     * @param loadedAtNanos when the counters were last reconciled with the database
+     */
+    public record Counters(long unread, Map<NotificationType, Long> byType, long urgent, long loadedAtNanos) {
+
+        public long countOf(NotificationType type) {
+            return byType.getOrDefault(type, 0L);
+        }
+
+        Counters created(NotificationType type, NotificationPriority priority) {
+            return new Counters(unread + 1, adjust(type, 1), urgent + (isUrgent(priority) ? 1 : 0), loadedAtNanos);
+        }
+
+        Counters read(int count) {
+            return new Counters(Math.max(0, unread - count), byType, urgent, loadedAtNanos);
+        }
+
+        Counters allRead() {
+            return new Counters(0, byType, urgent, loadedAtNanos);
+        }
+
+        Counters deleted(NotificationType type, NotificationPriority priority, boolean wasUnread) {
+            return new Counters(Math.max(0, unread - (wasUnread ? 1 : 0)), adjust(type, -1),
+                    Math.max(0, urgent - (isUrgent(priority) ? 1 : 0)), loadedAtNanos);
+        }
+
+        private Map<NotificationType, Long> adjust(NotificationType type, long delta) {
+            if (type == null) {
+                return byType;
+            }
+            EnumMap<NotificationType, Long> copy = byType.isEmpty()
+                    ? new EnumMap<>(NotificationType.class)
+                    : new EnumMap<>(byType);
+            copy.put(type, Math.max(0, copy.getOrDefault(type, 0L) + delta));
+            return Collections.unmodifiableMap(copy);
+        }
+
+        private static boolean isUrgent(NotificationPriority priority) {
+            return priority == NotificationPriority.URGENT;
+        }
+    }
+}
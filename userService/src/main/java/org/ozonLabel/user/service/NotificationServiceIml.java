@@ -1,5 +1,6 @@
 package org.ozonLabel.user.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.ozonLabel.common.exception.user.AccessDeniedException;
@@ -21,20 +22,32 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationServiceIml implements NotificationService {
 
+    private static final List<String> EXPORT_HEADER = List.of(
+            "Дата", "Тип", "Приоритет", "Заголовок", "Сообщение", "Прочитано", "Дата прочтения",
+            "Тип объекта", "ID объекта", "Данные");
+    private static final int EXPORT_IS_READ_COLUMN = 5;
+    private static final int EXPORT_DATA_COLUMN = 9;
+
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
     private final NotificationWebSocketService webSocketService;
+    private final NotificationCounterStore counterStore;
+    private final ObjectMapper objectMapper;
     private static final int MAX_UNREAD_FETCH = 100;
     private static final int CLEANUP_BATCH_SIZE = 1000;
 
@@ -63,11 +76,11 @@ public class NotificationServiceIml implements NotificationService {
 
         NotificationResponseDto responseDto = mapToDto(notification, Map.of());
 
-        // Send real-time notification via WebSocket
+        // Send real-time notification via WebSocket, unread count is pushed by the counter store
+        Notification created = notification;
         userRepository.findById(dto.getUserId()).ifPresent(user -> {
             webSocketService.sendNotification(user.getEmail(), responseDto);
-            Long unreadCount = notificationRepository.countByUserIdAndIsReadFalse(dto.getUserId());
-            webSocketService.sendUnreadCount(user.getEmail(), unreadCount);
+            counterStore.recordCreated(user.getId(), user.getEmail(), created.getType(), created.getPriority());
         });
 
         return responseDto;
@@ -199,7 +212,7 @@ public class NotificationServiceIml implements NotificationService {
                 .map(n -> mapToDto(n, senderMap))
                 .collect(Collectors.toList());
 
-        Long unreadCount = notificationRepository.countByUserIdAndIsReadFalse(user.getId());
+        Long unreadCount = counterStore.get(user.getId()).unread();
 
         return NotificationListResponseDto.builder()
                 .notifications(notifications)
@@ -250,7 +263,7 @@ public class NotificationServiceIml implements NotificationService {
             notification.markAsRead();
             notificationRepository.save(notification);
             log.debug("Notification {} marked as read by user {}", notificationId, userEmail);
-            sendUnreadCountUpdate(user);
+            counterStore.recordRead(user.getId(), user.getEmail(), 1);
         }
     }
 
@@ -259,7 +272,7 @@ public class NotificationServiceIml implements NotificationService {
         User user = getUserByEmail(userEmail);
         int count = notificationRepository.markAsRead(notificationIds, user.getId(), LocalDateTime.now());
         if (count > 0) {
-            sendUnreadCountUpdate(user);
+            counterStore.recordRead(user.getId(), user.getEmail(), count);
         }
         return count;
     }
@@ -269,7 +282,7 @@ public class NotificationServiceIml implements NotificationService {
         User user = getUserByEmail(userEmail);
         int count = notificationRepository.markAllAsReadForUser(user.getId(), LocalDateTime.now());
         if (count > 0) {
-            sendUnreadCountUpdate(user);
+            counterStore.recordAllRead(user.getId(), user.getEmail());
         }
         return count;
     }
@@ -287,7 +300,7 @@ public class NotificationServiceIml implements NotificationService {
 
         notificationRepository.delete(notification);
         log.debug("Notification {} deleted by user {}", notificationId, userEmail);
-        sendUnreadCountUpdate(user);
+        counterStore.recordDeleted(user.getId(), user.getEmail(), notification);
     }
 
     @Transactional
@@ -295,41 +308,35 @@ public class NotificationServiceIml implements NotificationService {
         User user = getUserByEmail(userEmail);
         int count = notificationRepository.deleteByIds(notificationIds, user.getId());
         if (count > 0) {
-            sendUnreadCountUpdate(user);
+            counterStore.recordBulkChange(user.getId(), user.getEmail());
         }
         return count;
     }
 
     public Long getUnreadCount(String userEmail) {
         User user = getUserByEmail(userEmail);
-        return notificationRepository.countByUserIdAndIsReadFalse(user.getId());
+        return counterStore.get(user.getId()).unread();
     }
 
     public NotificationStatsDto getNotificationStats(String userEmail) {
         User user = getUserByEmail(userEmail);
-
-        Long totalUnread = notificationRepository.countByUserIdAndIsReadFalse(user.getId());
-        Long invitations = notificationRepository.countByUserIdAndType(user.getId(), NotificationType.INVITATION);
-        Long system = notificationRepository.countByUserIdAndType(user.getId(), NotificationType.SYSTEM);
-        Long support = notificationRepository.countByUserIdAndType(user.getId(), NotificationType.SUPPORT);
-
-        List<Notification> urgent = notificationRepository
-                .findByUserIdAndPriorityOrderByCreatedAtDesc(user.getId(), NotificationPriority.URGENT);
+        NotificationCounterStore.Counters counters = counterStore.get(user.getId());
 
         return NotificationStatsDto.builder()
-                .totalUnread(totalUnread)
-                .totalInvitations(invitations)
-                .totalSystem(system)
-                .totalSupport(support)
-                .urgentCount((long) urgent.size())
+                .totalUnread(counters.unread())
+                .totalInvitations(counters.countOf(NotificationType.INVITATION))
+                .totalSystem(counters.countOf(NotificationType.SYSTEM))
+                .totalSupport(counters.countOf(NotificationType.SUPPORT))
+                .urgentCount(counters.urgent())
                 .lastChecked(LocalDateTime.now())
                 .build();
     }
 
     /**
-     * Cleanup expired notifications in batches
+     * Cleanup expired notifications in batches.
+     * Each batch commits separately so a large cleanup does not hold locks for long;
+     * old notifications as a whole are removed by dropping partitions (PartitionMaintenanceService).
      */
-    @Transactional
     public int cleanupExpiredNotifications() {
         int totalDeleted = 0;
         int batchDeleted;
@@ -344,6 +351,9 @@ public class NotificationServiceIml implements NotificationService {
             }
         } while (batchDeleted == CLEANUP_BATCH_SIZE);
 
+        if (totalDeleted > 0) {
+            counterStore.invalidateAll();
+        }
         return totalDeleted;
     }
 
@@ -410,13 +420,21 @@ public class NotificationServiceIml implements NotificationService {
     @Override
     @Transactional
     public int deleteExpiredNotifications(LocalDateTime now) {
-        return notificationRepository.deleteExpiredNotifications(now);
+        int deleted = notificationRepository.deleteExpiredNotifications(now);
+        if (deleted > 0) {
+            counterStore.invalidateAll();
+        }
+        return deleted;
     }
 
     @Override
     @Transactional
     public int deleteExpiredNotificationsBatch(LocalDateTime now, int batchSize) {
-        return notificationRepository.deleteExpiredNotificationsBatch(now, batchSize);
+        int deleted = notificationRepository.deleteExpiredNotificationsBatch(now, batchSize);
+        if (deleted > 0) {
+            counterStore.invalidateAll();
+        }
+        return deleted;
     }
 
     @Override
@@ -425,6 +443,27 @@ public class NotificationServiceIml implements NotificationService {
                 .stream().map(n -> mapToDto(n, Map.of())).toList();
     }
 
+    /**
+     * Export of all user notifications through a forward-only cursor (see AuditLogServiceIml)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUserNotifications(String userEmail, String format, OutputStream out) throws IOException {
+        TabularExportWriter.Format exportFormat = TabularExportWriter.Format.parse(format);
+        User user = getUserByEmail(userEmail);
+
+        long rows = 0;
+        try (Stream<Object[]> stream = notificationRepository.streamForExport(user.getId());
+             TabularExportWriter writer = TabularExportWriter.create(exportFormat, out, "Уведомления", EXPORT_HEADER)) {
+            for (Object[] row : (Iterable<Object[]>) stream::iterator) {
+                row[EXPORT_IS_READ_COLUMN] = Boolean.TRUE.equals(row[EXPORT_IS_READ_COLUMN]) ? "Да" : "Нет";
+                row[EXPORT_DATA_COLUMN] = TabularExportWriter.jsonText(objectMapper, row[EXPORT_DATA_COLUMN]);
+                writer.writeRow(Arrays.asList(row));
+                rows++;
+            }
+        }
+        log.info("Notifications of user {} exported: {} rows, format {}", user.getId(), rows, exportFormat);
+    }
 
     private NotificationResponseDto mapToDto(Notification notification, Map<Long, User> senderMap) {
         NotificationResponseDto.SenderInfo senderInfo = null;
@@ -460,11 +499,6 @@ public class NotificationServiceIml implements NotificationService {
                 .build();
     }
 
-    private void sendUnreadCountUpdate(User user) {
-        Long unreadCount = notificationRepository.countByUserIdAndIsReadFalse(user.getId());
-        webSocketService.sendUnreadCount(user.getEmail(), unreadCount);
-    }
-
     private User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User"));
@@ -1,22 +1,117 @@
 package org.ozonLabel.user.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.ozonLabel.common.dto.user.NotificationResponseDto;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+/**
+ * WebSocket fan-out of notifications.
+ *
+ * Messages are not sent from the calling (transaction) thread: they go to a per-user
+ * outbox, and the first message schedules a flush of that outbox after a short window
+ * on a dedicated executor. All notifications collected in the window are delivered in
+ * one pass, unread count updates are coalesced to the latest value. Inside a transaction
+ * messages are queued only after commit.
+ */
 @Service
 @Slf4j
 public class NotificationWebSocketService {
 
+    private static final long NO_COUNT = -1;
+
     @Autowired(required = false)
     private SimpMessagingTemplate messagingTemplate;
 
+    @Value("${websocket.fanout.coalesce-window-ms:100}")
+    private long coalesceWindowMillis;
+
+    @Value("${websocket.fanout.threads:2}")
+    private int threads;
+
+    @Value("${websocket.fanout.max-pending-per-user:100}")
+    private int maxPendingPerUser;
+
+    private final Map<String, Outbox> outboxes = new ConcurrentHashMap<>();
+    private ScheduledThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ws-fanout-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
     public void sendNotification(String userEmail, NotificationResponseDto notification) {
         if (messagingTemplate == null) return;
+        afterCommit(() -> enqueue(userEmail, outbox -> outbox.addNotification(notification, maxPendingPerUser)));
+    }
+
+    public void sendUnreadCount(String userEmail, long count) {
+        if (messagingTemplate == null) return;
+        afterCommit(() -> enqueue(userEmail, outbox -> outbox.unreadCount.set(count)));
+    }
+
+    private void enqueue(String userEmail, Consumer<Outbox> change) {
+        Outbox outbox = outboxes.computeIfAbsent(userEmail, email -> new Outbox());
+        change.accept(outbox);
+
+        if (outbox.scheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(() -> flush(userEmail, outbox), coalesceWindowMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down: deliver from the calling thread
+                flush(userEmail, outbox);
+            }
+        }
+    }
+
+    private void flush(String userEmail, Outbox outbox) {
+        // Messages added from now on schedule another flush
+        outbox.scheduled.set(false);
+
+        int sent = 0;
+        NotificationResponseDto notification;
+        while ((notification = outbox.pollNotification()) != null) {
+            deliverNotification(userEmail, notification);
+            sent++;
+        }
+
+        long count = outbox.unreadCount.getAndSet(NO_COUNT);
+        if (count != NO_COUNT) {
+            deliverUnreadCount(userEmail, count);
+        }
+
+        if (outbox.isEmpty() && !outbox.scheduled.get()) {
+            outboxes.remove(userEmail, outbox);
+        }
+        if (sent > 1) {
+            log.debug("WS batch of {} notifications sent to user {}", sent, userEmail);
+        }
+    }
+
+    private void deliverNotification(String userEmail, NotificationResponseDto notification) {
         try {
             messagingTemplate.convertAndSendToUser(
                     userEmail,
@@ -29,8 +124,7 @@ public class NotificationWebSocketService {
         }
     }
 
-    public void sendUnreadCount(String userEmail, long count) {
-        if (messagingTemplate == null) return;
+    private void deliverUnreadCount(String userEmail, long count) {
         try {
             messagingTemplate.convertAndSendToUser(
                     userEmail,
@@ -41,4 +135,58 @@ public class NotificationWebSocketService {
             log.warn("Failed to send unread count to {}: {}", userEmail, e.getMessage());
         }
     }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Deliver everything still pending before the broker stops
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        outboxes.forEach(this::flush);
+        outboxes.clear();
+    }
+
+    /**
+     * Pending messages of one user
+     */
+    private static final class Outbox {
+
+        private final ConcurrentLinkedQueue<NotificationResponseDto> notifications = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong unreadCount = new AtomicLong(NO_COUNT);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void addNotification(NotificationResponseDto notification, int limit) {
+            notifications.add(notification);
+            if (pending.incrementAndGet() > limit && notifications.poll() != null) {
+                // Message storm: the client still gets the unread count and reloads the list
+                pending.decrementAndGet();
+            }
+        }
+
+        NotificationResponseDto pollNotification() {
+            NotificationResponseDto notification = notifications.poll();
+            if (notification != null) {
+                pending.decrementAndGet();
+            }
+            return notification;
+        }
+
+        boolean isEmpty() {
+            return notifications.isEmpty() && unreadCount.get() == NO_COUNT;
+        }
+    }
 }
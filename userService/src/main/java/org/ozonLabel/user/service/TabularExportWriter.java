@@ -0,0 +1,234 @@
+package org.ozonLabel.user.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.ozonLabel.common.exception.user.ValidationException;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Row-by-row export writer (CSV or XLSX) with constant memory: CSV goes straight to the
+ * output stream, XLSX uses SXSSF and keeps only a small window of rows in memory.
+ *
+ * Text values are user-controlled (audit details, notification messages): a value that a
+ * spreadsheet would read as a formula is prefixed with an apostrophe (CSV injection).
+ */
+public abstract class TabularExportWriter implements Closeable {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // First characters that make Excel/LibreOffice treat a cell as a formula
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) {
+                return CSV;
+            }
+            try {
+                return Format.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Неподдерживаемый формат экспорта: " + value);
+            }
+        }
+    }
+
+    public static TabularExportWriter create(Format format, OutputStream out, String sheetName,
+                                             List<String> header) throws IOException {
+        TabularExportWriter writer = format == Format.XLSX
+                ? new XlsxWriter(out, sheetName, header)
+                : new CsvWriter(out);
+        writer.writeRow(header);
+        return writer;
+    }
+
+    public abstract void writeRow(List<?> values) throws IOException;
+
+    /**
+     * JSON text of a jsonb column value (Map/List from the projection), or toString if it cannot be serialized
+     */
+    public static String jsonText(ObjectMapper objectMapper, Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            return value.toString();
+        }
+    }
+
+    /**
+     * Text cell value with a leading formula character neutralized by an apostrophe
+     */
+    static String cellText(Object value) {
+        String text = text(value);
+        if (!text.isEmpty() && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0) {
+            return "'" + text;
+        }
+        return text;
+    }
+
+    static String text(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return DATE_TIME.format(dateTime);
+        }
+        if (value instanceof Enum<?> e) {
+            return e.name();
+        }
+        return value.toString();
+    }
+
+    private static final class CsvWriter extends TabularExportWriter {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            // BOM: Excel otherwise opens UTF-8 CSV with Cyrillic as mojibake
+            writer.write('\uFEFF');
+        }
+
+        @Override
+        public void writeRow(List<?> values) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = values.get(i);
+                writeField(value instanceof Number ? text(value) : cellText(value));
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String field) throws IOException {
+            boolean quote = field.indexOf(',') >= 0 || field.indexOf('"') >= 0
+                    || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(field);
+                return;
+            }
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class XlsxWriter extends TabularExportWriter {
+
+        private static final int ROW_WINDOW = 100;
+        private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+        private static final int MAX_CELL_LENGTH = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+
+        private final OutputStream out;
+        private final SXSSFWorkbook workbook;
+        private final String sheetName;
+        private final List<String> header;
+        private final CellStyle headerStyle;
+        private SXSSFSheet sheet;
+        private int sheetCount;
+        private int rowIndex;
+
+        XlsxWriter(OutputStream out, String sheetName, List<String> header) {
+            this.out = out;
+            this.workbook = new SXSSFWorkbook(ROW_WINDOW);
+            this.workbook.setCompressTempFiles(true);
+            this.sheetName = sheetName;
+            this.header = header;
+
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            this.headerStyle = workbook.createCellStyle();
+            this.headerStyle.setFont(bold);
+
+            nextSheet();
+        }
+
+        private void nextSheet() {
+            sheetCount++;
+            sheet = workbook.createSheet(sheetCount == 1 ? sheetName : sheetName + " " + sheetCount);
+            rowIndex = 0;
+        }
+
+        @Override
+        public void writeRow(List<?> values) {
+            if (rowIndex >= MAX_ROWS) {
+                // Sheet is full: continue on the next one with the same header
+                nextSheet();
+                writeCells(header, headerStyle);
+            }
+            writeCells(values, rowIndex == 0 ? headerStyle : null);
+        }
+
+        private void writeCells(List<?> values, CellStyle style) {
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < values.size(); i++) {
+                Object value = values.get(i);
+                Cell cell = row.createCell(i);
+                if (value instanceof Number number) {
+                    cell.setCellValue(number.doubleValue());
+                } else {
+                    String text = cellText(value);
+                    cell.setCellValue(text.length() > MAX_CELL_LENGTH ? text.substring(0, MAX_CELL_LENGTH) : text);
+                }
+                if (style != null) {
+                    cell.setCellStyle(style);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                workbook.write(out);
+                out.flush();
+            } finally {
+                workbook.dispose();
+                workbook.close();
+            }
+        }
+    }
+}
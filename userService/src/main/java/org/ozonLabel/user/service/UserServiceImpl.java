@@ -14,6 +14,7 @@ import org.ozonLabel.user.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
@@ -27,6 +28,7 @@ import java.util.Optional;
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final JavaMailSender mailSender;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.support.email:zhelonkin.zakhar@yandex.ru}")
     private String supportEmail;
@@ -42,7 +44,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Transactional
-    @CacheEvict(value = {"userProfiles", "userCompanyAccess"}, key = "#currentEmail")
+    @CacheEvict(value = "userProfiles", key = "#currentEmail")
     public UserResponseDto updateProfile(String currentEmail, UpdateProfileDto dto) {
         if (dto.isEmpty()) {
             throw new ValidationException("Необходимо указать как минимум одно поле.");
@@ -58,6 +60,7 @@ public class UserServiceImpl implements UserService {
                 throw new ValidationException("Этот адрес электронной почты уже занят.");
             }
             user.setEmail(dto.getEmail());
+            eventPublisher.publishEvent(CompanyAccessChangedEvent.ofEmail(currentEmail));
         }
 
         User saved = userRepository.save(user);